@@ -8,7 +8,7 @@ mvn package
 #mvn package -Dmaven.test.skip=true
 
 # Move jar
-mv ./target/SpeakerSim-jar-with-dependencies.jar ./SpeakerSim.jar
+mv ./gui/target/SpeakerSim-jar-with-dependencies.jar ./SpeakerSim.jar
 
 # Zip jar
 7za a -tzip -mx=9 SpeakerSim.zip SpeakerSim.jar
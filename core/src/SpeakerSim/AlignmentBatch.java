@@ -0,0 +1,358 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package SpeakerSim;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Calculates every applicable box alignment for every driver of library or directory.
+ * Drivers are imported and simulated in parallel, on axis at 1 m, in environment of project.
+ * Results are ranked by F3, so driver selection is a query instead of trying drivers one by one.
+ */
+public final class AlignmentBatch
+{
+    public enum Alignment
+    {
+        Closed, // closed box with Qtc 0.707
+        BB4,
+        QB3,
+        C4
+    }
+    
+    public static final class Result
+    {
+        public final String Path;
+        public final String Name;
+        public final Alignment Alignment;
+        public final double Vb;
+        public final double Fb; // NaN for closed box
+        public final double F3; // frequency below reference band where response falls 3 dB under reference level, NaN if it does not (ranked last)
+        public final double MaxSPL; // lowest max SPL from F3 to end of reference band, limited by Xmax and power (dB)
+        public final double PortVelocity; // highest port air speed at max power (m/s), NaN for closed box
+        
+        private Result(String path, Driver driver, Alignment alignment, double Vb, double Fb, double F3, double maxSPL, double portVelocity)
+        {
+            Path = path;
+            Name = driver.Name != null ? driver.Name : new File(path).getName();
+            Alignment = alignment;
+            this.Vb = Vb;
+            this.Fb = Fb;
+            this.F3 = F3;
+            MaxSPL = maxSPL;
+            PortVelocity = portVelocity;
+        }
+        
+        @Override
+        public String toString()
+        {
+            return Name + " " + Alignment;
+        }
+    }
+    
+    private static final Comparator<Result> RANK = new Comparator<Result>()
+    {
+        @Override
+        public int compare(Result a, Result b)
+        {
+            int c = Double.compare(a.F3, b.F3);
+            return c != 0 ? c : Double.compare(a.Vb, b.Vb);
+        }
+    };
+    
+    // reference band of F3 and max SPL
+    public double Low = 200;
+    public double High = 2000;
+    
+    // port of bass reflex alignments (m)
+    public double PortDiameter = 0.08;
+    public int Ports = 1;
+    
+    private final Project project;
+    private final List<File> files = new ArrayList<File>();
+    private final Map<String, String> errors = new LinkedHashMap<String, String>();
+    
+    public AlignmentBatch(Project project)
+    {
+        this.project = project;
+    }
+    
+    public void add(File file)
+    {
+        files.add(file);
+    }
+    
+    public void add(DriverLibrary.Entry entry)
+    {
+        files.add(new File(entry.Path));
+    }
+    
+    public void add(List<DriverLibrary.Entry> entries)
+    {
+        for (DriverLibrary.Entry entry : entries)
+        {
+            add(entry);
+        }
+    }
+    
+    // driver files of directory and its subdirectories
+    public void addDirectory(File directory)
+    {
+        DriverLibrary.list(directory, files);
+    }
+    
+    public int size()
+    {
+        return files.size();
+    }
+    
+    // files that could not be imported or simulated on last run, with error
+    public Map<String, String> getErrors()
+    {
+        return new LinkedHashMap<String, String>(errors);
+    }
+    
+    private static Driver open(File file) throws IOException
+    {
+        Driver driver = Driver.importFromFile(file);
+        
+        if (driver.Fs <= 0 || driver.Qts <= 0 || driver.Vas <= 0)
+        {
+            throw new HandledException("Driver has no T/S parameters!");
+        }
+        
+        return driver;
+    }
+    
+    private Result simulate(String path, Driver driver, Alignment alignment, double[] freq)
+    {
+        Position driverPos = new Position();
+        Position listeningPos = new Position(1, 0, 0);
+        ISimulation sim;
+        BassReflexSimulation br = null;
+        double Vb;
+        double Fb = Double.NaN;
+        
+        if (alignment == Alignment.Closed)
+        {
+            ClosedBox box = new ClosedBox();
+            ClosedBoxSimulation.calcBox(box, driver);
+            
+            // Qtc of driver in infinite volume is already above 0.707
+            if (!(box.Vb > 0) || Double.isInfinite(box.Vb))
+            {
+                return null;
+            }
+            
+            Vb = box.Vb;
+            sim = new ClosedBoxSimulation(project.Environment, box, driver, new Baffle(), driverPos, driverPos, listeningPos);
+        }
+        else
+        {
+            BassReflex box = new BassReflex();
+            
+            try
+            {
+                switch (alignment)
+                {
+                    case BB4:
+                        BassReflexSimulation.calcBB4(box, driver);
+                        break;
+                    
+                    case QB3:
+                        BassReflexSimulation.calcQB3(box, driver);
+                        break;
+                    
+                    default:
+                        BassReflexSimulation.calcC4(box, driver);
+                        break;
+                }
+            }
+            catch (HandledException ex) // alignment is not possible for this driver
+            {
+                return null;
+            }
+            
+            box.Dv = PortDiameter;
+            box.Np = Ports;
+            Vb = box.Vb;
+            Fb = box.Fb;
+            br = new BassReflexSimulation(project.Environment, box, driver, new Baffle(), driverPos, driverPos, listeningPos);
+            sim = br;
+        }
+        
+        int len = freq.length;
+        double[] re = new double[len];
+        double[] im = new double[len];
+        double[] power = new double[len];
+        sim.response1W(freq, re, im);
+        sim.maxPower(freq, power);
+        
+        int end = ResponseMetrics.band(freq, Low, High)[1];
+        double[] r = new double[len];
+        
+        for (int i = 0; i <= end; i++)
+        {
+            r[i] = Fnc.toDecibels(Math.sqrt(re[i] * re[i] + im[i] * im[i]));
+        }
+        
+        double F3 = ResponseMetrics.f3(freq, r, Low, High);
+        double from = Double.isNaN(F3) ? freq[0] : F3;
+        double maxSPL = Double.MAX_VALUE;
+        double portVelocity = br != null ? 0 : Double.NaN;
+        
+        for (int i = 0; i <= end; i++)
+        {
+            if (freq[i] >= from)
+            {
+                maxSPL = Math.min(maxSPL, r[i] + Fnc.toDecibels(power[i]) / 2);
+            }
+            
+            if (br != null)
+            {
+                portVelocity = Math.max(portVelocity, br.portVelocity(freq[i], PortDiameter, Ports));
+            }
+        }
+        
+        return new Result(path, driver, alignment, Vb, Fb, F3, maxSPL, portVelocity);
+    }
+    
+    private List<Result> simulate(File file, double[] freq) throws IOException
+    {
+        Driver driver = open(file);
+        List<Result> results = new ArrayList<Result>();
+        
+        // closed back drivers are simulated without box
+        if (driver.Closed)
+        {
+            return results;
+        }
+        
+        for (Alignment alignment : Alignment.values())
+        {
+            Result result = simulate(file.getPath(), driver, alignment, freq);
+            
+            if (result != null)
+            {
+                results.add(result);
+            }
+        }
+        
+        return results;
+    }
+    
+    // every possible alignment of every driver, ranked by F3, then by Vb
+    public List<Result> run(int threads) throws InterruptedException
+    {
+        final double[] freq;
+        final SimulationContext context = project.getContext();
+        
+        SimulationContext previous = context.enter();
+        try
+        {
+            project.Settings.Refresh();
+            freq = project.Settings.freq.clone();
+        }
+        finally
+        {
+            SimulationContext.exit(previous);
+        }
+        
+        errors.clear();
+        int count = files.size();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, count)));
+        List<Future<List<Result>>> tasks = new ArrayList<Future<List<Result>>>(count);
+        List<Result> results = new ArrayList<Result>();
+        
+        try
+        {
+            for (final File file : files)
+            {
+                tasks.add(pool.submit(new Callable<List<Result>>()
+                {
+                    @Override
+                    public List<Result> call() throws Exception
+                    {
+                        SimulationContext previous = context.enter();
+                        try
+                        {
+                            return simulate(file, freq);
+                        }
+                        finally
+                        {
+                            SimulationContext.exit(previous);
+                        }
+                    }
+                }));
+            }
+            
+            for (int i = 0; i < count; i++)
+            {
+                try
+                {
+                    results.addAll(tasks.get(i).get());
+                }
+                catch (ExecutionException ex)
+                {
+                    Throwable cause = ex.getCause();
+                    errors.put(files.get(i).getPath(), cause.getMessage() != null ? cause.getMessage() : cause.toString());
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+        
+        Collections.sort(results, RANK);
+        return results;
+    }
+    
+    // one row per result, in given order
+    public static void writeCSV(PrintWriter writer, List<Result> results)
+    {
+        StringBuilder line = new StringBuilder();
+        writer.print("\"Driver\",\"File\",\"Alignment\",\"F3\",\"Vb\",\"Fb\",\"Max SPL\",\"Port velocity\"\r\n");
+        
+        for (Result result : results)
+        {
+            line.setLength(0);
+            line.append(Curves.column(result.Name)).append(",");
+            line.append(Curves.column(result.Path)).append(",");
+            line.append(Curves.column(result.Alignment.name())).append(",");
+            line.append(Curves.number(result.F3)).append(",");
+            line.append(Curves.number(result.Vb)).append(",");
+            line.append(Curves.number(result.Fb)).append(",");
+            line.append(Curves.number(result.MaxSPL)).append(",");
+            line.append(Curves.number(result.PortVelocity));
+            writer.print(line.append("\r\n"));
+        }
+    }
+}
@@ -103,13 +103,7 @@ public class Amplifier extends Filter
         return json;
     }
     
-    private Complex filterZo(double f)
-    {
-        Complex z = super.itemImpedance(f);
-        return z.divide(z.add(Zo));
-    }
-    
-    private Complex activeFilters(double f)
+    Complex activeFilters(double f)
     {
         Complex filters = new Complex(1);
         
@@ -122,15 +116,15 @@ public class Amplifier extends Filter
     }
 
     @Override
-    public Complex thisFilter(double f)
+    protected Complex thisFilter(double f, Complex z)
     {
-        return filterZo(f).multiply(activeFilters(f));
+        return z.divide(z.add(Zo)).multiply(activeFilters(f));
     }
 
     @Override
-    protected Complex itemImpedance(double f)
+    protected Complex thisImpedance(double f, Complex z)
     {
-        return super.itemImpedance(f).add(Zo);
+        return z.add(Zo);
     }
     
     @Override
@@ -139,12 +133,38 @@ public class Amplifier extends Filter
         return Math.min(super.itemMaxPower(f) * Math.pow(activeFilters(f).abs(), 2), Pe);
     }
     
+    @Override
+    protected void itemMaxPower(double[] f, double[] power)
+    {
+        super.itemMaxPower(f, power);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            power[i] = Math.min(power[i] * Math.pow(activeFilters(f[i]).abs(), 2), Pe);
+        }
+    }
+    
     @Override
     protected double itemExcursion(double f, double Pe)
     {
         return super.itemExcursion(f, this.Pe) * filter(f).abs();
     }
     
+    @Override
+    protected void itemExcursion(double[] f, double Pe, double[] excursion)
+    {
+        double[] re = new double[f.length];
+        double[] im = new double[f.length];
+        
+        super.itemExcursion(f, this.Pe, excursion);
+        filter(f, re, im);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            excursion[i] *= Math.hypot(re[i], im[i]);
+        }
+    }
+    
     @Override
     public String toString()
     {
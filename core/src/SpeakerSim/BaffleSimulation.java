@@ -16,12 +16,26 @@
 
 package SpeakerSim;
 
+import java.util.Arrays;
+
 public class BaffleSimulation
 {
+    private static final int COS_STEPS = 4096; // per period
+    private static final double[] COS = new double[COS_STEPS + 1];
+    
+    static
+    {
+        for (int i = 0; i <= COS_STEPS; i++)
+        {
+            COS[i] = Math.cos(2 * Math.PI * i / COS_STEPS);
+        }
+    }
+    
     private final double angle;
     private final boolean enabled;
-    private final double[] mean;
+    private final double[] weight;
     private final double[] length;
+    private final double dipoleFactor;
     private final double averageWavelength;
     private final double edge;
     private final ISource source;
@@ -53,10 +67,11 @@ public class BaffleSimulation
         
         if (baffle == null || !baffle.Enabled)
         {
-            mean = null;
+            weight = null;
             length = null;
             averageWavelength = 0;
             edge = 0;
+            dipoleFactor = 0;
             enabled = baffle == null;
             
             return;
@@ -103,8 +118,8 @@ public class BaffleSimulation
         edges[35] = edgeDistance(80, baffle.Width - baffle.X, baffle.Y); // 350
         
         double[] axis = new double[36];
-        mean = new double[36];
-        length = new double[36];
+        double[] mean = new double[36];
+        double[] length = new double[36];
         
         double horizontal = Math.cos(Math.toRadians(90 - horizontalAngle));
         double vertical = Math.sin(Math.toRadians(verticalAngle));
@@ -122,41 +137,73 @@ public class BaffleSimulation
         }
         averageDifference /= 36;
         
+        double[] weights = new double[36];
+        double[] path = new double[36];
+        int edgeCount = 0;
+        
         for (int i = 0; i < 36; i++)
         {
-            mean[i] = Math.pow((averageDifference - mean[i] + averageDifference + distance) / (averageDifference + distance), 2);
+            // cos(x - pi) = -cos(x), average over edges is folded into weight
+            double w = -Math.pow((averageDifference - mean[i] + averageDifference + distance) / (averageDifference + distance), 2) / 36;
+            
+            // symmetrical edges with same path length are summed
+            int j = 0;
+            while (j < edgeCount && Math.abs(path[j] - length[i]) > Math.abs(length[i]) * 1e-12)
+            {
+                j++;
+            }
+            
+            if (j == edgeCount)
+            {
+                path[edgeCount++] = length[i];
+            }
+            
+            weights[j] += w;
         }
         
+        this.weight = Arrays.copyOf(weights, edgeCount);
+        this.length = Arrays.copyOf(path, edgeCount);
+        
         averageWavelength = Math.pow((distance + averageDifference) / distance, 2);
         edge = (env.SpeedOfSound / 4) / (baffle.EdgeRadius + Double.MIN_VALUE) / 2;
+        dipoleFactor = 1 - Math.sin(Math.toRadians(angle)) * 0.9;
     }
     
-    private Complex offAxis(double f)
+    // cos from table with linear interpolation
+    private static double cos(double x)
     {
-        return source.relativeOffAxis(f, 90, 90, dipole);
+        double u = Math.abs(x) * (COS_STEPS / (2 * Math.PI));
+        long n = (long) u;
+        int i = (int) (n & (COS_STEPS - 1));
+        return COS[i] + (COS[i + 1] - COS[i]) * (u - n);
     }
     
-    private double diffraction(double f)
+    private double edges(double f)
     {
-        if (mean == null)
-        {
-            return 1;
-        }
-        
-        double t = offAxis(f).abs() / Math.sqrt(1 + Math.pow(f / edge, 2));
-        double average = 0;
+        double sum = 0;
         
-        for (int i = 0; i < 36; i++)
+        for (int i = 0; i < length.length; i++)
         {
-            average += mean[i] * Math.cos(f * length[i] - Math.PI) * t;
+            sum += weight[i] * cos(f * length[i]);
         }
-        average /= 36;
         
-        t = (average + averageWavelength) / averageWavelength + 1;
+        return sum;
+    }
+    
+    private Complex offAxis(double f)
+    {
+        return source.relativeOffAxis(f, 90, 90, dipole);
+    }
+    
+    private double diffraction(double f, double offAxis, double edges)
+    {
+        double x = f / edge;
+        double average = edges * offAxis / Math.sqrt(1 + x * x);
+        double t = (average + averageWavelength) / averageWavelength + 1;
         
         if (dipole)
         {
-            return t * (1 - Math.sin(Math.toRadians(angle)) * 0.9);
+            return t * dipoleFactor;
         }
         else
         {
@@ -166,8 +213,54 @@ public class BaffleSimulation
         }
     }
     
+    private double diffraction(double f)
+    {
+        if (weight == null)
+        {
+            return 1;
+        }
+        
+        return diffraction(f, offAxis(f).abs(), edges(f));
+    }
+    
     public Complex response(double f)
     {
         return Complex.toComplex((enabled ? 0.5 * diffraction(f) : 1), 0);
     }
+    
+    public void response(double[] f, double[] re, double[] im)
+    {
+        if (!enabled)
+        {
+            Fnc.fill(re, im, 1);
+        }
+        else if (weight == null)
+        {
+            Fnc.fill(re, im, 0.5);
+        }
+        else
+        {
+            double[] edges = new double[f.length];
+            
+            // whole sweep per edge
+            for (int j = 0; j < length.length; j++)
+            {
+                double w = weight[j];
+                double l = length[j];
+                
+                for (int i = 0; i < f.length; i++)
+                {
+                    edges[i] += w * cos(f[i] * l);
+                }
+            }
+            
+            source.relativeOffAxis(f, 90, 90, dipole, re, im);
+            
+            for (int i = 0; i < f.length; i++)
+            {
+                re[i] = 0.5 * diffraction(f[i], Math.hypot(re[i], im[i]), edges[i]);
+                im[i] = 0;
+            }
+        }
+    }
 }
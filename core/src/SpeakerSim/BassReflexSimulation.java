@@ -16,6 +16,8 @@
 
 package SpeakerSim;
 
+import java.util.Arrays;
+
 public class BassReflexSimulation implements ISimulation
 {
     private final BassReflex box;
@@ -58,18 +60,23 @@ public class BassReflexSimulation implements ISimulation
             double x = Math.PI * f / Environment.getInstance().SpeedOfSound;
             double angle = Math.max(Math.abs(horizontalAngle), Math.abs(verticalAngle));
             
-            x *= Dv;
+            x *= Dv * Directivity.factor(angle, false);
             
-            if (angle > 90)
-            {
-                x *= 1 + Math.sin(Math.toRadians(angle - 90));
-            }
-            else
+            return new Complex(x > 0 ? Directivity.circular(x) : 1);
+        }
+        
+        @Override
+        public void relativeOffAxis(double[] f, double horizontalAngle, double verticalAngle, boolean dipole, double[] re, double[] im)
+        {
+            double angle = Math.max(Math.abs(horizontalAngle), Math.abs(verticalAngle));
+            double k = Math.PI / Environment.getInstance().SpeedOfSound * Dv * Directivity.factor(angle, false);
+            
+            for (int i = 0; i < f.length; i++)
             {
-                x *= Math.sin(Math.toRadians(angle));
+                double x = k * f[i];
+                re[i] = x > 0 ? Directivity.circular(x) : 1;
+                im[i] = 0;
             }
-            
-            return new Complex(x > 0 ? Math.abs(2 * Fnc.besselJ1(x) / x) : 1);
         }
     }
     
@@ -218,6 +225,217 @@ public class BassReflexSimulation implements ISimulation
         return new Complex(0, driver.LeZ(f)).add(Zeb.add(driver.effectiveRe()));
     }
     
+    // total acoustic impedance (z) and parallel box and port impedance (zbp)
+    private void Zat(double[] f, ComplexArray z, ComplexArray zbp)
+    {
+        ComplexArray x = new ComplexArray(f.length);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            double w = 2 * Math.PI * f[i];
+            zbp.set(i, Rab, -1 / (w * Cab));
+            x.set(i, Ral, 0);
+        }
+        
+        zbp.parallel(x);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            double w = 2 * Math.PI * f[i];
+            x.set(i, Rap, w * Map);
+            z.set(i, Ras, w * Mas - 1 / (w * Cas));
+        }
+        
+        zbp.parallel(x);
+        z.add(zbp);
+    }
+    
+    // cone (c) and port (p) volume velocity
+    private void sources(double[] f, ComplexArray c, ComplexArray p)
+    {
+        ComplexArray z = new ComplexArray(f.length);
+        ComplexArray zap = new ComplexArray(f.length);
+        
+        Zat(f, z, p);
+        z.add(Rae);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            double w = 2 * Math.PI * f[i];
+            c.set(i, 0, w * Mas);
+            zap.set(i, Rap, w * Map);
+        }
+        
+        c.divide(z);
+        p.divide(zap);
+        p.multiply(c);
+    }
+    
+    @Override
+    public void response(double[] f, double[] re, double[] im)
+    {
+        ComplexArray c = new ComplexArray(f.length);
+        ComplexArray p = new ComplexArray(f.length);
+        ComplexArray x = new ComplexArray(re, im);
+        
+        sources(f, c, p);
+        distanceCone.response(f, re, im);
+        c.multiply(x);
+        distancePort.response(f, re, im);
+        p.multiply(x);
+        driver.normResponse(f, horizontalAngle, verticalAngle, false, re, im);
+        c.subtract(p);
+        x.multiply(c);
+    }
+    
+    @Override
+    public void response1W(double[] f, double[] re, double[] im)
+    {
+        ComplexArray c = new ComplexArray(f.length);
+        ComplexArray p = new ComplexArray(f.length);
+        ComplexArray x = new ComplexArray(re, im);
+        
+        sources(f, c, p);
+        distanceCone.response(f, re, im);
+        c.multiply(x);
+        distancePort.response(f, re, im);
+        p.multiply(x);
+        driver.normResponse1W(f, re, im);
+        c.subtract(p);
+        x.multiply(c);
+    }
+    
+    @Override
+    public void listeningWindowResponse(double[] f, double[] re, double[] im)
+    {
+        ComplexArray c = new ComplexArray(f.length);
+        ComplexArray p = new ComplexArray(f.length);
+        ComplexArray x = new ComplexArray(re, im);
+        
+        sources(f, c, p);
+        listeningWindowCone.response(f, re, im);
+        c.multiply(x);
+        listeningWindowPort.response(f, re, im);
+        p.multiply(x);
+        driver.normResponse(f, re, im);
+        c.subtract(p);
+        x.multiply(c);
+    }
+    
+    @Override
+    public void powerResponse(double[] f, double[] re, double[] im)
+    {
+        ComplexArray c = new ComplexArray(f.length);
+        ComplexArray p = new ComplexArray(f.length);
+        ComplexArray x = new ComplexArray(re, im);
+        
+        sources(f, c, p);
+        powerResponseCone.response(f, re, im);
+        c.multiply(x);
+        powerResponsePort.response(f, re, im);
+        p.multiply(x);
+        driver.normResponse(f, re, im);
+        c.subtract(p);
+        x.multiply(c);
+    }
+    
+    @Override
+    public void responseWithBaffle(double[] f, double[] re, double[] im)
+    {
+        ComplexArray c = new ComplexArray(f.length);
+        ComplexArray p = new ComplexArray(f.length);
+        ComplexArray x = new ComplexArray(re, im);
+        
+        sources(f, c, p);
+        baffle.response(f, re, im);
+        c.multiply(x);
+        distanceCone.response(f, re, im);
+        c.multiply(x);
+        distancePort.response(f, re, im);
+        p.multiply(x);
+        p.multiply(1.0 / bafflePort);
+        driver.normResponse(f, horizontalAngle, verticalAngle, false, re, im);
+        c.subtract(p);
+        x.multiply(c);
+    }
+    
+    @Override
+    public void responseWithRoom(double[] f, double[] re, double[] im)
+    {
+        ComplexArray c = new ComplexArray(f.length);
+        ComplexArray p = new ComplexArray(f.length);
+        ComplexArray x = new ComplexArray(re, im);
+        
+        sources(f, c, p);
+        roomCone.response(f, re, im);
+        c.multiply(x);
+        distanceCone.response(f, re, im);
+        c.multiply(x);
+        roomPort.response(f, re, im);
+        p.multiply(x);
+        distancePort.response(f, re, im);
+        p.multiply(x);
+        driver.normResponse(f, horizontalAngle, verticalAngle, false, re, im);
+        c.subtract(p);
+        x.multiply(c);
+    }
+    
+    @Override
+    public void excursion(double[] f, double Pe, double[] excursion)
+    {
+        double Sd = driver.effectiveSd();
+        double maxVad = driver.voltage(Math.min(Pe, driver.PeRMS())) * driver.effectiveBl() / (driver.effectiveRe() * Sd);
+        ComplexArray z = new ComplexArray(f.length);
+        
+        Zat(f, z, new ComplexArray(f.length));
+        z.add(Rae);
+        z.abs(excursion);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            excursion[i] = maxVad / excursion[i] / (2 * Math.PI * f[i] * Sd) * 1000;
+        }
+    }
+    
+    @Override
+    public void maxPower(double[] f, double[] power)
+    {
+        double Pe = driver.PeRMS();
+        
+        if (driver.Xmax == 0)
+        {
+            Arrays.fill(power, Pe);
+            return;
+        }
+        
+        excursion(f, Pe, power);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            power[i] = Math.min(Math.pow(driver.Xmax * 1000 / power[i], 2) * Pe, Pe);
+        }
+    }
+    
+    @Override
+    public void impedance(double[] f, double[] re, double[] im)
+    {
+        double Bl = driver.effectiveBl();
+        double Sd = driver.effectiveSd();
+        ComplexArray z = new ComplexArray(re, im);
+        double[] LeZ = new double[f.length];
+        
+        driver.LeZ(f, LeZ);
+        Zat(f, z, new ComplexArray(f.length));
+        z.reciprocal();
+        z.multiply(Bl * Bl / (Sd * Sd));
+        z.add(driver.effectiveRe());
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            im[i] += LeZ[i];
+        }
+    }
+    
     private double Sdp(double Dv, double Np)
     {
         Dv /= 2;
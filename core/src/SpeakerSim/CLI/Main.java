@@ -0,0 +1,258 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim.CLI;
+
+import SpeakerSim.Curves;
+import SpeakerSim.HandledException;
+import SpeakerSim.IItem;
+import SpeakerSim.JSON;
+import SpeakerSim.Project;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Headless batch simulation, writes curves of projects without opening main window.
+ * Files are simulated in parallel, every file on its own thread.
+ */
+public class Main
+{
+    private static final String USAGE =
+        "Usage: java -cp SpeakerSim.jar SpeakerSim.CLI.Main [options] project.ssim ...\n" +
+        "  -o DIR    output directory, default is directory of project\n" +
+        "  -n NAME   simulate items with this name instead of whole project, can be repeated\n" +
+        "  -f LIST   output formats, comma separated: frd,zma,csv (default all)\n" +
+        "  -j N      number of projects simulated in parallel, default number of processors\n";
+    
+    private File output;
+    private final List<String> names = new ArrayList<String>();
+    private final List<String> formats = new ArrayList<String>(Arrays.asList("frd", "zma", "csv"));
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private final List<File> files = new ArrayList<File>();
+    
+    private Main(String[] args)
+    {
+        for (int i = 0; i < args.length; i++)
+        {
+            String arg = args[i];
+            
+            if (arg.startsWith("-") && i + 1 >= args.length)
+            {
+                throw new HandledException("Missing value of " + arg + "!");
+            }
+            
+            switch (arg)
+            {
+                case "-o":
+                    output = new File(args[++i]);
+                    break;
+                case "-n":
+                    names.add(args[++i]);
+                    break;
+                case "-f":
+                    formats.clear();
+                    for (String format : args[++i].toLowerCase().split(","))
+                    {
+                        if (!Arrays.asList("frd", "zma", "csv").contains(format))
+                        {
+                            throw new HandledException("Unsupported output format " + format + "!");
+                        }
+                        formats.add(format);
+                    }
+                    break;
+                case "-j":
+                    threads = Integer.parseInt(args[++i]);
+                    if (threads < 1)
+                    {
+                        throw new HandledException("Number of threads must be positive!");
+                    }
+                    break;
+                default:
+                    if (arg.startsWith("-"))
+                    {
+                        throw new HandledException("Unknown option " + arg + "!");
+                    }
+                    files.add(new File(arg));
+            }
+        }
+        
+        if (files.isEmpty())
+        {
+            throw new HandledException("No project files!");
+        }
+    }
+    
+    private static void find(IItem item, String name, List<IItem> items)
+    {
+        if (name.equals(item.toString()))
+        {
+            items.add(item);
+        }
+        
+        for (IItem child : item.getChildren())
+        {
+            find(child, name, items);
+        }
+    }
+    
+    // file name safe part of item name
+    private static String part(String name)
+    {
+        return name.replaceAll("[^\\w.-]+", "_");
+    }
+    
+    private void write(Curves curves, File dir, String base, String format) throws IOException
+    {
+        if (format.equals("frd") && !curves.hasResponse())
+        {
+            return;
+        }
+        
+        try (PrintWriter writer = new PrintWriter(new File(dir, base + "." + format), "UTF-8"))
+        {
+            switch (format)
+            {
+                case "frd":
+                    curves.writeFRD(writer);
+                    break;
+                case "zma":
+                    curves.writeZMA(writer);
+                    break;
+                default:
+                    curves.writeCSV(writer);
+            }
+        }
+    }
+    
+    private void simulate(File file) throws IOException, InterruptedException
+    {
+        // not opened, so files on other threads don't replace shared instance
+        Project project = Project.copy(JSON.open(file));
+        File dir = output != null ? output : file.getAbsoluteFile().getParentFile();
+        String base = file.getName().replaceFirst("\\.ssim$", "");
+        
+        List<IItem> items = new ArrayList<IItem>();
+        
+        if (names.isEmpty())
+        {
+            items.add(project);
+        }
+        
+        for (String name : names)
+        {
+            int count = items.size();
+            find(project, name, items);
+            
+            if (items.size() == count)
+            {
+                throw new HandledException("Item " + name + " not found!");
+            }
+        }
+        
+        for (IItem item : items)
+        {
+            // whole file runs on this thread, files are parallel
+            Curves curves = Curves.simulate(null, project, item);
+            String name = item == project ? base : base + "-" + part(item.toString());
+            
+            for (String format : formats)
+            {
+                write(curves, dir, name, format);
+            }
+        }
+    }
+    
+    // returns exit code: 0 on success, 1 if any file failed, 2 on invalid arguments
+    public static int run(String[] args, PrintStream out, PrintStream err) throws InterruptedException
+    {
+        final Main main;
+        
+        try
+        {
+            main = new Main(args);
+        }
+        catch (RuntimeException ex)
+        {
+            err.println(ex.getMessage());
+            err.print(USAGE);
+            return 2;
+        }
+        
+        if (main.output != null && !main.output.isDirectory() && !main.output.mkdirs())
+        {
+            err.println("Can't create output directory " + main.output + "!");
+            return 2;
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(main.threads, main.files.size()));
+        List<Future<?>> tasks = new ArrayList<Future<?>>();
+        
+        try
+        {
+            for (final File file : main.files)
+            {
+                tasks.add(pool.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        main.simulate(file);
+                        return null;
+                    }
+                }));
+            }
+            
+            int code = 0;
+            
+            for (int i = 0; i < tasks.size(); i++)
+            {
+                try
+                {
+                    tasks.get(i).get();
+                    out.println(main.files.get(i) + ": OK");
+                }
+                catch (ExecutionException ex)
+                {
+                    Throwable cause = ex.getCause();
+                    err.println(main.files.get(i) + ": " + (cause.getMessage() != null ? cause.getMessage() : cause.toString()));
+                    code = 1;
+                }
+            }
+            
+            return code;
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+    
+    public static void main(String[] args) throws InterruptedException
+    {
+        System.setProperty("java.awt.headless", "true");
+        System.exit(run(args, System.out, System.err));
+    }
+}
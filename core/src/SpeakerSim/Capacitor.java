@@ -47,11 +47,10 @@ public class Capacitor extends Filter
     }
 
     @Override
-    public Complex thisFilter(double f)
+    protected Complex thisFilter(double f, Complex z)
     {
         if (C > 0)
         {
-            Complex z = super.itemImpedance(f);
             return z.divide(z.add(Fnc.zC(C, f)));
         }
 
@@ -59,10 +58,8 @@ public class Capacitor extends Filter
     }
 
     @Override
-    protected Complex itemImpedance(double f)
+    protected Complex thisImpedance(double f, Complex z)
     {
-        Complex z = super.itemImpedance(f);
-
         if (C > 0)
         {
             z = z.add(Fnc.zC(C, f));
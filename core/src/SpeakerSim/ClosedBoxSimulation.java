@@ -16,6 +16,8 @@
 
 package SpeakerSim;
 
+import java.util.Arrays;
+
 public class ClosedBoxSimulation implements ISimulation
 {
     private final Driver driver;
@@ -163,4 +165,168 @@ public class ClosedBoxSimulation implements ISimulation
     {
         return Fnc.toDecibels(box(f).abs());
     }
+    
+    private void Zat(double[] f, ComplexArray z)
+    {
+        ComplexArray zab = new ComplexArray(f.length);
+        ComplexArray x = new ComplexArray(f.length);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            double w = 2 * Math.PI * f[i];
+            z.set(i, Ras, w * Mas - 1 / (w * Cas));
+            zab.set(i, Rab, -1 / (w * Cab));
+            x.set(i, Ral, 0);
+        }
+        
+        zab.parallel(x);
+        z.add(zab);
+    }
+    
+    private void box(double[] f, double[] re, double[] im)
+    {
+        ComplexArray box = new ComplexArray(re, im);
+        ComplexArray z = new ComplexArray(f.length);
+        
+        Zat(f, z);
+        z.add(Rae);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            box.set(i, 0, 2 * Math.PI * f[i] * Mas);
+        }
+        
+        box.divide(z);
+    }
+    
+    @Override
+    public void response(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        driver.normResponse(f, horizontalAngle, verticalAngle, false, re, im);
+        box(f, r, i);
+        Fnc.multiply(re, im, r, i);
+        distance.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void response1W(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        driver.normResponse1W(f, re, im);
+        box(f, r, i);
+        Fnc.multiply(re, im, r, i);
+        distance.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void listeningWindowResponse(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        driver.normResponse(f, re, im);
+        box(f, r, i);
+        Fnc.multiply(re, im, r, i);
+        listeningWindow.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void powerResponse(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        driver.normResponse(f, re, im);
+        box(f, r, i);
+        Fnc.multiply(re, im, r, i);
+        powerResponse.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void responseWithBaffle(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        response(f, re, im);
+        baffle.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void responseWithRoom(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        response(f, re, im);
+        room.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void excursion(double[] f, double Pe, double[] excursion)
+    {
+        double Sd = driver.effectiveSd();
+        double maxVad = driver.voltage(Math.min(Pe, driver.PeRMS())) * driver.effectiveBl() / (driver.effectiveRe() * Sd);
+        
+        ComplexArray z = new ComplexArray(f.length);
+        
+        Zat(f, z);
+        z.add(Rae);
+        z.abs(excursion);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            excursion[i] = maxVad / excursion[i] / (2 * Math.PI * f[i] * Sd) * 1000;
+        }
+    }
+    
+    @Override
+    public void maxPower(double[] f, double[] power)
+    {
+        double Pe = driver.PeRMS();
+        
+        if (driver.Xmax == 0)
+        {
+            Arrays.fill(power, Pe);
+            return;
+        }
+        
+        excursion(f, Pe, power);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            power[i] = Math.min(Math.pow(driver.Xmax * 1000 / power[i], 2) * Pe, Pe);
+        }
+    }
+    
+    @Override
+    public void impedance(double[] f, double[] re, double[] im)
+    {
+        double Bl = driver.effectiveBl();
+        double Sd = driver.effectiveSd();
+        ComplexArray z = new ComplexArray(re, im);
+        double[] LeZ = new double[f.length];
+        
+        driver.LeZ(f, LeZ);
+        Zat(f, z);
+        z.reciprocal();
+        z.multiply(Bl * Bl / (Sd * Sd));
+        z.add(driver.effectiveRe());
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            im[i] += LeZ[i];
+        }
+    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.util.Arrays;
+
+/*
+ * Mutable vector of complex numbers, real and imaginary parts in separate arrays.
+ * All operations are done in place.
+ */
+public final class ComplexArray
+{
+    public final double[] re;
+    public final double[] im;
+    
+    public ComplexArray(int length)
+    {
+        this(new double[length], new double[length]);
+    }
+    
+    public ComplexArray(double[] re, double[] im)
+    {
+        this.re = re;
+        this.im = im;
+    }
+    
+    public int length()
+    {
+        return re.length;
+    }
+    
+    public Complex get(int i)
+    {
+        return new Complex(re[i], im[i]);
+    }
+    
+    public void set(int i, Complex x)
+    {
+        re[i] = x.getReal();
+        im[i] = x.getImaginary();
+    }
+    
+    public void set(int i, double real, double imag)
+    {
+        re[i] = real;
+        im[i] = imag;
+    }
+    
+    public void fill(double x)
+    {
+        Arrays.fill(re, x);
+        Arrays.fill(im, 0);
+    }
+    
+    public void fill(Complex x)
+    {
+        Arrays.fill(re, x.getReal());
+        Arrays.fill(im, x.getImaginary());
+    }
+    
+    public void copy(ComplexArray x)
+    {
+        System.arraycopy(x.re, 0, re, 0, re.length);
+        System.arraycopy(x.im, 0, im, 0, im.length);
+    }
+    
+    public void add(ComplexArray x)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            re[i] += x.re[i];
+            im[i] += x.im[i];
+        }
+    }
+    
+    public void add(double x)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            re[i] += x;
+        }
+    }
+    
+    public void subtract(ComplexArray x)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            re[i] -= x.re[i];
+            im[i] -= x.im[i];
+        }
+    }
+    
+    public void multiply(ComplexArray x)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            double r = re[i] * x.re[i] - im[i] * x.im[i];
+            im[i] = re[i] * x.im[i] + im[i] * x.re[i];
+            re[i] = r;
+        }
+    }
+    
+    public void multiply(double x)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            re[i] *= x;
+            im[i] *= x;
+        }
+    }
+    
+    public void divide(ComplexArray x)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            double scale = x.re[i] * x.re[i] + x.im[i] * x.im[i];
+            double r = (re[i] * x.re[i] + im[i] * x.im[i]) / scale;
+            im[i] = (im[i] * x.re[i] - re[i] * x.im[i]) / scale;
+            re[i] = r;
+        }
+    }
+    
+    public void reciprocal()
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            double scale = re[i] * re[i] + im[i] * im[i];
+            re[i] /= scale;
+            im[i] /= -scale;
+        }
+    }
+    
+    // this = this * x / (this + x)
+    public void parallel(ComplexArray x)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            double pr = re[i] * x.re[i] - im[i] * x.im[i];
+            double pi = re[i] * x.im[i] + im[i] * x.re[i];
+            double sr = re[i] + x.re[i];
+            double si = im[i] + x.im[i];
+            double scale = sr * sr + si * si;
+            re[i] = (pr * sr + pi * si) / scale;
+            im[i] = (pi * sr - pr * si) / scale;
+        }
+    }
+    
+    // this = this * a + x * b
+    public void mix(ComplexArray a, ComplexArray x, ComplexArray b)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            double r = re[i] * a.re[i] - im[i] * a.im[i] + x.re[i] * b.re[i] - x.im[i] * b.im[i];
+            im[i] = re[i] * a.im[i] + im[i] * a.re[i] + x.re[i] * b.im[i] + x.im[i] * b.re[i];
+            re[i] = r;
+        }
+    }
+    
+    // a = a / (a + b), b = b / (a + b)
+    public static void dividers(ComplexArray a, ComplexArray b)
+    {
+        for (int i = 0; i < a.re.length; i++)
+        {
+            double sr = a.re[i] + b.re[i];
+            double si = a.im[i] + b.im[i];
+            double scale = sr * sr + si * si;
+            double ar = (a.re[i] * sr + a.im[i] * si) / scale;
+            double ai = (a.im[i] * sr - a.re[i] * si) / scale;
+            double br = (b.re[i] * sr + b.im[i] * si) / scale;
+            double bi = (b.im[i] * sr - b.re[i] * si) / scale;
+            a.re[i] = ar;
+            a.im[i] = ai;
+            b.re[i] = br;
+            b.im[i] = bi;
+        }
+    }
+    
+    public void abs(double[] x)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            x[i] = Math.hypot(re[i], im[i]);
+        }
+    }
+}
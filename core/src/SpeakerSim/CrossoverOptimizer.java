@@ -0,0 +1,520 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package SpeakerSim;
+
+import com.eclipsesource.json.Json;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Fits component values to target responses of branches with Nelder-Mead simplex.
+ * Values are optimized on logarithmic scale, so they stay positive.
+ * Candidates of each step are simulated in parallel, every one on its own copy of project.
+ * Result is snapped to standard series and refined by stepping to neighbouring values.
+ */
+public final class CrossoverOptimizer
+{
+    public static final double[] E12 = {1.0, 1.2, 1.5, 1.8, 2.2, 2.7, 3.3, 3.9, 4.7, 5.6, 6.8, 8.2};
+    public static final double[] E24 = {1.0, 1.1, 1.2, 1.3, 1.5, 1.6, 1.8, 2.0, 2.2, 2.4, 2.7, 3.0, 3.3, 3.6, 3.9, 4.3, 4.7, 5.1, 5.6, 6.2, 6.8, 7.5, 8.2, 9.1};
+    
+    private static final double STEP = Math.log(1.25); // initial simplex
+    private static final double PENALTY = 100; // dB error of missing response
+    
+    private static final class Target
+    {
+        private final int[] path;
+        private final double[] response;
+        private final double[] weights;
+        
+        private Target(int[] path, double[] response, double[] weights)
+        {
+            this.path = path;
+            this.response = response;
+            this.weights = weights;
+        }
+    }
+    
+    public static final class Result
+    {
+        public final double[] Values;
+        public final double Error; // weighted RMS error (dB)
+        public final double[] Snapped;
+        public final double SnappedError;
+        public final int Evaluations;
+        
+        private Result(double[] values, double error, double[] snapped, double snappedError, int evaluations)
+        {
+            Values = values;
+            Error = error;
+            Snapped = snapped;
+            SnappedError = snappedError;
+            Evaluations = evaluations;
+        }
+    }
+    
+    public int MaxEvaluations = 2000;
+    public double Tolerance = 0.001; // dB between best and worst vertex
+    public double[] Series = E24; // null for exact values
+    
+    private final Project project;
+    private final List<ItemField> variables = new ArrayList<ItemField>();
+    private final List<Target> targets = new ArrayList<Target>();
+    
+    private ExecutorService pool;
+    private String json;
+    private int evaluations;
+    
+    public CrossoverOptimizer(Project project)
+    {
+        this.project = project;
+    }
+    
+    public void addVariable(IItem item, String field)
+    {
+        ItemField variable = new ItemField(project, item, field);
+        
+        if (!(variable.get(project) > 0))
+        {
+            throw new HandledException(variable + " must be positive!");
+        }
+        
+        variables.add(variable);
+    }
+    
+    // response of branch in dB at Settings.freq, weights can be null
+    public void addTarget(IItem branch, double[] response, double[] weights)
+    {
+        int points = project.Settings.freq.length;
+        
+        if (response.length != points || (weights != null && weights.length != points))
+        {
+            throw new HandledException("Target must have " + points + " points!");
+        }
+        
+        if (weights == null)
+        {
+            weights = new double[points];
+            Arrays.fill(weights, 1);
+        }
+        
+        targets.add(new Target(ItemField.path(project, branch), response, weights));
+    }
+    
+    // Linkwitz-Riley slope of even order at crossover frequency f0
+    public static double[] linkwitzRiley(double[] freq, double level, double f0, int order, boolean highPass)
+    {
+        if (order < 2 || order % 2 != 0)
+        {
+            throw new HandledException("Linkwitz-Riley order must be even!");
+        }
+        
+        double[] x = new double[freq.length];
+        
+        // square of Butterworth of half order
+        for (int i = 0; i < freq.length; i++)
+        {
+            double r = Math.pow(highPass ? f0 / freq[i] : freq[i] / f0, order);
+            x[i] = level - Fnc.toDecibels(1 + r);
+        }
+        
+        return x;
+    }
+    
+    // weights 1 inside band, 0 outside
+    public static double[] band(double[] freq, double low, double high)
+    {
+        double[] w = new double[freq.length];
+        
+        for (int i = 0; i < freq.length; i++)
+        {
+            w[i] = freq[i] >= low && freq[i] <= high ? 1 : 0;
+        }
+        
+        return w;
+    }
+    
+    private static int nearest(double m, double[] series)
+    {
+        int best = 0;
+        
+        for (int i = 1; i < series.length; i++)
+        {
+            if (Math.abs(Math.log(series[i] / m)) < Math.abs(Math.log(series[best] / m)))
+            {
+                best = i;
+            }
+        }
+        
+        return best;
+    }
+    
+    // value of series nearest to value, steps are counted from it
+    public static double snap(double value, double[] series, int steps)
+    {
+        if (!(value > 0))
+        {
+            return value;
+        }
+        
+        int exponent = (int) Math.floor(Math.log10(value));
+        double m = value / Math.pow(10, exponent);
+        int i = nearest(m, series);
+        
+        // 9.6 is nearer to 10 than to 9.1
+        if (Math.abs(Math.log(10 / m)) < Math.abs(Math.log(series[i] / m)))
+        {
+            i = 0;
+            exponent++;
+        }
+        
+        i += steps;
+        exponent += Math.floorDiv(i, series.length);
+        i = Math.floorMod(i, series.length);
+        
+        // round away error of power of 10
+        return Double.parseDouble(series[i] + "E" + exponent);
+    }
+    
+    public static double snap(double value, double[] series)
+    {
+        return snap(value, series, 0);
+    }
+    
+    private double error(Project copy) throws InterruptedException
+    {
+        double sum = 0;
+        double weights = 0;
+        
+        for (Target target : targets)
+        {
+            double[] response = Curves.simulate(null, copy, ItemField.getItem(copy, target.path)).Response;
+            
+            for (int i = 0; i < response.length; i++)
+            {
+                double w = target.weights[i];
+                
+                if (w > 0)
+                {
+                    double e = Double.isFinite(response[i]) ? response[i] - target.response[i] : PENALTY;
+                    sum += w * e * e;
+                    weights += w;
+                }
+            }
+        }
+        
+        return weights > 0 ? Math.sqrt(sum / weights) : 0;
+    }
+    
+    private double error(double[] values) throws InterruptedException
+    {
+        Project copy = Project.copy(Json.parse(json));
+        
+        for (int j = 0; j < values.length; j++)
+        {
+            variables.get(j).set(copy, values[j]);
+        }
+        
+        return error(copy);
+    }
+    
+    // errors of values, simulated in parallel
+    private double[] evaluate(List<double[]> values) throws InterruptedException
+    {
+        List<Future<Double>> tasks = new ArrayList<Future<Double>>();
+        
+        for (final double[] v : values)
+        {
+            tasks.add(pool.submit(new Callable<Double>()
+            {
+                @Override
+                public Double call() throws Exception
+                {
+                    return error(v);
+                }
+            }));
+        }
+        
+        evaluations += values.size();
+        double[] errors = new double[values.size()];
+        
+        for (int i = 0; i < errors.length; i++)
+        {
+            try
+            {
+                errors[i] = tasks.get(i).get();
+            }
+            catch (ExecutionException ex)
+            {
+                // invalid combination
+                errors[i] = Double.MAX_VALUE;
+            }
+        }
+        
+        return errors;
+    }
+    
+    private static double[] exp(double[] x)
+    {
+        double[] v = new double[x.length];
+        
+        for (int j = 0; j < x.length; j++)
+        {
+            v[j] = Math.exp(x[j]);
+        }
+        
+        return v;
+    }
+    
+    // a + t * (b - a)
+    private static double[] move(double[] a, double[] b, double t)
+    {
+        double[] x = new double[a.length];
+        
+        for (int j = 0; j < a.length; j++)
+        {
+            x[j] = a[j] + t * (b[j] - a[j]);
+        }
+        
+        return x;
+    }
+    
+    private double[] simplex(double[][] x, double[] f) throws InterruptedException
+    {
+        int n = x.length - 1;
+        Integer[] order = new Integer[n + 1];
+        
+        while (evaluations < MaxEvaluations)
+        {
+            for (int i = 0; i <= n; i++)
+            {
+                order[i] = i;
+            }
+            
+            final double[] errors = f;
+            Arrays.sort(order, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer a, Integer b)
+                {
+                    return Double.compare(errors[a], errors[b]);
+                }
+            });
+            
+            double[][] sx = new double[n + 1][];
+            double[] sf = new double[n + 1];
+            for (int i = 0; i <= n; i++)
+            {
+                sx[i] = x[order[i]];
+                sf[i] = f[order[i]];
+            }
+            x = sx;
+            f = sf;
+            
+            if (f[n] - f[0] < Tolerance)
+            {
+                break;
+            }
+            
+            double[] c = new double[n];
+            for (int i = 0; i < n; i++)
+            {
+                for (int j = 0; j < n; j++)
+                {
+                    c[j] += x[i][j] / n;
+                }
+            }
+            
+            // reflection, expansion and both contractions at once
+            double[] r = move(c, x[n], -1);
+            double[] e = move(c, x[n], -2);
+            double[] oc = move(c, x[n], -0.5);
+            double[] ic = move(c, x[n], 0.5);
+            
+            List<double[]> candidates = new ArrayList<double[]>();
+            for (double[] p : new double[][] { r, e, oc, ic })
+            {
+                candidates.add(exp(p));
+            }
+            double[] fc = evaluate(candidates);
+            
+            if (fc[0] < f[0])
+            {
+                x[n] = fc[1] < fc[0] ? e : r;
+                f[n] = Math.min(fc[0], fc[1]);
+            }
+            else if (fc[0] < f[n - 1])
+            {
+                x[n] = r;
+                f[n] = fc[0];
+            }
+            else if (fc[0] < f[n] && fc[2] <= fc[0])
+            {
+                x[n] = oc;
+                f[n] = fc[2];
+            }
+            else if (fc[0] >= f[n] && fc[3] < f[n])
+            {
+                x[n] = ic;
+                f[n] = fc[3];
+            }
+            else
+            {
+                // shrink towards best
+                List<double[]> shrunk = new ArrayList<double[]>();
+                for (int i = 1; i <= n; i++)
+                {
+                    x[i] = move(x[0], x[i], 0.5);
+                    shrunk.add(exp(x[i]));
+                }
+                
+                double[] fs = evaluate(shrunk);
+                for (int i = 1; i <= n; i++)
+                {
+                    f[i] = fs[i - 1];
+                }
+            }
+        }
+        
+        int best = 0;
+        for (int i = 1; i <= n; i++)
+        {
+            if (f[i] < f[best])
+            {
+                best = i;
+            }
+        }
+        
+        return x[best];
+    }
+    
+    // greedy search over neighbouring values of series
+    private double refine(double[] values, double error) throws InterruptedException
+    {
+        while (evaluations < MaxEvaluations)
+        {
+            List<double[]> candidates = new ArrayList<double[]>();
+            
+            for (int j = 0; j < values.length; j++)
+            {
+                for (int step = -1; step <= 1; step += 2)
+                {
+                    double[] v = values.clone();
+                    v[j] = snap(v[j], Series, step);
+                    candidates.add(v);
+                }
+            }
+            
+            double[] errors = evaluate(candidates);
+            int best = -1;
+            
+            for (int i = 0; i < errors.length; i++)
+            {
+                if (errors[i] < error && (best < 0 || errors[i] < errors[best]))
+                {
+                    best = i;
+                }
+            }
+            
+            if (best < 0)
+            {
+                break;
+            }
+            
+            System.arraycopy(candidates.get(best), 0, values, 0, values.length);
+            error = errors[best];
+        }
+        
+        return error;
+    }
+    
+    public Result optimize(int threads) throws InterruptedException
+    {
+        if (variables.isEmpty() || targets.isEmpty())
+        {
+            throw new HandledException("Nothing to optimize!");
+        }
+        
+        SimulationContext previous = project.getContext().enter();
+        try
+        {
+            json = project.toJSON().toString();
+        }
+        finally
+        {
+            SimulationContext.exit(previous);
+        }
+        
+        int n = variables.size();
+        pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, 4 * n)));
+        evaluations = 0;
+        
+        try
+        {
+            double[][] x = new double[n + 1][n];
+            List<double[]> vertices = new ArrayList<double[]>();
+            
+            for (int i = 0; i <= n; i++)
+            {
+                for (int j = 0; j < n; j++)
+                {
+                    x[i][j] = Math.log(variables.get(j).get(project)) + (i == j + 1 ? STEP : 0);
+                }
+                vertices.add(exp(x[i]));
+            }
+            
+            double[] values = exp(simplex(x, evaluate(vertices)));
+            double error = evaluate(Arrays.asList(values))[0];
+            double[] snapped = values.clone();
+            double snappedError = error;
+            
+            if (Series != null)
+            {
+                for (int j = 0; j < n; j++)
+                {
+                    snapped[j] = snap(values[j], Series);
+                }
+                
+                snappedError = refine(snapped, evaluate(Arrays.asList(snapped))[0]);
+            }
+            
+            return new Result(values, error, snapped, snappedError, evaluations);
+        }
+        finally
+        {
+            pool.shutdownNow();
+            pool = null;
+            json = null;
+        }
+    }
+    
+    // sets values to project
+    public void apply(double[] values)
+    {
+        for (int j = 0; j < values.length; j++)
+        {
+            variables.get(j).set(project, values[j]);
+        }
+        
+        project.setModified();
+    }
+}
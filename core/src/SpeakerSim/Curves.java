@@ -0,0 +1,432 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Curves shown for selected item: system, item and its subitems, in dB and degrees, smoothed.
+ * Items without speakers have only impedance.
+ */
+public final class Curves
+{
+    public final double[] Frequencies;
+    public final double[] SystemResponse;
+    public final double[] Response;
+    public final double[] ResponsePhase;
+    public final double[] Impedance;
+    public final double[] ImpedancePhase;
+    public final double[] Filter;
+    public final double[] ListeningWindow;
+    public final double[] Power;
+    public final double[] Directivity;
+    public final double[] MaxSPL;
+    public final double[] MaxPower;
+    public final double[] Excursion;
+    public final double[] GroupDelay;
+    public final double[] Baffle;
+    public final double[] Room;
+    public final double[][] Responses;
+    public final double[][] Phases;
+    public final double[][] Filters;
+    public final double[][] Excursions;
+    
+    private final String[] names;
+    private final boolean speakers;
+    
+    private Curves(double[] freq, List<IItem> subitems, boolean speakers)
+    {
+        int len = freq.length;
+        int count = subitems.size();
+        Frequencies = freq;
+        SystemResponse = new double[len];
+        Response = new double[len];
+        ResponsePhase = new double[len];
+        Impedance = new double[len];
+        ImpedancePhase = new double[len];
+        Filter = new double[len];
+        ListeningWindow = new double[len];
+        Power = new double[len];
+        Directivity = new double[len];
+        MaxSPL = new double[len];
+        MaxPower = new double[len];
+        Excursion = new double[len];
+        GroupDelay = new double[len];
+        Baffle = new double[len];
+        Room = new double[len];
+        Responses = new double[count][len];
+        Phases = new double[count][len];
+        Filters = new double[count][len];
+        Excursions = new double[count][len];
+        
+        names = new String[count];
+        for (int j = 0; j < count; j++)
+        {
+            names[j] = subitems.get(j).toString();
+        }
+        
+        this.speakers = speakers;
+    }
+    
+    // speakers in subtree of item
+    public static List<Speaker> speakers(IItem item)
+    {
+        List<Speaker> speakers = new ArrayList<Speaker>();
+        
+        for (IItem child : item.getChildren())
+        {
+            speakers.addAll(speakers(child));
+        }
+        
+        if (item instanceof Speaker)
+        {
+            speakers.add((Speaker) item);
+        }
+        
+        return speakers;
+    }
+    
+    // sets center position of project to center of speakers, returns delay of nearest speaker
+    public static double center(Project project, List<Speaker> speakers)
+    {
+        project.CenterPosition = new Position(0, 0, 0);
+        double min_distance = Double.MAX_VALUE;
+        
+        for (Speaker speaker : speakers)
+        {
+            project.CenterPosition = project.CenterPosition.add(speaker.Position);
+            
+            double distance = speaker.Position.distance(project.ListeningPosition);
+            if (distance < min_distance)
+            {
+                min_distance = distance;
+            }
+        }
+        project.CenterPosition = project.CenterPosition.divide(speakers.size());
+        
+        return min_distance / project.Environment.SpeedOfSound;
+    }
+    
+    // items evaluated for curves of item: system, item and subitems
+    public static IItem[] items(Project project, IItem item)
+    {
+        List<IItem> subitems = item.getChildren();
+        IItem[] items = new IItem[subitems.size() + 2];
+        items[0] = project;
+        items[1] = item;
+        
+        for (int j = 0; j < subitems.size(); j++)
+        {
+            items[j + 2] = subitems.get(j);
+        }
+        
+        return items;
+    }
+    
+    private static void totalResponse(EvaluationPlan.Result result, double[] re, double[] im, double[] baffleRe, double[] baffleIm, double[] roomRe, double[] roomIm)
+    {
+        ComplexArray total = new ComplexArray(re, im);
+        ComplexArray baffle = new ComplexArray(baffleRe, baffleIm);
+        ComplexArray room = new ComplexArray(roomRe, roomIm);
+        
+        total.copy(result.Response);
+        
+        if (Settings.getInstance().BaffleSimulation)
+        {
+            baffle.copy(result.ResponseWithBaffle);
+            baffle.divide(total);
+        }
+        else
+        {
+            baffle.fill(1);
+        }
+        
+        if (Settings.getInstance().RoomSimulation)
+        {
+            room.copy(result.ResponseWithRoom);
+            room.divide(total);
+        }
+        else
+        {
+            room.fill(1);
+        }
+        
+        total.multiply(baffle);
+        total.multiply(room);
+    }
+    
+    // results are of items(project, item) at freq, without pool everything runs on current thread
+    public static Curves simulate(ForkJoinPool pool, EvaluationPlan.Result[] results, double[] freq, IItem item, double delay) throws InterruptedException
+    {
+        List<IItem> subitems = item.getChildren();
+        Curves c = new Curves(freq, subitems, true);
+        EvaluationPlan.Result result = results[1];
+        
+        double[] re = new double[freq.length];
+        double[] im = new double[freq.length];
+        double[] baffleRe = new double[freq.length];
+        double[] baffleIm = new double[freq.length];
+        double[] roomRe = new double[freq.length];
+        double[] roomIm = new double[freq.length];
+        
+        totalResponse(results[0], re, im, baffleRe, baffleIm, roomRe, roomIm);
+        
+        for (int i = 0; i < freq.length; i++)
+        {
+            c.SystemResponse[i] = Fnc.toDecibels(Math.hypot(re[i], im[i]));
+        }
+        
+        if (!(item instanceof Project))
+        {
+            totalResponse(result, re, im, baffleRe, baffleIm, roomRe, roomIm);
+        }
+        
+        for (int i = 0; i < freq.length; i++)
+        {
+            c.Response[i] = Fnc.toDecibels(Math.hypot(re[i], im[i]));
+            c.ResponsePhase[i] = Math.atan2(im[i], re[i]);
+            c.Baffle[i] = Fnc.toDecibels(Math.hypot(baffleRe[i], baffleIm[i]));
+            c.Room[i] = Fnc.toDecibels(Math.hypot(roomRe[i], roomIm[i]));
+        }
+        
+        System.arraycopy(result.MaxPower, 0, c.MaxPower, 0, freq.length);
+        new ComplexArray(re, im).copy(result.Response1W);
+        Fnc.multiply(re, im, baffleRe, baffleIm);
+        Fnc.multiply(re, im, roomRe, roomIm);
+        
+        for (int i = 0; i < freq.length; i++)
+        {
+            c.MaxSPL[i] = Fnc.toDecibels(Math.hypot(re[i], im[i])) + Fnc.powerToDecibels(c.MaxPower[i]);
+            c.Filter[i] = Fnc.toDecibels(Math.hypot(result.Filter.re[i], result.Filter.im[i]));
+            c.ListeningWindow[i] = Fnc.toDecibels(Math.hypot(result.ListeningWindowResponse.re[i], result.ListeningWindowResponse.im[i]));
+            c.Power[i] = Fnc.toDecibels(Math.hypot(result.PowerResponse.re[i], result.PowerResponse.im[i]));
+            c.Directivity[i] = c.ListeningWindow[i] - c.Power[i];
+            c.Impedance[i] = Math.hypot(result.Impedance.re[i], result.Impedance.im[i]);
+            c.ImpedancePhase[i] = Math.atan2(result.Impedance.im[i], result.Impedance.re[i]);
+        }
+        
+        System.arraycopy(result.Excursion, 0, c.Excursion, 0, freq.length);
+        
+        for (int j = 0; j < subitems.size(); j++)
+        {
+            if (Thread.currentThread().isInterrupted())
+            {
+                throw new InterruptedException();
+            }
+            
+            totalResponse(results[j + 2], re, im, baffleRe, baffleIm, roomRe, roomIm);
+            
+            for (int i = 0; i < freq.length; i++)
+            {
+                c.Responses[j][i] = Fnc.toDecibels(Math.hypot(re[i], im[i]));
+                c.Phases[j][i] = Math.atan2(im[i], re[i]);
+                c.Filters[j][i] = Fnc.toDecibels(Math.hypot(results[j + 2].Filter.re[i], results[j + 2].Filter.im[i]));
+            }
+            
+            System.arraycopy(results[j + 2].Excursion, 0, c.Excursions[j], 0, freq.length);
+        }
+        
+        // remove distance delay from phase to get minimum phase
+        // convert to degress
+        for (int i = 0; i < freq.length; i++)
+        {
+            Complex d = Complex.toComplex(1, 2 * Math.PI * freq[i] * delay);
+            c.ResponsePhase[i] = Math.toDegrees(Complex.toComplex(1, c.ResponsePhase[i]).multiply(d).phase());
+            
+            for (int j = 0; j < subitems.size(); j++)
+            {
+                c.Phases[j][i] = Math.toDegrees(Complex.toComplex(1, c.Phases[j][i]).multiply(d).phase());
+            }
+        }
+        
+        // calculate group delay
+        Fnc.calcGroupDelay(freq, c.ResponsePhase, c.GroupDelay);
+        
+        // smoothing
+        if (Settings.getInstance().Smoothing > 0)
+        {
+            Smoothing smoothing = new Smoothing(freq, Settings.getInstance().Smoothing);
+            List<double[]> curves = new ArrayList<double[]>();
+            
+            curves.addAll(Arrays.asList(c.SystemResponse, c.Response, c.Filter, c.ListeningWindow, c.Power, c.Directivity, c.MaxSPL, c.MaxPower, c.GroupDelay, c.Baffle, c.Room));
+            //Fnc.unwrapPhase(c.ResponsePhase);
+            //curves.add(c.ResponsePhase);
+            
+            for (int j = 0; j < subitems.size(); j++)
+            {
+                curves.add(c.Responses[j]);
+                curves.add(c.Filters[j]);
+                curves.add(c.Excursions[j]);
+                //Fnc.unwrapPhase(c.Phases[j]);
+                //curves.add(c.Phases[j]);
+            }
+            
+            if (pool != null)
+            {
+                smoothing.smooth(pool, curves);
+            }
+            else
+            {
+                for (double[] x : curves)
+                {
+                    smoothing.smooth(x);
+                }
+            }
+        }
+        
+        return c;
+    }
+    
+    // item without speakers
+    public static Curves impedance(EvaluationPlan plan, double[] freq, IItem item)
+    {
+        Curves c = new Curves(freq, new ArrayList<IItem>(), false);
+        double[] re = new double[freq.length];
+        double[] im = new double[freq.length];
+        
+        plan.impedance(item, freq, re, im);
+        
+        for (int i = 0; i < freq.length; i++)
+        {
+            c.Impedance[i] = Math.hypot(re[i], im[i]);
+            c.ImpedancePhase[i] = Math.atan2(im[i], re[i]);
+        }
+        
+        return c;
+    }
+    
+    // same as selecting item in main window, project is refreshed
+    public static Curves simulate(ForkJoinPool pool, Project project, IItem item) throws InterruptedException
+    {
+        SimulationContext previous = project.getContext().enter();
+        
+        try
+        {
+            List<Speaker> speakers = speakers(item);
+            double delay = center(project, speakers);
+            double[] freq = project.Settings.freq;
+            
+            project.refresh();
+            EvaluationPlan plan = project.getPlan();
+            
+            if (speakers.isEmpty())
+            {
+                return impedance(plan, freq, item);
+            }
+            
+            IItem[] items = items(project, item);
+            EvaluationPlan.Result[] results = pool != null ? plan.evaluate(pool, freq, Double.MAX_VALUE, items) : plan.evaluate(freq, Double.MAX_VALUE, items);
+            
+            return simulate(pool, results, freq, item, delay);
+        }
+        finally
+        {
+            SimulationContext.exit(previous);
+        }
+    }
+    
+    public boolean hasResponse()
+    {
+        return speakers;
+    }
+    
+    private static void write(PrintWriter writer, double[] freq, double[] amplitude, double[] phase)
+    {
+        for (int i = 0; i < freq.length; i++)
+        {
+            double a = amplitude[i];
+            double p = phase[i];
+            
+            if (Double.isFinite(a) && Double.isFinite(p))
+            {
+                writer.print(new ResponseEntry(freq[i], a, p).toString());
+            }
+        }
+    }
+    
+    public void writeFRD(PrintWriter writer)
+    {
+        write(writer, Frequencies, Response, ResponsePhase);
+    }
+    
+    public void writeZMA(PrintWriter writer)
+    {
+        write(writer, Frequencies, Impedance, ImpedancePhase);
+    }
+    
+    static String column(String name)
+    {
+        return "\"" + name.replace("\"", "\"\"") + "\"";
+    }
+    
+    // empty cell for missing values
+    static String number(double x)
+    {
+        return Double.isFinite(x) ? String.format(Locale.US, "%s", x) : "";
+    }
+    
+    // all curves, one row per frequency
+    public void writeCSV(PrintWriter writer)
+    {
+        List<String> header = new ArrayList<String>();
+        List<double[]> columns = new ArrayList<double[]>();
+        
+        header.add("Frequency");
+        columns.add(Frequencies);
+        
+        if (speakers)
+        {
+            header.addAll(Arrays.asList("System", "Response", "Phase", "Filter", "Listening window", "Power response", "Directivity", "Max SPL", "Max power", "Excursion", "Group delay", "Baffle", "Room"));
+            columns.addAll(Arrays.asList(SystemResponse, Response, ResponsePhase, Filter, ListeningWindow, Power, Directivity, MaxSPL, MaxPower, Excursion, GroupDelay, Baffle, Room));
+        }
+        
+        header.addAll(Arrays.asList("Impedance", "Impedance phase"));
+        columns.addAll(Arrays.asList(Impedance, ImpedancePhase));
+        
+        for (int j = 0; j < names.length; j++)
+        {
+            header.addAll(Arrays.asList(names[j] + " response", names[j] + " phase", names[j] + " filter", names[j] + " excursion"));
+            columns.addAll(Arrays.asList(Responses[j], Phases[j], Filters[j], Excursions[j]));
+        }
+        
+        StringBuilder line = new StringBuilder();
+        
+        for (String name : header)
+        {
+            line.append(line.length() > 0 ? "," : "").append(column(name));
+        }
+        
+        writer.print(line.append("\r\n"));
+        
+        for (int i = 0; i < Frequencies.length; i++)
+        {
+            line.setLength(0);
+            
+            for (double[] x : columns)
+            {
+                line.append(line.length() > 0 ? "," : "").append(number(x[i]));
+            }
+            
+            writer.print(line.append("\r\n"));
+        }
+    }
+}
@@ -23,30 +23,24 @@ public class CustomImpedance extends Filter
 {
     public ResponseEntry[] ZMA;
     
-    private Complex z(double f)
+    private volatile ResampledData table;
+    
+    // ZMA is resampled to frequency grid on first use after ZMA or grid change
+    private ResampledData table()
     {
-        ResponseEntry prev = ZMA[0];
-
-        // no lower value
-        if (prev.frequency > f)
-        {
-            return Complex.toComplex(prev.amplitude, Math.toRadians(prev.phase));
-        }
-
-        for (ResponseEntry entry : ZMA)
-        {
-            if (entry.frequency >= f)
-            {
-                double amplitude = Fnc.interpolate(prev.frequency, prev.amplitude, entry.frequency, entry.amplitude, f);
-                double phase = Fnc.interpolate(prev.frequency, prev.phase, entry.frequency, entry.phase, f);
-                return Complex.toComplex(amplitude, Math.toRadians(phase));
-            }
-
-            prev = entry;
-        }
-
-        // no higher value
-        return Complex.toComplex(prev.amplitude, Math.toRadians(prev.phase));
+        ResampledData t = ResampledData.of(table, ZMA, false, null);
+        table = t;
+        return t;
+    }
+    
+    Complex z(double f)
+    {
+        return table().get(f);
+    }
+    
+    void z(double[] f, double[] re, double[] im)
+    {
+        table().get(f, re, im);
     }
     
     public void importZMA(File file) throws IOException
@@ -96,16 +90,15 @@ public class CustomImpedance extends Filter
     }
 
     @Override
-    public Complex thisFilter(double f)
+    protected Complex thisFilter(double f, Complex z)
     {
-        Complex z = super.itemImpedance(f);
         return z.divide(z.add(z(f)));
     }
 
     @Override
-    protected Complex itemImpedance(double f)
+    protected Complex thisImpedance(double f, Complex z)
     {
-        return super.itemImpedance(f).add(z(f));
+        return z.add(z(f));
     }
     
     @Override
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+/*
+ * Tabulated piston directivity, shared by all sources.
+ * Argument is ka * sin(angle), values are linearly interpolated.
+ */
+public final class Directivity
+{
+    private static final int STEPS = 64; // per unit of argument
+    private static final double MAX = 256;
+    private static final double[] CIRCULAR = new double[(int) MAX * STEPS + 2];
+    private static final double[] SINC = new double[CIRCULAR.length];
+    private static final double[] FACTOR = new double[181];
+    private static final double[] DIPOLE_FACTOR = new double[FACTOR.length];
+    
+    static
+    {
+        CIRCULAR[0] = 1;
+        SINC[0] = 1;
+        
+        for (int i = 1; i < CIRCULAR.length; i++)
+        {
+            double x = (double) i / STEPS;
+            CIRCULAR[i] = 2 * Fnc.besselJ1Signed(x) / x;
+            SINC[i] = Fnc.sinc(x);
+        }
+        
+        for (int i = 0; i < FACTOR.length; i++)
+        {
+            FACTOR[i] = factorSim(i, false);
+            DIPOLE_FACTOR[i] = factorSim(i, true);
+        }
+    }
+    
+    private Directivity()
+    {
+    }
+    
+    private static double lookup(double[] table, double x)
+    {
+        double i = Math.abs(x) * STEPS;
+        int n = (int) i;
+        double t = i - n;
+        return table[n] + (table[n + 1] - table[n]) * t;
+    }
+    
+    private static double factorSim(double angle, boolean dipole)
+    {
+        if (angle > 90 && !dipole)
+        {
+            return 1 + Math.sin(Math.toRadians(angle - 90));
+        }
+        else
+        {
+            return Math.sin(Math.toRadians(angle));
+        }
+    }
+    
+    // |2 * J1(x) / x|
+    public static double circular(double x)
+    {
+        if (Math.abs(x) >= MAX)
+        {
+            return Math.abs(2 * Fnc.besselJ1(x) / x);
+        }
+        
+        // interpolated with sign, so nulls stay sharp
+        return Math.abs(lookup(CIRCULAR, x));
+    }
+    
+    // sin(x) / x
+    public static double sinc(double x)
+    {
+        if (Math.abs(x) >= MAX)
+        {
+            return Fnc.sinc(x);
+        }
+        
+        return lookup(SINC, x);
+    }
+    
+    // sin(angle), behind monopole it grows to 2 at 180 degrees
+    public static double factor(double angle, boolean dipole)
+    {
+        angle = Math.abs(angle);
+        
+        if (angle <= 180 && angle == Math.rint(angle))
+        {
+            return dipole ? DIPOLE_FACTOR[(int) angle] : FACTOR[(int) angle];
+        }
+        
+        return factorSim(angle, dipole);
+    }
+}
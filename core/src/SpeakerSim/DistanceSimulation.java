@@ -56,4 +56,14 @@ public class DistanceSimulation
     {
         return Complex.toComplex(amplitude, f * phase);
     }
+    
+    public void response(double[] f, double[] re, double[] im)
+    {
+        for (int i = 0; i < f.length; i++)
+        {
+            double p = f[i] * phase;
+            re[i] = amplitude * Math.cos(p);
+            im[i] = amplitude * Math.sin(p);
+        }
+    }
 }
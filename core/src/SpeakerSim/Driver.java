@@ -17,12 +17,12 @@
 package SpeakerSim;
 
 import com.eclipsesource.json.*;
-import org.ini4j.Ini;
 
 import java.io.*;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class Driver implements JSONable, ISource
 {
@@ -67,6 +67,9 @@ public class Driver implements JSONable, ISource
     public ResponseData[] hFRD;
     public ResponseData[] vFRD;
     public ResponseEntry[] ZMA;
+    private volatile ResampledData zma;
+    private volatile PolarData hPolar;
+    private volatile PolarData vPolar;
     
     public Driver()
     {
@@ -340,6 +343,38 @@ public class Driver implements JSONable, ISource
         return x;
     }
     
+    public void responseSimRelative(double[] f, double[] re, double[] im)
+    {
+        double Cas = Cas();
+        double Mas = Mas();
+        double Ras = Ras();
+        double Rae = Rae();
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            double w = 2 * Math.PI * f[i];
+            Complex x = new Complex(0, w * Mas).divide(new Complex(Ras + Rae, w * Mas - 1 / (w * Cas)));
+            
+            if (Inverted)
+            {
+                double p = x.phase();
+                
+                if (p >= 0)
+                {
+                    p -= Math.PI;
+                }
+                else
+                {
+                    p += Math.PI;
+                }
+                
+                x = Complex.toComplex(x.abs(), p);
+            }
+            
+            Fnc.set(re, im, i, x);
+        }
+    }
+    
     public Complex responseSim(double f)
     {
         return responseSimRelative(f).multiply(Fnc.toAmplitude(effectiveSPL_2_83V()));
@@ -357,6 +392,21 @@ public class Driver implements JSONable, ISource
         }
     }
     
+    public void response(double[] f, double[] re, double[] im)
+    {
+        if (hasFRD())
+        {
+            FRD.response(f, SPLdiff(), Inverted, re, im);
+        }
+        else
+        {
+            for (int i = 0; i < f.length; i++)
+            {
+                Fnc.set(re, im, i, responseSim(f[i]));
+            }
+        }
+    }
+    
     public Complex normResponse(double f)
     {
         if (FRD != null)
@@ -368,11 +418,34 @@ public class Driver implements JSONable, ISource
         return Complex.toComplex(Fnc.toAmplitude(effectiveSPL_2_83V()), Inverted ? -Math.PI : 0);
     }
     
+    public void normResponse(double[] f, double[] re, double[] im)
+    {
+        if (FRD != null)
+        {
+            Complex x = Complex.toComplex(Fnc.toAmplitude(effectiveSPL_2_83V()), response(CrossEnd).phase());
+            
+            for (int i = 0; i < f.length; i++)
+            {
+                Fnc.set(re, im, i, normalize(f[i], response(f[i]), x));
+            }
+        }
+        else
+        {
+            Fnc.fill(re, im, Complex.toComplex(Fnc.toAmplitude(effectiveSPL_2_83V()), Inverted ? -Math.PI : 0));
+        }
+    }
+    
     public Complex response1W(double f)
     {
         return response(f).divide(Fnc.toAmplitude(SPLdiff()));
     }
     
+    public void response1W(double[] f, double[] re, double[] im)
+    {
+        response(f, re, im);
+        Fnc.multiply(re, im, 1 / Fnc.toAmplitude(SPLdiff()));
+    }
+    
     public Complex normResponse1W(double f)
     {
         if (FRD != null)
@@ -384,15 +457,20 @@ public class Driver implements JSONable, ISource
         return Complex.toComplex(Fnc.toAmplitude(effectiveSPL_1W()), Inverted ? -Math.PI : 0);
     }
     
-    private double directivity(double angle, boolean dipole)
+    public void normResponse1W(double[] f, double[] re, double[] im)
     {
-        if (angle > 90 && !dipole)
+        if (FRD != null)
         {
-            return 1 + Math.sin(Math.toRadians(angle - 90));
+            Complex x = Complex.toComplex(Fnc.toAmplitude(effectiveSPL_1W()), response1W(CrossEnd).phase());
+            
+            for (int i = 0; i < f.length; i++)
+            {
+                Fnc.set(re, im, i, normalize(f[i], response1W(f[i]), x));
+            }
         }
         else
         {
-            return Math.sin(Math.toRadians(angle));
+            Fnc.fill(re, im, Complex.toComplex(Fnc.toAmplitude(effectiveSPL_1W()), Inverted ? -Math.PI : 0));
         }
     }
     
@@ -404,14 +482,14 @@ public class Driver implements JSONable, ISource
         
         if (shape == Shape.Circular)
         {
-            x *= effectiveDia() * directivity(Math.max(horizontalAngle, verticalAngle), dipole);
-            return new Complex(x > 0 ? Math.abs(2 * Fnc.besselJ1(x) / x) : 1);
+            x *= effectiveDia() * Directivity.factor(Math.max(horizontalAngle, verticalAngle), dipole);
+            return new Complex(x > 0 ? Directivity.circular(x) : 1);
         }
         else
         {
-            double w = x * effectiveWidth() * directivity(horizontalAngle, dipole);
-            double h = x * effectiveHeight() * directivity(verticalAngle, dipole);
-            return new Complex(Math.abs(Fnc.sinc(w) * Fnc.sinc(h)));
+            double w = x * effectiveWidth() * Directivity.factor(horizontalAngle, dipole);
+            double h = x * effectiveHeight() * Directivity.factor(verticalAngle, dipole);
+            return new Complex(Math.abs(Directivity.sinc(w) * Directivity.sinc(h)));
         }
     }
     
@@ -420,100 +498,50 @@ public class Driver implements JSONable, ISource
         return response(f).multiply(relativeOffAxisSim(f, horizontalAngle, verticalAngle, dipole));
     }
     
-    private Complex horizontalAxis(double f, double horizontalAngle, boolean dipole)
+    private PolarData hPolar()
     {
-        double SPLdiff = SPLdiff();
-        
-        if (hFRD != null)
-        {
-            if (hFRD[0].horizontalAngle >= 0)
-            {
-                horizontalAngle = Math.abs(horizontalAngle);
-            }
-        }
-
-        // no lower value
-        if (hFRD[0].horizontalAngle > horizontalAngle)
-        {
-            return offAxisSim(f, horizontalAngle, 0, dipole);
-        }
-
-        for (int i = 1; i < hFRD.length; i++)
-        {
-            if (hFRD[i].horizontalAngle >= horizontalAngle)
-            {
-                return Complex.toComplex
-                (
-                    Fnc.interpolate
-                    (
-                            hFRD[i - 1].horizontalAngle,
-                            hFRD[i - 1].response(f, SPLdiff, Inverted).abs(),
-                            hFRD[i].horizontalAngle,
-                            hFRD[i].response(f, SPLdiff, Inverted).abs(),
-                            horizontalAngle
-                    ),
-                    Fnc.interpolate
-                    (
-                            hFRD[i - 1].horizontalAngle,
-                            hFRD[i - 1].response(f, SPLdiff, Inverted).phase(),
-                            hFRD[i].horizontalAngle,
-                            hFRD[i].response(f, SPLdiff, Inverted).phase(),
-                            horizontalAngle
-                    )
-                );
-            }
-        }
-
-        // no higher value
-        return offAxisSim(f, horizontalAngle, 0, dipole);
+        PolarData polar = PolarData.of(hPolar, hFRD, true, SPLdiff(), Inverted);
+        hPolar = polar;
+        return polar;
     }
     
-    private Complex verticalAxis(double f, double verticalAngle, boolean dipole)
+    private PolarData vPolar()
     {
-        double SPLdiff = SPLdiff();
-        
-        if (vFRD != null)
+        PolarData polar = PolarData.of(vPolar, vFRD, false, SPLdiff(), Inverted);
+        vPolar = polar;
+        return polar;
+    }
+    
+    private static Complex axis(PolarData polar, double f, double angle)
+    {
+        return polar != null ? polar.get(f, angle) : null;
+    }
+    
+    private static boolean axis(PolarData polar, double[] f, double angle, double[] re, double[] im)
+    {
+        return polar != null && polar.get(f, angle, re, im);
+    }
+    
+    // invert phase, if behind dipole
+    private static Complex dipole(Complex x, double horizontalAngle, double verticalAngle, boolean dipole)
+    {
+        if (dipole && Math.max(Math.abs(horizontalAngle), Math.abs(verticalAngle)) > 90)
         {
-            if (vFRD[0].verticalAngle >= 0)
+            double p = x.phase();
+            
+            if (p >= 0)
             {
-                verticalAngle = Math.abs(verticalAngle);
+                p -= Math.PI;
             }
-        }
-
-        // no lower value
-        if (vFRD[0].verticalAngle > verticalAngle)
-        {
-            return offAxisSim(f, verticalAngle, 0, dipole);
-        }
-
-        for (int i = 1; i < vFRD.length; i++)
-        {
-            if (vFRD[i].verticalAngle >= verticalAngle)
+            else
             {
-                return Complex.toComplex
-                (
-                    Fnc.interpolate
-                    (
-                            vFRD[i - 1].verticalAngle,
-                            vFRD[i - 1].response(f, SPLdiff, Inverted).abs(),
-                            vFRD[i].verticalAngle,
-                            vFRD[i].response(f, SPLdiff, Inverted).abs(),
-                            verticalAngle
-                    ),
-                    Fnc.interpolate
-                    (
-                            vFRD[i - 1].verticalAngle,
-                            vFRD[i - 1].response(f, SPLdiff, Inverted).phase(),
-                            vFRD[i].verticalAngle,
-                            vFRD[i].response(f, SPLdiff, Inverted).phase(),
-                            verticalAngle
-                    )
-                );
+                p += Math.PI;
             }
-        }
 
-        // no higher value
-        return offAxisSim(f, verticalAngle, 0, dipole);
+            x = Complex.toComplex(x.abs(), p);
+        }
+        
+        return x;
     }
     
     public Complex response(double f, double horizontalAngle, double verticalAngle, boolean dipole)
@@ -522,8 +550,18 @@ public class Driver implements JSONable, ISource
         
         if (hasFRD() && (hFRD != null || vFRD != null))
         {
-            Complex h = horizontalAxis(f, horizontalAngle, dipole);
-            Complex v = verticalAxis(f, verticalAngle, dipole);
+            Complex h = axis(hPolar(), f, horizontalAngle);
+            Complex v = axis(vPolar(), f, verticalAngle);
+            
+            if (h == null)
+            {
+                h = offAxisSim(f, horizontalAngle, 0, dipole);
+            }
+            
+            if (v == null)
+            {
+                v = offAxisSim(f, verticalAngle, 0, dipole);
+            }
             
             x = v.abs() < h.abs() ? v : h;
         }
@@ -532,24 +570,32 @@ public class Driver implements JSONable, ISource
             x = offAxisSim(f, horizontalAngle, verticalAngle, dipole);
         }
         
-        // invert phase, if behind dipole
-        if (dipole && Math.max(Math.abs(horizontalAngle), Math.abs(verticalAngle)) > 90)
+        return dipole(x, horizontalAngle, verticalAngle, dipole);
+    }
+    
+    public void response(double[] f, double horizontalAngle, double verticalAngle, boolean dipole, double[] re, double[] im)
+    {
+        if (hasFRD() && (hFRD != null || vFRD != null))
         {
-            double p = x.phase();
+            double[] vRe = new double[f.length];
+            double[] vIm = new double[f.length];
+            boolean h = axis(hPolar(), f, horizontalAngle, re, im);
+            boolean v = axis(vPolar(), f, verticalAngle, vRe, vIm);
             
-            if (p >= 0)
+            for (int i = 0; i < f.length; i++)
             {
-                p -= Math.PI;
+                Complex hx = h ? new Complex(re[i], im[i]) : offAxisSim(f[i], horizontalAngle, 0, dipole);
+                Complex vx = v ? new Complex(vRe[i], vIm[i]) : offAxisSim(f[i], verticalAngle, 0, dipole);
+                Fnc.set(re, im, i, dipole(vx.abs() < hx.abs() ? vx : hx, horizontalAngle, verticalAngle, dipole));
             }
-            else
+        }
+        else
+        {
+            for (int i = 0; i < f.length; i++)
             {
-                p += Math.PI;
+                Fnc.set(re, im, i, dipole(offAxisSim(f[i], horizontalAngle, verticalAngle, dipole), horizontalAngle, verticalAngle, dipole));
             }
-
-            x = Complex.toComplex(x.abs(), p);
         }
-        
-        return x;
     }
     
     public Complex normResponse(double f, double horizontalAngle, double verticalAngle, boolean dipole)
@@ -563,12 +609,39 @@ public class Driver implements JSONable, ISource
         return Complex.toComplex(Fnc.toAmplitude(effectiveSPL_2_83V()), Inverted ? -Math.PI : 0);
     }
     
+    public void normResponse(double[] f, double horizontalAngle, double verticalAngle, boolean dipole, double[] re, double[] im)
+    {
+        if (FRD != null)
+        {
+            Complex x = Complex.toComplex(Fnc.toAmplitude(effectiveSPL_2_83V()), response(CrossEnd).phase());
+            
+            for (int i = 0; i < f.length; i++)
+            {
+                Fnc.set(re, im, i, normalize(f[i], response(f[i], horizontalAngle, verticalAngle, dipole), x));
+            }
+        }
+        else
+        {
+            Fnc.fill(re, im, Complex.toComplex(Fnc.toAmplitude(effectiveSPL_2_83V()), Inverted ? -Math.PI : 0));
+        }
+    }
+    
     @Override
     public Complex relativeOffAxis(double f, double horizontalAngle, double verticalAngle, boolean dipole)
     {
         return response(f, horizontalAngle, verticalAngle, dipole).divide(response(f));
     }
     
+    @Override
+    public void relativeOffAxis(double[] f, double horizontalAngle, double verticalAngle, boolean dipole, double[] re, double[] im)
+    {
+        double[] onAxisRe = new double[f.length];
+        double[] onAxisIm = new double[f.length];
+        response(f, horizontalAngle, verticalAngle, dipole, re, im);
+        response(f, onAxisRe, onAxisIm);
+        Fnc.divide(re, im, onAxisRe, onAxisIm);
+    }
+    
     public double excursion(double f, double Pe)
     {
         double maxVad = voltage(Math.min(Pe, PeRMS())) * effectiveBl() / (effectiveRe() * effectiveSd());
@@ -582,6 +655,23 @@ public class Driver implements JSONable, ISource
         return new Complex(0, maxVad).divide(Zas.add(Rae)).abs() / (f * effectiveSd()) * 1000;
     }
     
+    public void excursion(double[] f, double Pe, double[] excursion)
+    {
+        double maxVad = voltage(Math.min(Pe, PeRMS())) * effectiveBl() / (effectiveRe() * effectiveSd());
+        double Cas = Cas();
+        double Mas = Mas();
+        double Ras = Ras();
+        double Rae = Rae();
+        double Sd = effectiveSd();
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            double w = 2 * Math.PI * f[i];
+            Complex Zas = new Complex(Ras + Rae, w * Mas - 1 / (w * Cas));
+            excursion[i] = maxVad / Zas.abs() / (w * Sd) * 1000;
+        }
+    }
+    
     private static double LeZ(double Le, double f)
     {
         return Math.pow(12 * Math.PI * Le * f, 0.56);
@@ -605,28 +695,7 @@ public class Driver implements JSONable, ISource
     {
         if (hasZMA())
         {
-            ResponseEntry prev = ZMA[0];
-            
-            // no lower value
-            if (prev.frequency > f)
-            {
-                return Complex.toComplex(prev.amplitude * Series / Parallel, Math.toRadians(prev.phase)); // TODO: use predicted slope
-            }
-
-            for (ResponseEntry entry : ZMA)
-            {
-                if (entry.frequency >= f)
-                {
-                    double amplitude = Fnc.interpolate(prev.frequency, prev.amplitude, entry.frequency, entry.amplitude, f);
-                    double phase = Fnc.interpolate(prev.frequency, prev.phase, entry.frequency, entry.phase, f);
-                    return Complex.toComplex(amplitude * Series / Parallel, Math.toRadians(phase));
-                }
-                
-                prev = entry;
-            }
-            
-            // no higher value
-            return Complex.toComplex(prev.amplitude * Series / Parallel, Math.toRadians(prev.phase)); // TODO: use predicted slope
+            return zma().get(f).multiply((double) Series / Parallel); // TODO: use predicted slope outside of ZMA
         }
         else
         {
@@ -634,6 +703,30 @@ public class Driver implements JSONable, ISource
         }
     }
     
+    public void impedance(double[] f, double[] re, double[] im)
+    {
+        if (hasZMA())
+        {
+            zma().get(f, re, im);
+            Fnc.multiply(re, im, (double) Series / Parallel);
+        }
+        else
+        {
+            for (int i = 0; i < f.length; i++)
+            {
+                Fnc.set(re, im, i, impedanceSim(f[i]));
+            }
+        }
+    }
+    
+    // ZMA is resampled to frequency grid on first use after ZMA or grid change
+    private ResampledData zma()
+    {
+        ResampledData t = ResampledData.of(zma, ZMA, false, null);
+        zma = t;
+        return t;
+    }
+    
     public double LeZ(double f)
     {
         double z = LeZ(effectiveLe(), f);
@@ -646,6 +739,14 @@ public class Driver implements JSONable, ISource
         return z;
     }
     
+    public void LeZ(double[] f, double[] z)
+    {
+        for (int i = 0; i < f.length; i++)
+        {
+            z[i] = LeZ(f[i]);
+        }
+    }
+    
     public Complex normImpedance(double f)
     {
         Complex z = Complex.toComplex(effectiveRe(), LeZ(effectiveLe(), f));
@@ -874,8 +975,8 @@ public class Driver implements JSONable, ISource
         
         if (name.endsWith(".wdr")) // WinISD
         {
-            Ini ini = new Ini(file);
-            Ini.Section driver = ini.get("Driver");
+            IniFile ini = new IniFile(file);
+            Map<String, String> driver = ini.get("Driver");
             Driver drv = new Driver();
             
             drv.Name = driver.get("Brand") + " " + driver.get("Model");
@@ -0,0 +1,584 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package SpeakerSim;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Index of T/S parameters of driver files (SpeakerSim and WinISD) in library directories.
+ * Index is saved to file, refresh parses only new and changed files, in parallel.
+ * Every parameter has sorted order, so range queries don't parse or scan files.
+ */
+public final class DriverLibrary
+{
+    public enum Parameter
+    {
+        Fs,
+        Qts,
+        Vas,
+        Sd,
+        Dia,
+        Xmax,
+        SPL
+    }
+    
+    private static final int MAGIC = 0x5353444C; // SSDL
+    private static final int VERSION = 1;
+    
+    public static final class Entry
+    {
+        public final String Path;
+        public final String Name;
+        
+        private final long modified;
+        private final long length;
+        private final double[] values;
+        
+        private Entry(String path, String name, long modified, long length, double[] values)
+        {
+            Path = path;
+            Name = name;
+            this.modified = modified;
+            this.length = length;
+            this.values = values;
+        }
+        
+        private Entry(File file, Driver driver)
+        {
+            this(file.getPath(), driver.Name, file.lastModified(), file.length(),
+                 new double[] { driver.Fs, driver.Qts, driver.Vas, driver.Sd, driver.Dia, driver.Xmax, driver.SPL_1W });
+        }
+        
+        public double get(Parameter p)
+        {
+            return values[p.ordinal()];
+        }
+        
+        public Driver open() throws IOException
+        {
+            return Driver.importFromFile(new File(Path));
+        }
+        
+        @Override
+        public String toString()
+        {
+            return Name;
+        }
+    }
+    
+    // inclusive ranges, parameters without range are not limited
+    public static final class Query
+    {
+        private final double[] min = new double[Parameter.values().length];
+        private final double[] max = new double[Parameter.values().length];
+        
+        public Query()
+        {
+            Arrays.fill(min, Double.NEGATIVE_INFINITY);
+            Arrays.fill(max, Double.POSITIVE_INFINITY);
+        }
+        
+        public Query range(Parameter p, double min, double max)
+        {
+            this.min[p.ordinal()] = min;
+            this.max[p.ordinal()] = max;
+            return this;
+        }
+        
+        private boolean isLimited(int k)
+        {
+            return min[k] != Double.NEGATIVE_INFINITY || max[k] != Double.POSITIVE_INFINITY;
+        }
+        
+        private boolean matches(Entry entry)
+        {
+            for (int k = 0; k < min.length; k++)
+            {
+                if (isLimited(k) && !(entry.values[k] >= min[k] && entry.values[k] <= max[k]))
+                {
+                    return false;
+                }
+            }
+            
+            return true;
+        }
+    }
+    
+    // immutable, replaced on refresh
+    private static final class Index
+    {
+        private final Entry[] entries;
+        private final int[][] orders; // entries sorted by parameter
+        private final double[][] sorted; // parameter values in that order
+        
+        private Index(List<Entry> list)
+        {
+            entries = list.toArray(new Entry[0]);
+            orders = new int[Parameter.values().length][];
+            sorted = new double[orders.length][];
+            
+            for (int k = 0; k < orders.length; k++)
+            {
+                final int p = k;
+                Integer[] order = new Integer[entries.length];
+                
+                for (int i = 0; i < order.length; i++)
+                {
+                    order[i] = i;
+                }
+                
+                Arrays.sort(order, new Comparator<Integer>()
+                {
+                    @Override
+                    public int compare(Integer a, Integer b)
+                    {
+                        return Double.compare(entries[a].values[p], entries[b].values[p]);
+                    }
+                });
+                
+                orders[k] = new int[order.length];
+                sorted[k] = new double[order.length];
+                
+                for (int i = 0; i < order.length; i++)
+                {
+                    orders[k][i] = order[i];
+                    sorted[k][i] = entries[order[i]].values[k];
+                }
+            }
+        }
+        
+        // first position with value >= x (or > x when after)
+        private int search(int k, double x, boolean after)
+        {
+            double[] v = sorted[k];
+            int lo = 0;
+            int hi = v.length;
+            
+            while (lo < hi)
+            {
+                int mid = (lo + hi) >>> 1;
+                
+                if (v[mid] < x || (after && v[mid] == x))
+                {
+                    lo = mid + 1;
+                }
+                else
+                {
+                    hi = mid;
+                }
+            }
+            
+            return lo;
+        }
+    }
+    
+    private final File file;
+    private final List<File> directories = new ArrayList<File>();
+    private Map<String, Entry> failed = new LinkedHashMap<String, Entry>(); // name is error, without values
+    private volatile Index index = new Index(new ArrayList<Entry>());
+    private boolean modified;
+    
+    // loads saved index, if it exists
+    public DriverLibrary(File file) throws IOException
+    {
+        this.file = file;
+        
+        if (file != null && file.isFile())
+        {
+            load();
+        }
+    }
+    
+    // subdirectories of added directories are already indexed
+    public synchronized void addDirectory(File directory) throws IOException
+    {
+        File dir = directory.getCanonicalFile();
+        
+        for (File d : directories)
+        {
+            if (isInside(dir, d))
+            {
+                return;
+            }
+        }
+        
+        for (Iterator<File> i = directories.iterator(); i.hasNext();)
+        {
+            if (isInside(i.next(), dir))
+            {
+                i.remove();
+            }
+        }
+        
+        directories.add(dir);
+        modified = true;
+    }
+    
+    // same directory or its subdirectory
+    private static boolean isInside(File directory, File parent)
+    {
+        return directory.toPath().startsWith(parent.toPath());
+    }
+    
+    public synchronized List<File> getDirectories()
+    {
+        return new ArrayList<File>(directories);
+    }
+    
+    // files that could not be parsed on last refresh, with error
+    public synchronized Map<String, String> getErrors()
+    {
+        Map<String, String> errors = new LinkedHashMap<String, String>();
+        
+        for (Entry entry : failed.values())
+        {
+            errors.put(entry.Path, entry.Name);
+        }
+        
+        return errors;
+    }
+    
+    public int size()
+    {
+        return index.entries.length;
+    }
+    
+    public List<Entry> getEntries()
+    {
+        return Collections.unmodifiableList(Arrays.asList(index.entries));
+    }
+    
+    // matching entries, sorted by first limited parameter
+    public List<Entry> find(Query query)
+    {
+        Index x = index;
+        int best = -1;
+        int from = 0;
+        int to = x.entries.length;
+        
+        // walk only range of most selective parameter
+        for (int k = 0; k < query.min.length; k++)
+        {
+            if (!query.isLimited(k))
+            {
+                continue;
+            }
+            
+            int a = x.search(k, query.min[k], false);
+            int b = x.search(k, query.max[k], true);
+            
+            if (best < 0 || b - a < to - from)
+            {
+                best = k;
+                from = a;
+                to = b;
+            }
+        }
+        
+        List<Entry> result = new ArrayList<Entry>();
+        
+        for (int i = from; i < to; i++)
+        {
+            Entry entry = x.entries[best < 0 ? i : x.orders[best][i]];
+            
+            if (query.matches(entry))
+            {
+                result.add(entry);
+            }
+        }
+        
+        return result;
+    }
+    
+    private static boolean isDriverFile(File f)
+    {
+        String name = f.getName().toLowerCase();
+        return f.isFile() && (name.endsWith(".sdrv") || name.endsWith(".wdr"));
+    }
+    
+    static void list(File directory, List<File> files)
+    {
+        File[] children = directory.listFiles();
+        
+        if (children != null)
+        {
+            Arrays.sort(children);
+            
+            for (File f : children)
+            {
+                if (f.isDirectory())
+                {
+                    list(f, files);
+                }
+                else if (isDriverFile(f))
+                {
+                    files.add(f);
+                }
+            }
+        }
+    }
+    
+    // rescans directories, returns true if index changed and was saved
+    public synchronized boolean refresh(int threads) throws IOException, InterruptedException
+    {
+        Map<String, Entry> old = new HashMap<String, Entry>();
+        for (Entry entry : index.entries)
+        {
+            old.put(entry.Path, entry);
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+        
+        try
+        {
+            // directories are listed in parallel
+            List<Future<List<File>>> listings = new ArrayList<Future<List<File>>>();
+            for (final File directory : directories)
+            {
+                listings.add(pool.submit(new Callable<List<File>>()
+                {
+                    @Override
+                    public List<File> call()
+                    {
+                        List<File> files = new ArrayList<File>();
+                        list(directory, files);
+                        return files;
+                    }
+                }));
+            }
+            
+            // directories of older index can overlap, every file is indexed once
+            Set<String> paths = new HashSet<String>();
+            List<File> files = new ArrayList<File>();
+            for (Future<List<File>> listing : listings)
+            {
+                for (File f : get(listing))
+                {
+                    if (paths.add(f.getPath()))
+                    {
+                        files.add(f);
+                    }
+                }
+            }
+            
+            // unchanged files are taken from index, others are parsed in parallel
+            List<Entry> entries = new ArrayList<Entry>();
+            List<Future<Entry>> parsed = new ArrayList<Future<Entry>>();
+            List<File> sources = new ArrayList<File>();
+            Map<String, Entry> errors = new LinkedHashMap<String, Entry>();
+            boolean changed = modified;
+            int reused = 0;
+            
+            for (final File f : files)
+            {
+                Entry entry = old.get(f.getPath());
+                Entry error = failed.get(f.getPath());
+                
+                if (entry != null && entry.modified == f.lastModified() && entry.length == f.length())
+                {
+                    entries.add(entry);
+                    parsed.add(null);
+                    sources.add(f);
+                    reused++;
+                }
+                else if (error != null && error.modified == f.lastModified() && error.length == f.length())
+                {
+                    // still broken
+                    errors.put(error.Path, error);
+                }
+                else
+                {
+                    changed = true;
+                    entries.add(null);
+                    sources.add(f);
+                    parsed.add(pool.submit(new Callable<Entry>()
+                    {
+                        @Override
+                        public Entry call() throws IOException
+                        {
+                            return new Entry(f, Driver.importFromFile(f));
+                        }
+                    }));
+                }
+            }
+            
+            // removed or changed files
+            changed |= reused != old.size();
+            
+            List<Entry> result = new ArrayList<Entry>();
+            for (int i = 0; i < entries.size(); i++)
+            {
+                Entry entry = entries.get(i);
+                
+                if (entry == null)
+                {
+                    try
+                    {
+                        entry = get(parsed.get(i));
+                    }
+                    catch (IOException | RuntimeException ex)
+                    {
+                        File f = sources.get(i);
+                        String message = ex.getMessage() != null ? ex.getMessage() : ex.toString();
+                        errors.put(f.getPath(), new Entry(f.getPath(), message, f.lastModified(), f.length(), null));
+                        continue;
+                    }
+                }
+                
+                result.add(entry);
+            }
+            
+            failed = errors;
+            
+            if (!changed)
+            {
+                return false;
+            }
+            
+            index = new Index(result);
+            save();
+            modified = false;
+            
+            return true;
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+    
+    private static <T> T get(Future<T> future) throws IOException, InterruptedException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            
+            throw new HandledException(cause.toString(), cause);
+        }
+    }
+    
+    private void load() throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION)
+            {
+                // other format, rebuilt on refresh
+                return;
+            }
+            
+            int count = in.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                directories.add(new File(in.readUTF()));
+            }
+            
+            count = in.readInt();
+            List<Entry> entries = new ArrayList<Entry>(count);
+            
+            for (int i = 0; i < count; i++)
+            {
+                String path = in.readUTF();
+                String name = in.readUTF();
+                long modified = in.readLong();
+                long length = in.readLong();
+                double[] values = new double[Parameter.values().length];
+                
+                for (int k = 0; k < values.length; k++)
+                {
+                    values[k] = in.readDouble();
+                }
+                
+                entries.add(new Entry(path, name, modified, length, values));
+            }
+            
+            index = new Index(entries);
+        }
+    }
+    
+    private void save() throws IOException
+    {
+        if (file == null)
+        {
+            return;
+        }
+        
+        // write whole index, then replace old one
+        File tmp = new File(file.getPath() + ".tmp");
+        
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            
+            out.writeInt(directories.size());
+            for (File directory : directories)
+            {
+                out.writeUTF(directory.getPath());
+            }
+            
+            Entry[] entries = index.entries;
+            out.writeInt(entries.length);
+            
+            for (Entry entry : entries)
+            {
+                out.writeUTF(entry.Path);
+                out.writeUTF(entry.Name != null ? entry.Name : "");
+                out.writeLong(entry.modified);
+                out.writeLong(entry.length);
+                
+                for (double v : entry.values)
+                {
+                    out.writeDouble(v);
+                }
+            }
+        }
+        
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+}
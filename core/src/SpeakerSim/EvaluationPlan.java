@@ -0,0 +1,1595 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/*
+ * Item tree lowered to flat array of nodes in post-order (children before parents),
+ * so subtree of every node is continuous range of nodes ending with that node.
+ * Filters are lowered to ladders of series and shunt elements.
+ */
+public final class EvaluationPlan
+{
+    // quantities
+    private static final int RESPONSE = 0;
+    private static final int RESPONSE_1W = 1;
+    private static final int LISTENING_WINDOW = 2;
+    private static final int POWER_RESPONSE = 3;
+    private static final int RESPONSE_WITH_BAFFLE = 4;
+    private static final int RESPONSE_WITH_ROOM = 5;
+    private static final int FILTER = 6;
+    private static final int IMPEDANCE = 7;
+    private static final int MAX_POWER = 8;
+    private static final int EXCURSION = 9;
+    
+    // nodes
+    private static final int CONSTANT = 0;
+    private static final int SUM = 1;
+    private static final int LADDER = 2;
+    private static final int SPEAKER = 3;
+    private static final int PROJECT = 4;
+    private static final int OPAQUE = 5;
+    
+    // ladder steps
+    private static final int SERIES = 0;
+    private static final int SHUNT = 1;
+    private static final int UNITY = 2;
+    private static final int GAIN = 3;
+    
+    // elements
+    private static final int RESISTANCE = 0;
+    private static final int CAPACITANCE = 1;
+    private static final int INDUCTANCE = 2;
+    private static final int NOTCH = 3;
+    private static final int TABLE = 4;
+    private static final int ACTIVE = 5;
+    
+    // minimal number of frequencies per parallel slice
+    private static final int MIN_SLICE = 16;
+    
+    private final int[] op;
+    private final int[] start;
+    private final int[] input;
+    private final int[] childFirst;
+    private final int[] childCount;
+    private final int[] children;
+    private final int[] stepFirst;
+    private final int[] stepCount;
+    private final int[] stepType;
+    private final int[] stepElement;
+    private final int[] gain;
+    private final double[] pe;
+    private final IItem[] item;
+    private final IItem[] owner;
+    private final long[] stamp;
+    
+    private final int[] elementType;
+    private final double[] elementX;
+    private final double[] elementR;
+    private final Object[] elementItem;
+    
+    private final Map<IItem, Integer> nodes;
+    
+    // results of items from previous plans, valid while stamp of item subtree does not change
+    private static final class Entry
+    {
+        private final long stamp;
+        private final double[] f;
+        private final double power;
+        private final Result result;
+        
+        private Entry(long stamp, double[] f, double power, Result result)
+        {
+            this.stamp = stamp;
+            this.f = f;
+            this.power = power;
+            this.result = result;
+        }
+    }
+    
+    // maximal number of cached sweeps per item
+    private static final int CACHE_SIZE = 64;
+    
+    private final SimulationContext context;
+    private final String key;
+    private final Map<IItem, List<Entry>> cache;
+    
+    private static final class Builder
+    {
+        private final List<Integer> op = new ArrayList<Integer>();
+        private final List<Integer> start = new ArrayList<Integer>();
+        private final List<Integer> input = new ArrayList<Integer>();
+        private final List<Integer> childFirst = new ArrayList<Integer>();
+        private final List<Integer> childCount = new ArrayList<Integer>();
+        private final List<Integer> children = new ArrayList<Integer>();
+        private final List<Integer> stepFirst = new ArrayList<Integer>();
+        private final List<Integer> stepCount = new ArrayList<Integer>();
+        private final List<Integer> stepType = new ArrayList<Integer>();
+        private final List<Integer> stepElement = new ArrayList<Integer>();
+        private final List<Integer> gain = new ArrayList<Integer>();
+        private final List<Double> pe = new ArrayList<Double>();
+        private final List<IItem> item = new ArrayList<IItem>();
+        private final List<Long> stamp = new ArrayList<Long>();
+        
+        private final List<Integer> elementType = new ArrayList<Integer>();
+        private final List<Double> elementX = new ArrayList<Double>();
+        private final List<Double> elementR = new ArrayList<Double>();
+        private final List<Object> elementItem = new ArrayList<Object>();
+        
+        private final Map<IItem, Integer> nodes = new IdentityHashMap<IItem, Integer>();
+        
+        private int first;
+        
+        private int node(int type, int start, int input, IItem item)
+        {
+            op.add(type);
+            this.start.add(start);
+            this.input.add(input);
+            childFirst.add(children.size());
+            childCount.add(0);
+            stepFirst.add(first);
+            stepCount.add(stepType.size() - first);
+            gain.add(-1);
+            pe.add(Double.NaN);
+            this.item.add(item);
+            stamp.add(0L);
+            first = stepType.size();
+            
+            return op.size() - 1;
+        }
+        
+        private int element(int type, double x, double r, Object item)
+        {
+            elementType.add(type);
+            elementX.add(x);
+            elementR.add(r);
+            elementItem.add(item);
+            
+            return elementType.size() - 1;
+        }
+        
+        private void step(int type, int element)
+        {
+            stepType.add(type);
+            stepElement.add(element);
+        }
+        
+        private void series(int type, double x, double r)
+        {
+            step(SERIES, element(type, x, r, null));
+        }
+        
+        private void shunt(int type, double x, double r)
+        {
+            step(SHUNT, element(type, x, r, null));
+        }
+        
+        private int sum(IItem parent)
+        {
+            int s = op.size();
+            List<Integer> c = new ArrayList<Integer>();
+            
+            for (IItem child : parent.getChildren())
+            {
+                c.add(compile(child));
+            }
+            
+            first = stepType.size();
+            int n = node(SUM, s, -1, null);
+            childFirst.set(n, children.size());
+            childCount.set(n, c.size());
+            children.addAll(c);
+            
+            long h = 1;
+            
+            for (int child : c)
+            {
+                h = stamp.get(child) == 0 ? 0 : mix(h, stamp.get(child));
+                
+                if (h == 0)
+                {
+                    break;
+                }
+            }
+            
+            stamp.set(n, h);
+            
+            return n;
+        }
+        
+        private static long mix(long h, long x)
+        {
+            h = (h ^ x) * 0x9E3779B97F4A7C15L;
+            return (h ^ (h >>> 32)) | 1;
+        }
+        
+        // stamp changes with version and status of item and stamps of its children,
+        // zero if subtree can not be cached
+        private void stamp(int n, IItem x, long children)
+        {
+            stamp.set(n, children == 0 ? 0 : mix(mix(children, x.getVersion()), x.getStatus().ordinal()));
+        }
+        
+        private static boolean lowered(Class<?> type)
+        {
+            return type == Project.class || type == Speaker.class ||
+                type == Capacitor.class || type == Inductor.class || type == Resistor.class ||
+                type == LPad.class || type == Zobel.class || type == CustomImpedance.class ||
+                type == SerialNotchFilter.class || type == ParallelNotchFilter.class ||
+                type == LowPassFilter.class || type == HighPassFilter.class || type == Amplifier.class;
+        }
+        
+        private void ladder(IItem filter)
+        {
+            Class<?> type = filter.getClass();
+            
+            if (type == Capacitor.class)
+            {
+                Capacitor c = (Capacitor) filter;
+                
+                if (c.C > 0)
+                {
+                    series(CAPACITANCE, c.C, 0);
+                }
+            }
+            else if (type == Inductor.class)
+            {
+                Inductor l = (Inductor) filter;
+                
+                if (l.L > 0)
+                {
+                    series(INDUCTANCE, l.L, 0);
+                }
+            }
+            else if (type == Resistor.class)
+            {
+                series(RESISTANCE, 0, ((Resistor) filter).R);
+            }
+            else if (type == LPad.class)
+            {
+                LPad pad = (LPad) filter;
+                
+                if (pad.Rp > 0)
+                {
+                    shunt(RESISTANCE, 0, pad.Rp);
+                }
+                series(RESISTANCE, 0, pad.Rs);
+            }
+            else if (type == Zobel.class)
+            {
+                Zobel zobel = (Zobel) filter;
+                shunt(CAPACITANCE, zobel.C, zobel.R);
+                step(UNITY, -1);
+            }
+            else if (type == SerialNotchFilter.class || type == ParallelNotchFilter.class)
+            {
+                step(SERIES, element(NOTCH, 0, 0, filter));
+            }
+            else if (type == CustomImpedance.class)
+            {
+                step(SERIES, element(TABLE, 0, 0, filter));
+            }
+            else if (type == LowPassFilter.class)
+            {
+                PassFilter p = (PassFilter) filter;
+                
+                if (p.C2 > 0)
+                {
+                    shunt(CAPACITANCE, p.C2, p.RC2);
+                }
+                
+                if (p.L2 > 0)
+                {
+                    series(INDUCTANCE, p.L2, p.RL2);
+                }
+                
+                if (p.C1 > 0)
+                {
+                    shunt(CAPACITANCE, p.C1, p.RC1);
+                }
+                
+                series(INDUCTANCE, p.L1, p.RL1);
+            }
+            else if (type == HighPassFilter.class)
+            {
+                PassFilter p = (PassFilter) filter;
+                
+                if (p.L2 > 0)
+                {
+                    shunt(INDUCTANCE, p.L2, p.RL2);
+                }
+                
+                if (p.C2 > 0)
+                {
+                    series(CAPACITANCE, p.C2, p.RC2);
+                }
+                
+                if (p.L1 > 0)
+                {
+                    shunt(INDUCTANCE, p.L1, p.RL1);
+                }
+                
+                series(CAPACITANCE, p.C1, p.RC1);
+            }
+            else if (type == Amplifier.class)
+            {
+                series(RESISTANCE, 0, ((Amplifier) filter).Zo);
+                step(GAIN, element(ACTIVE, 0, 0, filter));
+            }
+        }
+        
+        private int compile(IItem x)
+        {
+            int s = op.size();
+            int n;
+            
+            switch (x.getStatus())
+            {
+                case DISCONNECTED:
+                    first = stepType.size();
+                    n = node(CONSTANT, s, -1, null);
+                    stamp(n, x, 1);
+                    break;
+                
+                case BYPASSED:
+                    n = sum(x);
+                    stamp(n, x, stamp.get(n));
+                    break;
+                
+                default:
+                    if (!lowered(x.getClass()))
+                    {
+                        // unknown items evaluate themselves
+                        first = stepType.size();
+                        n = node(OPAQUE, s, -1, x);
+                    }
+                    else if (x.getClass() == Project.class)
+                    {
+                        n = node(PROJECT, s, sum(x), null);
+                    }
+                    else if (x.getClass() == Speaker.class)
+                    {
+                        n = node(SPEAKER, s, sum(x), x);
+                    }
+                    else
+                    {
+                        int c = sum(x);
+                        ladder(x);
+                        n = node(LADDER, s, c, null);
+                        
+                        if (x instanceof Amplifier)
+                        {
+                            gain.set(n, stepElement.get(stepElement.size() - 1));
+                            pe.set(n, ((Amplifier) x).Pe);
+                        }
+                    }
+                    
+                    if (op.get(n) != OPAQUE)
+                    {
+                        stamp(n, x, stamp.get(input.get(n)));
+                    }
+                    break;
+            }
+            
+            nodes.put(x, n);
+            return n;
+        }
+    }
+    
+    private static int[] toIntArray(List<Integer> list)
+    {
+        int[] x = new int[list.size()];
+        
+        for (int i = 0; i < x.length; i++)
+        {
+            x[i] = list.get(i);
+        }
+        
+        return x;
+    }
+    
+    private static double[] toDoubleArray(List<Double> list)
+    {
+        double[] x = new double[list.size()];
+        
+        for (int i = 0; i < x.length; i++)
+        {
+            x[i] = list.get(i);
+        }
+        
+        return x;
+    }
+    
+    public EvaluationPlan(IItem root)
+    {
+        this(root, null, null);
+    }
+    
+    // results cached by previous plan are reused, if context did not change
+    public EvaluationPlan(IItem root, EvaluationPlan previous, SimulationContext context)
+    {
+        Builder b = new Builder();
+        b.compile(root);
+        
+        op = toIntArray(b.op);
+        start = toIntArray(b.start);
+        input = toIntArray(b.input);
+        childFirst = toIntArray(b.childFirst);
+        childCount = toIntArray(b.childCount);
+        children = toIntArray(b.children);
+        stepFirst = toIntArray(b.stepFirst);
+        stepCount = toIntArray(b.stepCount);
+        stepType = toIntArray(b.stepType);
+        stepElement = toIntArray(b.stepElement);
+        gain = toIntArray(b.gain);
+        pe = toDoubleArray(b.pe);
+        item = b.item.toArray(new IItem[b.item.size()]);
+        stamp = new long[b.stamp.size()];
+        owner = new IItem[op.length];
+        
+        for (int i = 0; i < stamp.length; i++)
+        {
+            stamp[i] = b.stamp.get(i);
+        }
+        
+        for (Map.Entry<IItem, Integer> entry : b.nodes.entrySet())
+        {
+            owner[entry.getValue()] = entry.getKey();
+        }
+        
+        elementType = toIntArray(b.elementType);
+        elementX = toDoubleArray(b.elementX);
+        elementR = toDoubleArray(b.elementR);
+        elementItem = b.elementItem.toArray();
+        
+        nodes = b.nodes;
+        
+        this.context = context;
+        this.key = context != null ? context.getKey() : null;
+        
+        if (previous != null && key != null && key.equals(previous.key))
+        {
+            cache = previous.cache;
+        }
+        else
+        {
+            cache = Collections.synchronizedMap(new WeakHashMap<IItem, List<Entry>>());
+        }
+    }
+    
+    public static final class Result
+    {
+        public final ComplexArray Response;
+        public final ComplexArray Response1W;
+        public final ComplexArray ListeningWindowResponse;
+        public final ComplexArray PowerResponse;
+        public final ComplexArray ResponseWithBaffle;
+        public final ComplexArray ResponseWithRoom;
+        public final ComplexArray Filter;
+        public final ComplexArray Impedance;
+        public final double[] MaxPower;
+        public final double[] Excursion;
+        
+        private final ComplexArray[] complex;
+        
+        private Result(ComplexArray[] complex, double[] maxPower, double[] excursion)
+        {
+            this.complex = complex;
+            Response = complex[RESPONSE];
+            Response1W = complex[RESPONSE_1W];
+            ListeningWindowResponse = complex[LISTENING_WINDOW];
+            PowerResponse = complex[POWER_RESPONSE];
+            ResponseWithBaffle = complex[RESPONSE_WITH_BAFFLE];
+            ResponseWithRoom = complex[RESPONSE_WITH_ROOM];
+            Filter = complex[FILTER];
+            Impedance = complex[IMPEDANCE];
+            MaxPower = maxPower;
+            Excursion = excursion;
+        }
+        
+        private Result(int length)
+        {
+            this(all(length), new double[length], new double[length]);
+        }
+        
+        private static ComplexArray[] all(int length)
+        {
+            ComplexArray[] complex = new ComplexArray[IMPEDANCE + 1];
+            
+            for (int i = 0; i < complex.length; i++)
+            {
+                complex[i] = new ComplexArray(length);
+            }
+            
+            return complex;
+        }
+        
+        private static Result of(int quantity, double[] re, double[] im, double[] x)
+        {
+            ComplexArray[] complex = new ComplexArray[IMPEDANCE + 1];
+            
+            if (quantity <= IMPEDANCE)
+            {
+                complex[quantity] = new ComplexArray(re, im);
+            }
+            
+            return new Result(complex, quantity == MAX_POWER ? x : null, quantity == EXCURSION ? x : null);
+        }
+        
+        // copy part evaluated over slice of frequencies starting at offset
+        private void copy(Result part, int offset)
+        {
+            for (int i = 0; i < complex.length; i++)
+            {
+                if (complex[i] != null)
+                {
+                    System.arraycopy(part.complex[i].re, 0, complex[i].re, offset, part.complex[i].length());
+                    System.arraycopy(part.complex[i].im, 0, complex[i].im, offset, part.complex[i].length());
+                }
+            }
+            
+            if (MaxPower != null)
+            {
+                System.arraycopy(part.MaxPower, 0, MaxPower, offset, part.MaxPower.length);
+            }
+            
+            if (Excursion != null)
+            {
+                System.arraycopy(part.Excursion, 0, Excursion, offset, part.Excursion.length);
+            }
+        }
+        
+        static Result[] create(int count, int length)
+        {
+            Result[] results = new Result[count];
+            
+            for (int i = 0; i < count; i++)
+            {
+                results[i] = new Result(length);
+            }
+            
+            return results;
+        }
+        
+        // copy part evaluated at given points of this result
+        void scatter(Result part, int[] points)
+        {
+            for (int i = 0; i < complex.length; i++)
+            {
+                for (int k = 0; k < points.length; k++)
+                {
+                    complex[i].re[points[k]] = part.complex[i].re[k];
+                    complex[i].im[points[k]] = part.complex[i].im[k];
+                }
+            }
+            
+            for (int k = 0; k < points.length; k++)
+            {
+                MaxPower[points[k]] = part.MaxPower[k];
+                Excursion[points[k]] = part.Excursion[k];
+            }
+        }
+        
+        // new result with values at given points of this result
+        Result gather(int[] points)
+        {
+            Result result = new Result(points.length);
+            
+            for (int i = 0; i < complex.length; i++)
+            {
+                for (int k = 0; k < points.length; k++)
+                {
+                    result.complex[i].re[k] = complex[i].re[points[k]];
+                    result.complex[i].im[k] = complex[i].im[points[k]];
+                }
+            }
+            
+            for (int k = 0; k < points.length; k++)
+            {
+                result.MaxPower[k] = MaxPower[points[k]];
+                result.Excursion[k] = Excursion[points[k]];
+            }
+            
+            return result;
+        }
+        
+        private boolean has(int quantity)
+        {
+            switch (quantity)
+            {
+                case MAX_POWER:
+                    return MaxPower != null;
+                case EXCURSION:
+                    return Excursion != null;
+                default:
+                    return complex[quantity] != null;
+            }
+        }
+    }
+    
+    public boolean contains(IItem item)
+    {
+        return nodes.containsKey(item);
+    }
+    
+    private int node(IItem item)
+    {
+        Integer node = nodes.get(item);
+        
+        if (node == null)
+        {
+            throw new IllegalArgumentException("Item is not part of evaluation plan: " + item);
+        }
+        
+        return node;
+    }
+    
+    private static void evaluate(ISimulation s, int quantity, double[] f, double power, double[] re, double[] im, double[] x)
+    {
+        switch (quantity)
+        {
+            case RESPONSE:
+                s.response(f, re, im);
+                break;
+            case RESPONSE_1W:
+                s.response1W(f, re, im);
+                break;
+            case LISTENING_WINDOW:
+                s.listeningWindowResponse(f, re, im);
+                break;
+            case POWER_RESPONSE:
+                s.powerResponse(f, re, im);
+                break;
+            case RESPONSE_WITH_BAFFLE:
+                s.responseWithBaffle(f, re, im);
+                break;
+            case RESPONSE_WITH_ROOM:
+                s.responseWithRoom(f, re, im);
+                break;
+            case FILTER:
+                ((IItem) s).filter(f, re, im);
+                break;
+            case IMPEDANCE:
+                s.impedance(f, re, im);
+                break;
+            case MAX_POWER:
+                s.maxPower(f, x);
+                break;
+            case EXCURSION:
+                s.excursion(f, power, x);
+                break;
+            default:
+                break;
+        }
+    }
+    
+    private void elements(int from, int to, double[] f, double[][] eRe, double[][] eIm)
+    {
+        for (int n = from; n <= to; n++)
+        {
+            for (int j = stepFirst[n]; j < stepFirst[n] + stepCount[n]; j++)
+            {
+                int e = stepElement[j];
+                
+                if (e < 0 || eRe[e] != null)
+                {
+                    continue;
+                }
+                
+                double[] re = eRe[e] = new double[f.length];
+                double[] im = eIm[e] = new double[f.length];
+                
+                switch (elementType[e])
+                {
+                    case RESISTANCE:
+                        Fnc.fill(re, im, elementR[e]);
+                        break;
+                    
+                    case CAPACITANCE:
+                        for (int k = 0; k < f.length; k++)
+                        {
+                            re[k] = elementR[e];
+                            im[k] = elementX[e] > 0 ? -1 / (2 * Math.PI * f[k] * elementX[e]) : 0;
+                        }
+                        break;
+                    
+                    case INDUCTANCE:
+                        for (int k = 0; k < f.length; k++)
+                        {
+                            re[k] = elementR[e];
+                            im[k] = 2 * Math.PI * f[k] * elementX[e];
+                        }
+                        break;
+                    
+                    case NOTCH:
+                        for (int k = 0; k < f.length; k++)
+                        {
+                            Fnc.set(re, im, k, ((NotchFilter) elementItem[e]).Z(f[k]));
+                        }
+                        break;
+                    
+                    case TABLE:
+                        ((CustomImpedance) elementItem[e]).z(f, re, im);
+                        break;
+                    
+                    case ACTIVE:
+                        for (int k = 0; k < f.length; k++)
+                        {
+                            Fnc.set(re, im, k, ((Amplifier) elementItem[e]).activeFilters(f[k]));
+                        }
+                        break;
+                    
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+    
+    // power passed down the tree, amplifiers pass their own power
+    private void power(int from, int to, double power, double[] p)
+    {
+        p[to] = power;
+        
+        for (int n = to; n >= from; n--)
+        {
+            switch (op[n])
+            {
+                case SUM:
+                    for (int c = childFirst[n]; c < childFirst[n] + childCount[n]; c++)
+                    {
+                        p[children[c]] = p[n];
+                    }
+                    break;
+                
+                case LADDER:
+                    p[input[n]] = Double.isNaN(pe[n]) ? p[n] : pe[n];
+                    break;
+                
+                case SPEAKER:
+                case PROJECT:
+                    p[input[n]] = p[n];
+                    break;
+                
+                default:
+                    break;
+            }
+        }
+    }
+    
+    private Result cached(int n, double[] f, double power)
+    {
+        if (owner[n] == null || stamp[n] == 0)
+        {
+            return null;
+        }
+        
+        List<Entry> entries = cache.get(owner[n]);
+        
+        if (entries != null)
+        {
+            synchronized (entries)
+            {
+                for (Entry entry : entries)
+                {
+                    if (entry.stamp == stamp[n] && entry.power == power && Arrays.equals(entry.f, f))
+                    {
+                        return entry.result;
+                    }
+                }
+            }
+        }
+        
+        return null;
+    }
+    
+    private void store(int n, double[] f, double power, Result result)
+    {
+        List<Entry> entries;
+        
+        synchronized (cache)
+        {
+            entries = cache.get(owner[n]);
+            
+            if (entries == null)
+            {
+                entries = new ArrayList<Entry>();
+                cache.put(owner[n], entries);
+            }
+        }
+        
+        synchronized (entries)
+        {
+            for (int i = entries.size() - 1; i >= 0; i--)
+            {
+                Entry entry = entries.get(i);
+                
+                // older versions of item are not needed anymore
+                if (entry.stamp != stamp[n] || (entry.power == power && Arrays.equals(entry.f, f)))
+                {
+                    entries.remove(i);
+                }
+            }
+            
+            if (entries.size() >= CACHE_SIZE)
+            {
+                entries.remove(0);
+            }
+            
+            entries.add(new Entry(stamp[n], f.clone(), power, result));
+        }
+    }
+    
+    // find largest unchanged subtrees, outputs inside them must be cached too
+    private void lookup(int from, int to, double[] f, double[] p, int[] outputs, Result[] load, boolean[] skip)
+    {
+        for (int n = to; n >= from; n--)
+        {
+            if (skip[n])
+            {
+                continue;
+            }
+            
+            Result result = cached(n, f, p[n]);
+            
+            if (result == null)
+            {
+                continue;
+            }
+            
+            boolean covered = true;
+            
+            for (int o : outputs)
+            {
+                if (o >= start[n] && o < n && cached(o, f, p[o]) == null)
+                {
+                    covered = false;
+                }
+            }
+            
+            if (!covered)
+            {
+                continue;
+            }
+            
+            load[n] = result;
+            
+            for (int m = start[n]; m < n; m++)
+            {
+                skip[m] = true;
+            }
+            
+            for (int o : outputs)
+            {
+                if (o >= start[n] && o < n)
+                {
+                    load[o] = cached(o, f, p[o]);
+                }
+            }
+        }
+    }
+    
+    // evaluates nodes from..to once for all quantities of results, outputs are nodes of results,
+    // with cache all quantities must be requested
+    // simulations see context of plan, also on worker threads
+    private void execute(int from, int to, double[] f, double[] p, int[] outputs, Result[] results, boolean cache)
+    {
+        if (context == null)
+        {
+            executeNodes(from, to, f, p, outputs, results, cache);
+            return;
+        }
+        
+        SimulationContext previous = context.enter();
+        
+        try
+        {
+            executeNodes(from, to, f, p, outputs, results, cache);
+        }
+        finally
+        {
+            SimulationContext.exit(previous);
+        }
+    }
+    
+    private void executeNodes(int from, int to, double[] f, double[] p, int[] outputs, Result[] results, boolean cache)
+    {
+        boolean[] quantity = new boolean[EXCURSION + 1];
+        
+        for (Result result : results)
+        {
+            for (int q = 0; q < quantity.length; q++)
+            {
+                quantity[q] |= result.has(q);
+            }
+        }
+        
+        // excursion of speakers depends on filter
+        quantity[FILTER] |= quantity[EXCURSION];
+        
+        int channels = 0;
+        int[] active = new int[FILTER + 1];
+        
+        for (int q = RESPONSE; q <= FILTER; q++)
+        {
+            if (quantity[q])
+            {
+                active[channels++] = q;
+            }
+        }
+        
+        double[][] eRe = new double[elementType.length][];
+        double[][] eIm = new double[elementType.length][];
+        double[][][] sRe = new double[FILTER + 1][op.length][];
+        double[][][] sIm = new double[FILTER + 1][op.length][];
+        double[][] zRe = new double[op.length][];
+        double[][] zIm = new double[op.length][];
+        double[][] sMaxPower = new double[op.length][];
+        double[][] sExcursion = new double[op.length][];
+        
+        elements(from, to, f, eRe, eIm);
+        
+        // nodes loaded from cache, their subtrees are skipped
+        Result[] load = new Result[op.length];
+        Result[] store = new Result[op.length];
+        boolean[] skip = new boolean[op.length];
+        
+        if (cache)
+        {
+            lookup(from, to, f, p, outputs, load, skip);
+            
+            for (int n = from; n <= to; n++)
+            {
+                if (!skip[n] && load[n] == null && owner[n] != null && stamp[n] != 0)
+                {
+                    store[n] = new Result(f.length);
+                }
+            }
+        }
+        
+        // sources
+        for (int n = from; n <= to; n++)
+        {
+            if ((op[n] != SPEAKER && op[n] != OPAQUE) || skip[n] || load[n] != null)
+            {
+                continue;
+            }
+            
+            ISimulation s = op[n] == SPEAKER ? ((Speaker) item[n]).getSimulation() : item[n];
+            
+            zRe[n] = new double[f.length];
+            zIm[n] = new double[f.length];
+            s.impedance(f, zRe[n], zIm[n]);
+            
+            for (int c = 0; c < channels; c++)
+            {
+                int q = active[c];
+                
+                if (op[n] == SPEAKER && q == FILTER)
+                {
+                    continue;
+                }
+                
+                sRe[q][n] = new double[f.length];
+                sIm[q][n] = new double[f.length];
+                evaluate(s, q, f, p[n], sRe[q][n], sIm[q][n], null);
+            }
+            
+            if (quantity[MAX_POWER])
+            {
+                sMaxPower[n] = new double[f.length];
+                s.maxPower(f, sMaxPower[n]);
+                
+                if (op[n] == SPEAKER)
+                {
+                    PowerFilter filter = Settings.getInstance().PowerFilter;
+                    
+                    for (int k = 0; k < f.length; k++)
+                    {
+                        sMaxPower[n][k] = filter.toFiltered(sMaxPower[n][k], f[k]);
+                    }
+                }
+            }
+            
+            if (quantity[EXCURSION])
+            {
+                sExcursion[n] = new double[f.length];
+                s.excursion(f, p[n], sExcursion[n]);
+            }
+        }
+        
+        double[] zr = new double[op.length];
+        double[] zi = new double[op.length];
+        double[][] rr = new double[FILTER + 1][op.length];
+        double[][] ri = new double[FILTER + 1][op.length];
+        double[] mp = new double[op.length];
+        double[] ex = new double[op.length];
+        double[] fr = rr[FILTER];
+        double[] fi = ri[FILTER];
+        
+        for (int k = 0; k < f.length; k++)
+        {
+            for (int n = from; n <= to; n++)
+            {
+                if (skip[n])
+                {
+                    continue;
+                }
+                
+                if (load[n] != null)
+                {
+                    load(load[n], k, n, zr, zi, rr, ri, mp, ex, active, channels);
+                    continue;
+                }
+                
+                switch (op[n])
+                {
+                    case CONSTANT:
+                    {
+                        zr[n] = Double.MAX_VALUE;
+                        zi[n] = 0;
+                        
+                        for (int c = 0; c < channels; c++)
+                        {
+                            rr[active[c]][n] = active[c] == FILTER ? 0 : 1;
+                            ri[active[c]][n] = 0;
+                        }
+                        
+                        mp[n] = Double.MAX_VALUE;
+                        ex[n] = 0;
+                        break;
+                    }
+                    
+                    case SUM:
+                    {
+                        int first = childFirst[n];
+                        int last = first + childCount[n];
+                        
+                        double yr = 0;
+                        double yi = 0;
+                        double power = Double.MAX_VALUE;
+                        double excursion = 0;
+                        
+                        for (int j = first; j < last; j++)
+                        {
+                            int m = children[j];
+                            double scale = zr[m] * zr[m] + zi[m] * zi[m];
+                            yr += zr[m] / scale;
+                            yi -= zi[m] / scale;
+                            power = Math.min(power, mp[m]);
+                            excursion = Math.max(excursion, ex[m]);
+                        }
+                        
+                        if (first == last)
+                        {
+                            zr[n] = 0;
+                            zi[n] = 0;
+                        }
+                        else
+                        {
+                            double scale = yr * yr + yi * yi;
+                            zr[n] = yr / scale;
+                            zi[n] = -yi / scale;
+                        }
+                        
+                        for (int c = 0; c < channels; c++)
+                        {
+                            double[] r = rr[active[c]];
+                            double[] i = ri[active[c]];
+                            double ar = first == last ? 1 : 0;
+                            double ai = 0;
+                            
+                            for (int j = first; j < last; j++)
+                            {
+                                ar += r[children[j]];
+                                ai += i[children[j]];
+                            }
+                            
+                            r[n] = ar;
+                            i[n] = ai;
+                        }
+                        
+                        mp[n] = power;
+                        ex[n] = excursion;
+                        break;
+                    }
+                    
+                    case LADDER:
+                    {
+                        int s = input[n];
+                        double lr = zr[s];
+                        double li = zi[s];
+                        double tr = 1;
+                        double ti = 0;
+                        
+                        for (int j = stepFirst[n]; j < stepFirst[n] + stepCount[n]; j++)
+                        {
+                            int e = stepElement[j];
+                            double er = e < 0 ? 0 : eRe[e][k];
+                            double ei = e < 0 ? 0 : eIm[e][k];
+                            double qr;
+                            double qi;
+                            
+                            switch (stepType[j])
+                            {
+                                case SERIES:
+                                {
+                                    // t *= l / (l + e), l += e
+                                    double dr = lr + er;
+                                    double di = li + ei;
+                                    double scale = dr * dr + di * di;
+                                    qr = (lr * dr + li * di) / scale;
+                                    qi = (li * dr - lr * di) / scale;
+                                    lr = dr;
+                                    li = di;
+                                    break;
+                                }
+                                
+                                case SHUNT:
+                                {
+                                    // l = l * e / (l + e)
+                                    double mr = lr * er - li * ei;
+                                    double mi = lr * ei + li * er;
+                                    double dr = lr + er;
+                                    double di = li + ei;
+                                    double scale = dr * dr + di * di;
+                                    lr = (mr * dr + mi * di) / scale;
+                                    li = (mi * dr - mr * di) / scale;
+                                    qr = 1;
+                                    qi = 0;
+                                    break;
+                                }
+                                
+                                case UNITY:
+                                {
+                                    double scale = lr * lr + li * li;
+                                    qr = (lr * lr + li * li) / scale;
+                                    qi = (li * lr - lr * li) / scale;
+                                    break;
+                                }
+                                
+                                default:
+                                {
+                                    qr = er;
+                                    qi = ei;
+                                    break;
+                                }
+                            }
+                            
+                            double t = tr * qr - ti * qi;
+                            ti = tr * qi + ti * qr;
+                            tr = t;
+                        }
+                        
+                        zr[n] = lr;
+                        zi[n] = li;
+                        
+                        for (int c = 0; c < channels; c++)
+                        {
+                            double[] r = rr[active[c]];
+                            double[] i = ri[active[c]];
+                            r[n] = r[s] * tr - i[s] * ti;
+                            i[n] = r[s] * ti + i[s] * tr;
+                        }
+                        
+                        double t = Math.hypot(tr, ti);
+                        mp[n] = mp[s] / Math.pow(t, 2);
+                        ex[n] = ex[s] * t;
+                        
+                        if (gain[n] >= 0)
+                        {
+                            mp[n] = Math.min(mp[n] * Math.pow(Math.hypot(eRe[gain[n]][k], eIm[gain[n]][k]), 2), pe[n]);
+                            ex[n] *= Math.hypot(fr[n], fi[n]);
+                        }
+                        break;
+                    }
+                    
+                    case SPEAKER:
+                    {
+                        // impedance divider between children (a) and this driver (b)
+                        int s = input[n];
+                        double ur = zr[s];
+                        double ui = zi[s];
+                        double vr = zRe[n][k];
+                        double vi = zIm[n][k];
+                        double dr = ur + vr;
+                        double di = ui + vi;
+                        double scale = dr * dr + di * di;
+                        double ar = (ur * dr + ui * di) / scale;
+                        double ai = (ui * dr - ur * di) / scale;
+                        double br = (vr * dr + vi * di) / scale;
+                        double bi = (vi * dr - vr * di) / scale;
+                        
+                        zr[n] = dr;
+                        zi[n] = di;
+                        
+                        for (int c = 0; c < channels; c++)
+                        {
+                            int q = active[c];
+                            double[] r = rr[q];
+                            double[] i = ri[q];
+                            double sr = q == FILTER ? 1 : sRe[q][n][k];
+                            double si = q == FILTER ? 0 : sIm[q][n][k];
+                            double x = r[s] * ar - i[s] * ai + sr * br - si * bi;
+                            i[n] = r[s] * ai + i[s] * ar + sr * bi + si * br;
+                            r[n] = x;
+                        }
+                        
+                        if (quantity[MAX_POWER])
+                        {
+                            mp[n] = Math.min(mp[s] / Math.hypot(ar, ai), sMaxPower[n][k] / Math.hypot(br, bi));
+                        }
+                        
+                        if (quantity[EXCURSION])
+                        {
+                            ex[n] = sExcursion[n][k] * Math.hypot(fr[n], fi[n]);
+                        }
+                        break;
+                    }
+                    
+                    case PROJECT:
+                    {
+                        int s = input[n];
+                        zr[n] = 0;
+                        zi[n] = 0;
+                        
+                        for (int c = 0; c < channels; c++)
+                        {
+                            rr[active[c]][n] = rr[active[c]][s];
+                            ri[active[c]][n] = ri[active[c]][s];
+                        }
+                        
+                        mp[n] = mp[s];
+                        ex[n] = ex[s];
+                        break;
+                    }
+                    
+                    default:
+                    {
+                        zr[n] = zRe[n][k];
+                        zi[n] = zIm[n][k];
+                        
+                        for (int c = 0; c < channels; c++)
+                        {
+                            rr[active[c]][n] = sRe[active[c]][n][k];
+                            ri[active[c]][n] = sIm[active[c]][n][k];
+                        }
+                        
+                        mp[n] = quantity[MAX_POWER] ? sMaxPower[n][k] : 0;
+                        ex[n] = quantity[EXCURSION] ? sExcursion[n][k] : 0;
+                        break;
+                    }
+                }
+                
+                if (store[n] != null)
+                {
+                    save(store[n], k, n, zr, zi, rr, ri, mp, ex, active, channels);
+                }
+            }
+            
+            for (int o = 0; o < outputs.length; o++)
+            {
+                int n = outputs[o];
+                Result result = results[o];
+                
+                if (skip[n])
+                {
+                    continue;
+                }
+                
+                for (int c = 0; c < channels; c++)
+                {
+                    ComplexArray x = result.complex[active[c]];
+                    
+                    if (x != null)
+                    {
+                        x.re[k] = rr[active[c]][n];
+                        x.im[k] = ri[active[c]][n];
+                    }
+                }
+                
+                if (result.Impedance != null)
+                {
+                    result.Impedance.re[k] = zr[n];
+                    result.Impedance.im[k] = zi[n];
+                }
+                
+                if (result.MaxPower != null)
+                {
+                    result.MaxPower[k] = mp[n];
+                }
+                
+                if (result.Excursion != null)
+                {
+                    result.Excursion[k] = ex[n];
+                }
+            }
+        }
+        
+        for (int o = 0; o < outputs.length; o++)
+        {
+            if (skip[outputs[o]])
+            {
+                results[o].copy(load[outputs[o]], 0);
+            }
+        }
+        
+        for (int n = from; n <= to; n++)
+        {
+            if (store[n] != null)
+            {
+                store(n, f, p[n], store[n]);
+            }
+        }
+    }
+    
+    private static void load(Result result, int k, int n, double[] zr, double[] zi, double[][] rr, double[][] ri, double[] mp, double[] ex, int[] active, int channels)
+    {
+        zr[n] = result.Impedance.re[k];
+        zi[n] = result.Impedance.im[k];
+        
+        for (int c = 0; c < channels; c++)
+        {
+            rr[active[c]][n] = result.complex[active[c]].re[k];
+            ri[active[c]][n] = result.complex[active[c]].im[k];
+        }
+        
+        mp[n] = result.MaxPower[k];
+        ex[n] = result.Excursion[k];
+    }
+    
+    private static void save(Result result, int k, int n, double[] zr, double[] zi, double[][] rr, double[][] ri, double[] mp, double[] ex, int[] active, int channels)
+    {
+        result.Impedance.re[k] = zr[n];
+        result.Impedance.im[k] = zi[n];
+        
+        for (int c = 0; c < channels; c++)
+        {
+            result.complex[active[c]].re[k] = rr[active[c]][n];
+            result.complex[active[c]].im[k] = ri[active[c]][n];
+        }
+        
+        result.MaxPower[k] = mp[n];
+        result.Excursion[k] = ex[n];
+    }
+    
+    private void execute(int quantity, IItem target, double[] f, double power, double[] re, double[] im, double[] x)
+    {
+        int to = node(target);
+        double[] p = new double[op.length];
+        
+        power(start[to], to, power, p);
+        execute(start[to], to, f, p, new int[] { to }, new Result[] { Result.of(quantity, re, im, x) }, false);
+    }
+    
+    // all quantities of all items in single pass,
+    // excursion is evaluated with given power at every item, as if evaluated separately
+    public Result[] evaluate(double[] f, double power, IItem ... items)
+    {
+        int[] outputs = new int[items.length];
+        Result[] results = new Result[items.length];
+        int from = op.length;
+        int to = 0;
+        
+        for (int i = 0; i < items.length; i++)
+        {
+            outputs[i] = node(items[i]);
+            results[i] = new Result(f.length);
+            from = Math.min(from, start[outputs[i]]);
+            to = Math.max(to, outputs[i]);
+        }
+        
+        // largest subtrees first, so power of outermost item wins
+        Integer[] order = new Integer[items.length];
+        
+        for (int i = 0; i < order.length; i++)
+        {
+            order[i] = i;
+        }
+        
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer a, Integer b)
+            {
+                return Integer.compare(start[outputs[a]] - outputs[a], start[outputs[b]] - outputs[b]);
+            }
+        });
+        
+        double[] p = new double[op.length];
+        Arrays.fill(p, power);
+        
+        for (int i = order.length - 1; i >= 0; i--)
+        {
+            int n = outputs[order[i]];
+            power(start[n], n, power, p);
+        }
+        
+        execute(from, to, f, p, outputs, results, true);
+        
+        // excursion of items below amplifier differs from excursion seen by amplifier
+        double[] q = new double[op.length];
+        
+        for (int i = 0; i < items.length; i++)
+        {
+            int n = outputs[i];
+            power(start[n], n, power, q);
+            
+            for (int m = start[n]; m <= n; m++)
+            {
+                if ((op[m] == SPEAKER || op[m] == OPAQUE) && q[m] != p[m])
+                {
+                    execute(start[n], n, f, q, new int[] { n }, new Result[] { Result.of(EXCURSION, null, null, results[i].Excursion) }, false);
+                    break;
+                }
+            }
+        }
+        
+        return results;
+    }
+    
+    // frequencies are split into slices evaluated in parallel
+    public Result[] evaluate(ForkJoinPool pool, final double[] f, final double power, final IItem ... items) throws InterruptedException
+    {
+        int slices = Math.min(pool.getParallelism(), f.length / MIN_SLICE);
+        
+        if (slices <= 1)
+        {
+            return evaluate(f, power, items);
+        }
+        
+        final Result[] results = new Result[items.length];
+        
+        for (int i = 0; i < items.length; i++)
+        {
+            results[i] = new Result(f.length);
+        }
+        
+        List<Future<?>> tasks = new ArrayList<Future<?>>();
+        
+        for (int s = 0; s < slices; s++)
+        {
+            final int from = f.length * s / slices;
+            final int to = f.length * (s + 1) / slices;
+            
+            tasks.add(pool.submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    Result[] part = evaluate(Arrays.copyOfRange(f, from, to), power, items);
+                    
+                    for (int i = 0; i < results.length; i++)
+                    {
+                        results[i].copy(part[i], from);
+                    }
+                }
+            }));
+        }
+        
+        join(tasks);
+        
+        return results;
+    }
+    
+    // waits for all tasks, on failure or interrupt remaining tasks are cancelled
+    static void join(List<Future<?>> tasks) throws InterruptedException
+    {
+        try
+        {
+            for (Future<?> task : tasks)
+            {
+                task.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            cancel(tasks);
+            throw e;
+        }
+        catch (ExecutionException e)
+        {
+            cancel(tasks);
+            
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            
+            if (e.getCause() instanceof Error)
+            {
+                throw (Error) e.getCause();
+            }
+            
+            throw new RuntimeException(e.getCause());
+        }
+    }
+    
+    private static void cancel(List<Future<?>> tasks)
+    {
+        for (Future<?> task : tasks)
+        {
+            task.cancel(true);
+        }
+    }
+    
+    public Result evaluate(IItem item, double[] f, double power)
+    {
+        return evaluate(f, power, new IItem[] { item })[0];
+    }
+    
+    public void response(IItem item, double[] f, double[] re, double[] im)
+    {
+        execute(RESPONSE, item, f, 0, re, im, null);
+    }
+    
+    public void response1W(IItem item, double[] f, double[] re, double[] im)
+    {
+        execute(RESPONSE_1W, item, f, 0, re, im, null);
+    }
+    
+    public void listeningWindowResponse(IItem item, double[] f, double[] re, double[] im)
+    {
+        execute(LISTENING_WINDOW, item, f, 0, re, im, null);
+    }
+    
+    public void powerResponse(IItem item, double[] f, double[] re, double[] im)
+    {
+        execute(POWER_RESPONSE, item, f, 0, re, im, null);
+    }
+    
+    public void responseWithBaffle(IItem item, double[] f, double[] re, double[] im)
+    {
+        execute(RESPONSE_WITH_BAFFLE, item, f, 0, re, im, null);
+    }
+    
+    public void responseWithRoom(IItem item, double[] f, double[] re, double[] im)
+    {
+        execute(RESPONSE_WITH_ROOM, item, f, 0, re, im, null);
+    }
+    
+    public void filter(IItem item, double[] f, double[] re, double[] im)
+    {
+        execute(FILTER, item, f, 0, re, im, null);
+    }
+    
+    public void impedance(IItem item, double[] f, double[] re, double[] im)
+    {
+        execute(IMPEDANCE, item, f, 0, re, im, null);
+    }
+    
+    public void maxPower(IItem item, double[] f, double[] power)
+    {
+        execute(MAX_POWER, item, f, 0, null, null, power);
+    }
+    
+    public void excursion(IItem item, double[] f, double power, double[] excursion)
+    {
+        execute(EXCURSION, item, f, power, null, null, excursion);
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+public abstract class Filter extends Item implements IFilter
+{
+    // z is impedance of the load (children)
+    protected abstract Complex thisFilter(double f, Complex z);
+    protected abstract Complex thisImpedance(double f, Complex z);
+    
+    protected final Complex loadImpedance(double f)
+    {
+        return super.itemImpedance(f);
+    }
+    
+    protected final void loadImpedance(double[] f, double[] re, double[] im)
+    {
+        super.itemImpedance(f, re, im);
+    }
+    
+    @Override
+    public Complex thisFilter(double f)
+    {
+        return thisFilter(f, loadImpedance(f));
+    }
+    
+    @Override
+    public void thisFilter(double[] f, double[] re, double[] im)
+    {
+        loadImpedance(f, re, im);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            Fnc.set(re, im, i, thisFilter(f[i], new Complex(re[i], im[i])));
+        }
+    }
+    
+    private void multiplyFilter(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        thisFilter(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    protected Complex itemImpedance(double f)
+    {
+        return thisImpedance(f, loadImpedance(f));
+    }
+    
+    @Override
+    protected void itemImpedance(double[] f, double[] re, double[] im)
+    {
+        loadImpedance(f, re, im);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            Fnc.set(re, im, i, thisImpedance(f[i], new Complex(re[i], im[i])));
+        }
+    }
+    
+    @Override
+    protected Complex itemFilter(double f)
+    {
+        return super.itemFilter(f).multiply(thisFilter(f));
+    }
+    
+    @Override
+    protected Complex itemResponse(double f)
+    {
+        return super.itemResponse(f).multiply(thisFilter(f));
+    }
+    
+    @Override
+    protected Complex itemResponse1W(double f)
+    {
+        return super.itemResponse1W(f).multiply(thisFilter(f));
+    }
+    
+    @Override
+    protected Complex itemListeningWindowResponse(double f)
+    {
+        return super.itemListeningWindowResponse(f).multiply(thisFilter(f));
+    }
+    
+    @Override
+    protected Complex itemPowerResponse(double f)
+    {
+        return super.itemPowerResponse(f).multiply(thisFilter(f));
+    }
+    
+    @Override
+    protected Complex itemResponseWithBaffle(double f)
+    {
+        return super.itemResponseWithBaffle(f).multiply(thisFilter(f));
+    }
+    
+    @Override
+    protected Complex itemResponseWithRoom(double f)
+    {
+        return super.itemResponseWithRoom(f).multiply(thisFilter(f));
+    }
+    
+    @Override
+    protected double itemMaxPower(double f)
+    {
+        return super.itemMaxPower(f) / Math.pow(thisFilter(f).abs(), 2);
+    }
+    
+    @Override
+    protected double itemExcursion(double f, double power)
+    {
+        return super.itemExcursion(f, power) * thisFilter(f).abs();
+    }
+    
+    @Override
+    protected void itemFilter(double[] f, double[] re, double[] im)
+    {
+        super.itemFilter(f, re, im);
+        multiplyFilter(f, re, im);
+    }
+    
+    @Override
+    protected void itemResponse(double[] f, double[] re, double[] im)
+    {
+        super.itemResponse(f, re, im);
+        multiplyFilter(f, re, im);
+    }
+    
+    @Override
+    protected void itemResponse1W(double[] f, double[] re, double[] im)
+    {
+        super.itemResponse1W(f, re, im);
+        multiplyFilter(f, re, im);
+    }
+    
+    @Override
+    protected void itemListeningWindowResponse(double[] f, double[] re, double[] im)
+    {
+        super.itemListeningWindowResponse(f, re, im);
+        multiplyFilter(f, re, im);
+    }
+    
+    @Override
+    protected void itemPowerResponse(double[] f, double[] re, double[] im)
+    {
+        super.itemPowerResponse(f, re, im);
+        multiplyFilter(f, re, im);
+    }
+    
+    @Override
+    protected void itemResponseWithBaffle(double[] f, double[] re, double[] im)
+    {
+        super.itemResponseWithBaffle(f, re, im);
+        multiplyFilter(f, re, im);
+    }
+    
+    @Override
+    protected void itemResponseWithRoom(double[] f, double[] re, double[] im)
+    {
+        super.itemResponseWithRoom(f, re, im);
+        multiplyFilter(f, re, im);
+    }
+    
+    @Override
+    protected void itemMaxPower(double[] f, double[] power)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        super.itemMaxPower(f, power);
+        thisFilter(f, r, i);
+        
+        for (int j = 0; j < f.length; j++)
+        {
+            power[j] /= Math.pow(Math.hypot(r[j], i[j]), 2);
+        }
+    }
+    
+    @Override
+    protected void itemExcursion(double[] f, double power, double[] excursion)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        super.itemExcursion(f, power, excursion);
+        thisFilter(f, r, i);
+        
+        for (int j = 0; j < f.length; j++)
+        {
+            excursion[j] *= Math.hypot(r[j], i[j]);
+        }
+    }
+}
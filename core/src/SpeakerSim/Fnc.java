@@ -20,6 +20,7 @@ import java.text.NumberFormat;
 import java.text.ParseException;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.Arrays;
 
 public final class Fnc
 {
@@ -149,11 +150,73 @@ public final class Fnc
         return Complex.multiplyAll(x).divide(Complex.addAll(x));
     }
     
+    public static Complex zParallel(Complex a, Complex b)
+    {
+        return a.multiply(b).divide(a.add(b));
+    }
+    
     public static Complex zSerial(Complex ... x)
     {
         return Complex.addAll(x);
     }
     
+    public static void fill(double[] re, double[] im, double value)
+    {
+        Arrays.fill(re, value);
+        Arrays.fill(im, 0);
+    }
+    
+    public static void fill(double[] re, double[] im, Complex x)
+    {
+        Arrays.fill(re, x.getReal());
+        Arrays.fill(im, x.getImaginary());
+    }
+    
+    public static void set(double[] re, double[] im, int i, Complex x)
+    {
+        re[i] = x.getReal();
+        im[i] = x.getImaginary();
+    }
+    
+    public static void add(double[] re, double[] im, double[] xRe, double[] xIm)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            re[i] += xRe[i];
+            im[i] += xIm[i];
+        }
+    }
+    
+    public static void multiply(double[] re, double[] im, double[] xRe, double[] xIm)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            double r = re[i] * xRe[i] - im[i] * xIm[i];
+            im[i] = re[i] * xIm[i] + im[i] * xRe[i];
+            re[i] = r;
+        }
+    }
+    
+    public static void divide(double[] re, double[] im, double[] xRe, double[] xIm)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            double scale = xRe[i] * xRe[i] + xIm[i] * xIm[i];
+            double r = (re[i] * xRe[i] + im[i] * xIm[i]) / scale;
+            im[i] = (im[i] * xRe[i] - re[i] * xIm[i]) / scale;
+            re[i] = r;
+        }
+    }
+    
+    public static void multiply(double[] re, double[] im, double x)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            re[i] *= x;
+            im[i] *= x;
+        }
+    }
+    
     public static double to360Degress(double x)
     {
         return x < 0 ? x + 360 : x;
@@ -166,79 +229,137 @@ public final class Fnc
     
     public static void averageSmooth(double[] x, int points)
     {
-        int half = points / 2;
+        new Smoothing(x.length, points).smooth(x, 1);
+    }
+    
+    public static void smooth(double[] x, int points)
+    {
+        new Smoothing(x.length, points).smooth(x);
+    }
+    
+    public static double besselJ0(double x)
+    {
+        double ax = Math.abs(x);
         
-        for (int i = 0; i < x.length; i++)
+        if (ax < 8)
         {
-            int start = i - Math.min(half, i);
-            if (x.length - start < points)
-            {
-                start = x.length - points;
-            }
+            double y = x * x;
             
-            double sum = 0;
+            double a = 57568490574.0 + y * (-13362590354.0 + y * (651619640.7 + y * (-11214424.18 + y * (77392.33017 + y * -184.9052456))));
+            double b = 57568490411.0 + y * (1029532985.0 + y * (9494680.718 + y * (59272.64853 + y * (267.8532712 + y))));
             
-            for (int p = 0; p < points; p++)
-            {
-                sum += x[start + p];
-            }
+            return a / b;
+        }
+        else
+        {
+            double z = 8 / ax;
+            double y = z * z;
+            double xx = ax - 0.785398164;
             
-            x[i] = sum / points;
+            double a = 1 + y * (-0.1098628627e-2 + y * (0.2734510407e-4 + y * (-0.2073370639e-5 + y * 0.2093887211e-6)));
+            double b = -0.1562499995e-1 + y * (0.1430488765e-3 + y * (-0.6911147651e-5 + y * (0.7621095161e-6 + y * -0.934935152e-7)));
+            
+            return Math.sqrt(0.636619772 / ax) * (Math.cos(xx) * a - z * Math.sin(xx) * b);
         }
     }
     
-    public static void smooth(double[] x, int points)
-    {
-        averageSmooth(x, points);
-        averageSmooth(x, points);
-        averageSmooth(x, points);
-    }
-    
     public static double besselJn(int n, double x)
     {
         if (n == 0)
         {
-            if (x > 10)
-            {
-                return Math.sqrt(2 / (Math.PI * x))
-                        * (1 - 1 / (16 * x * x) + 53 / (512 * Math.pow(x, 4)))
-                        * Math.cos(x - 0.78539816339744828 - 1 / (8 * x) + 25
-                        / (384 * Math.pow(x, 3)));
-            }
+            return besselJ0(x);
         }
-        else if (n == 1)
+        
+        if (n == 1)
+        {
+            return besselJ1Signed(x);
+        }
+        
+        // upward recurrence is stable above order
+        if (Math.abs(x) > n)
         {
-            if (x > 10)
+            double prev = besselJ0(x);
+            double j = besselJ1Signed(x);
+            
+            for (int k = 1; k < n; k++)
             {
-                return Math.sqrt(2 / (Math.PI * x))
-                        * (1 + 3 / (16 * x * x) + 99 / (512 * Math.pow(x, 4)))
-                        * Math.cos(x - 2.3561944901923448 + 3 / (8 * x) - 21
-                        / (128 * Math.pow(x, 3)));
+                double next = 2 * k / x * j - prev;
+                prev = j;
+                j = next;
             }
+            
+            return j;
         }
-        else if (x > 40)
+        
+        // power series, each term from previous one
+        x /= 2;
+        
+        double term = 1;
+        for (int k = 1; k <= n; k++)
         {
-            return 0;
+            term *= x / k;
         }
         
-        double j = 0;
+        double j = term;
+        double y = -x * x;
         
-        x /= 2;
-        
-        for (int i = 0; i < 55; i++)
+        for (int i = 1; i < 55 && Math.abs(term) > Math.abs(j) * 1e-17; i++)
         {
-            j += Math.pow(-1, i) * Math.pow(x, 2 * i + n) / (factorial(i) * factorial(i + n));
+            term *= y / (i * (double) (i + n));
+            j += term;
         }
         
         return j;
     }
     
+    // Struve H1, power series for small and asymptotic expansion for large arguments
+    public static double struveH1(double x)
+    {
+        double ax = Math.abs(x);
+        
+        if (ax < 16)
+        {
+            double y = ax * ax / 4;
+            double term = y / (0.375 * Math.PI); // (x/2)^2 / (gamma(3/2) * gamma(5/2))
+            double h = term;
+            
+            for (int k = 0; k < 100 && Math.abs(term) > Math.abs(h) * 1e-17; k++)
+            {
+                term *= -y / ((k + 1.5) * (k + 2.5));
+                h += term;
+            }
+            
+            return h;
+        }
+        else
+        {
+            // H1 - Y1
+            double y = 1 / (ax * ax);
+            double d = 2 / Math.PI * (1 + y * (1 + y * (-3 + y * 45)));
+            
+            double z = 8 / ax;
+            y = z * z;
+            double xx = ax - 2.356194491;
+            double a = 1 + y * (0.183105e-2 + y * (-0.3516396496e-4 + y * (0.2457520174e-5 + y * -0.240337019e-6)));
+            double b = 0.04687499995 + y * (-0.2002690873e-3 + y * (0.8449199096e-5 + y * (-0.88228987e-6 + y * 0.105787412e-6)));
+            
+            return Math.sqrt(0.636619772 / ax) * (Math.sin(xx) * a + z * Math.cos(xx) * b) + d;
+        }
+    }
+    
     public static double besselH1(double x)
     {
-        return 0.63661977236758138 - besselJn(0, x) + 0.092958178940651059 * (Math.sin(x) / x) + 0.54084409738353578 * ((1 - Math.cos(x)) / (x * x));
+        return struveH1(x);
     }
     
     public static double besselJ1(double x)
+    {
+        double j = besselJ1Signed(x);
+        return Math.abs(x) < 8 ? j : Math.abs(j);
+    }
+    
+    // J1 with sign also for large arguments
+    static double besselJ1Signed(double x)
     {
         double ax = Math.abs(x);
  
@@ -257,10 +378,10 @@ public final class Fnc
             double y = z * z;
             double xx = ax - 2.356194491;
  
-            x = 1 + y * (0.183105e-2 + y * (-0.3516396496e-4 + y * (0.2457520174e-5 + y * -0.240337019e-6)));
+            double a = 1 + y * (0.183105e-2 + y * (-0.3516396496e-4 + y * (0.2457520174e-5 + y * -0.240337019e-6)));
             y = 0.04687499995 + y * (-0.2002690873e-3 + y * (0.8449199096e-5 + y * (-0.88228987e-6 + y * 0.105787412e-6)));
              
-            return Math.abs(Math.sqrt(0.636619772 / ax) * (Math.cos(xx) * x - z * Math.sin(xx) * y));
+            return Math.signum(x) * Math.sqrt(0.636619772 / ax) * (Math.cos(xx) * a - z * Math.sin(xx) * y);
         }
     }
 
@@ -354,39 +475,7 @@ public final class Fnc
 
     public static double[] calcPhase(double[] frequency, double[] amplitude, double slopeLo, double slopeHi)
     {
-        double lo = Math.log(2 * Math.PI * frequency[0]);
-        double hi = Math.log(2 * Math.PI * frequency[frequency.length - 1]);
-        
-        slopeLo /= 6;
-        slopeHi /= 6;
-        
-        double[] phase = new double[frequency.length];
-        
-        for (int i = 0; i < frequency.length; i++)
-        {
-            double prev_a = Math.log10(amplitude[0]) * Math.log(10);
-            double prev_f = Math.log(frequency[0] / frequency[i]);
-            double sum = 0;
-            
-            for (int j = 1; j < frequency.length; j++)
-            {
-                double a = Math.log10(amplitude[j]) * Math.log(10);
-                double f = Math.log(frequency[j] / frequency[i]);
-                
-                double t = Math.exp(Math.abs((prev_f + f) / 2));
-                t = 2 * Math.log((t + 1) / (t - 1)) / (Math.PI * Math.PI);
-                sum += (a - prev_a) / Math.log(frequency[j] / frequency[j - 1]) * t * (f - prev_f);
-                
-                prev_a = a;
-                prev_f = f;
-            }
-            
-            double x = Math.log(2 * Math.PI * frequency[i]);
-            x = Math.PI * (sum + slopeLo * HilbertBodeTransform.transform(lo - x) + slopeHi * (1 - HilbertBodeTransform.transform(hi - x))) / 2;
-            phase[i] = Math.atan2(Math.sin(x), Math.cos(x));
-        }
-        
-        return phase;
+        return MinimumPhase.calcPhase(frequency, amplitude, slopeLo, slopeHi);
     }
     
     public static void calcGroupDelay(double[] freq, double[] phase, double[] groupDelay)
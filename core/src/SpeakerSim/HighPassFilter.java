@@ -55,25 +55,25 @@ public class HighPassFilter extends PassFilter
     @Override
     public double calcC1(int type, double f)
     {
-        return calcC(C[type][0], super.itemImpedance(f).abs(), f);
+        return calcC(C[type][0], loadImpedance(f).abs(), f);
     }
     
     @Override
     public double calcC2(int type, double f)
     {
-        return calcC(C[type][1], super.itemImpedance(f).abs(), f);
+        return calcC(C[type][1], loadImpedance(f).abs(), f);
     }
     
     @Override
     public double calcL1(int type, double f)
     {
-        return calcL(L[type][0], super.itemImpedance(f).abs(), f);
+        return calcL(L[type][0], loadImpedance(f).abs(), f);
     }
     
     @Override
     public double calcL2(int type, double f)
     {
-        return calcL(L[type][1], super.itemImpedance(f).abs(), f);
+        return calcL(L[type][1], loadImpedance(f).abs(), f);
     }
     
     public HighPassFilter()
@@ -87,12 +87,10 @@ public class HighPassFilter extends PassFilter
     }
     
     @Override
-    public Complex thisFilter(double f)
+    protected Complex thisFilter(double f, Complex z)
     {
         Complex r = new Complex(1);
         
-        Complex z = super.itemImpedance(f);
-        
         if (L2 > 0)
         {
             Complex x = zL2(f);
@@ -118,10 +116,8 @@ public class HighPassFilter extends PassFilter
     }
     
     @Override
-    protected Complex itemImpedance(double f)
+    protected Complex thisImpedance(double f, Complex z)
     {
-        Complex z = super.itemImpedance(f);
-
         if (L2 > 0)
         {
             Complex x = zL2(f);
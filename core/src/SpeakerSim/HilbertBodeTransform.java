@@ -70,15 +70,10 @@ public class HilbertBodeTransform
         return 0;
     }
     
-    private static HilbertBodeTransform inst;
+    private static final HilbertBodeTransform INSTANCE = new HilbertBodeTransform();
     
     public static double transform(double x)
     {
-        if (inst == null)
-        {
-            inst = new HilbertBodeTransform();
-        }
-        
-        return inst.interpolate(x);
+        return INSTANCE.interpolate(x);
     }
 }
@@ -19,4 +19,5 @@ package SpeakerSim;
 public interface IFilter extends IItem
 {
     public Complex thisFilter(double f);
+    public void thisFilter(double[] f, double[] re, double[] im);
 }
@@ -25,6 +25,9 @@ public interface IItem extends ISimulation, JSONable
     public void refresh();
     public void create(JsonValue json);
     public Complex filter(double f);
+    public void filter(double[] f, double[] re, double[] im);
     public void setStatus(Item.Status status);
     public Item.Status getStatus();
+    public void invalidate();
+    public long getVersion();
 }
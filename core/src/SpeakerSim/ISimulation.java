@@ -27,4 +27,15 @@ public interface ISimulation
     public Complex impedance(double f);
     public double maxPower(double f);
     public double excursion(double f, double power);
+    
+    // whole frequency sweep, results are written to the given arrays
+    public void response(double[] f, double[] re, double[] im);
+    public void response1W(double[] f, double[] re, double[] im);
+    public void listeningWindowResponse(double[] f, double[] re, double[] im);
+    public void powerResponse(double[] f, double[] re, double[] im);
+    public void responseWithBaffle(double[] f, double[] re, double[] im);
+    public void responseWithRoom(double[] f, double[] re, double[] im);
+    public void impedance(double[] f, double[] re, double[] im);
+    public void maxPower(double[] f, double[] power);
+    public void excursion(double[] f, double power, double[] excursion);
 }
@@ -19,4 +19,5 @@ package SpeakerSim;
 public interface ISource
 {
     public Complex relativeOffAxis(double f, double horizontalAngle, double verticalAngle, boolean dipole);
+    public void relativeOffAxis(double[] f, double horizontalAngle, double verticalAngle, boolean dipole, double[] re, double[] im);
 }
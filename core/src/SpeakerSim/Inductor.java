@@ -48,22 +48,19 @@ public class Inductor extends Filter
     }
 
     @Override
-    public Complex thisFilter(double f)
+    protected Complex thisFilter(double f, Complex z)
     {
         if (L > 0)
         {
-            Complex z = super.itemImpedance(f);
             return z.divide(z.add(Fnc.zL(L, f)));
         }
 
-        return super.filter(f);
+        return new Complex(1);
     }
 
     @Override
-    protected Complex itemImpedance(double f)
+    protected Complex thisImpedance(double f, Complex z)
     {
-        Complex z = super.itemImpedance(f);
-
         if (L > 0)
         {
             z = z.add(Fnc.zL(L, f));
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Minimal INI reader for driver files of other programs.
+ * Sections are [Name], entries are key=value, lines starting with ; or # are comments.
+ */
+final class IniFile
+{
+    private final Map<String, Map<String, String>> sections = new HashMap<String, Map<String, String>>();
+    
+    public IniFile(File file) throws IOException
+    {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
+        {
+            read(reader);
+        }
+    }
+    
+    public IniFile(Reader reader) throws IOException
+    {
+        read(new BufferedReader(reader));
+    }
+    
+    private void read(BufferedReader reader) throws IOException
+    {
+        Map<String, String> section = null;
+        String line;
+        
+        while ((line = reader.readLine()) != null)
+        {
+            line = line.trim();
+            
+            if (line.isEmpty() || line.startsWith(";") || line.startsWith("#"))
+            {
+                continue;
+            }
+            
+            if (line.startsWith("[") && line.endsWith("]"))
+            {
+                String name = line.substring(1, line.length() - 1).trim();
+                section = sections.get(name);
+                
+                if (section == null)
+                {
+                    section = new HashMap<String, String>();
+                    sections.put(name, section);
+                }
+            }
+            else if (section != null)
+            {
+                int eq = line.indexOf('=');
+                
+                if (eq > 0)
+                {
+                    section.put(line.substring(0, eq).trim(), line.substring(eq + 1).trim());
+                }
+            }
+        }
+    }
+    
+    public Map<String, String> get(String section)
+    {
+        return sections.get(section);
+    }
+}
@@ -19,7 +19,9 @@ package SpeakerSim;
 import com.eclipsesource.json.*;
 import java.lang.reflect.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class Item implements IItem
 {
@@ -30,8 +32,40 @@ public abstract class Item implements IItem
         BYPASSED
     }
     
+    // children impedance of the last evaluated frequency and sweep
+    private static final class ImpedanceMemo
+    {
+        private final double f;
+        private final Complex z;
+        
+        private ImpedanceMemo(double f, Complex z)
+        {
+            this.f = f;
+            this.z = z;
+        }
+    }
+    
+    private static final class ImpedanceSweepMemo
+    {
+        private final double[] f;
+        private final double[] re;
+        private final double[] im;
+        
+        private ImpedanceSweepMemo(double[] f, double[] re, double[] im)
+        {
+            this.f = f;
+            this.re = re;
+            this.im = im;
+        }
+    }
+    
+    private static final AtomicLong VERSIONS = new AtomicLong();
+    
     private List<IItem> children;
     private Status status;
+    private volatile long version = VERSIONS.incrementAndGet();
+    private volatile ImpedanceMemo impedanceMemo;
+    private volatile ImpedanceSweepMemo impedanceSweepMemo;
     
     public Item()
     {
@@ -45,6 +79,19 @@ public abstract class Item implements IItem
         this.status = status;
     }
     
+    // every edit of item must be followed by invalidate, so cached results are recomputed
+    @Override
+    public void invalidate()
+    {
+        version = VERSIONS.incrementAndGet();
+    }
+    
+    @Override
+    public long getVersion()
+    {
+        return version;
+    }
+    
     @Override
     final public Status getStatus()
     {
@@ -53,6 +100,9 @@ public abstract class Item implements IItem
     
     private void childrenRefresh()
     {
+        impedanceMemo = null;
+        impedanceSweepMemo = null;
+        
         for (IItem item: children)
         {
             item.refresh();
@@ -129,6 +179,13 @@ public abstract class Item implements IItem
     
     private Complex childrenImpedance(double f)
     {
+        ImpedanceMemo memo = impedanceMemo;
+        
+        if (memo != null && memo.f == f)
+        {
+            return memo.z;
+        }
+        
         Complex sum = new Complex();
         
         if (children.isEmpty())
@@ -141,7 +198,10 @@ public abstract class Item implements IItem
             sum = sum.add(Complex.divide(1, item.impedance(f)));
         }
         
-        return Complex.divide(1, sum);
+        sum = Complex.divide(1, sum);
+        impedanceMemo = new ImpedanceMemo(f, sum);
+        
+        return sum;
     }
     
     private double childrenMaxPower(double f)
@@ -219,6 +279,171 @@ public abstract class Item implements IItem
         return sum;
     }
     
+    private void childrenResponse(double[] f, double[] re, double[] im)
+    {
+        ComplexArray sum = new ComplexArray(re, im);
+        ComplexArray x = new ComplexArray(f.length);
+        
+        sum.fill(children.isEmpty() ? 1 : 0);
+        
+        for (IItem item: children)
+        {
+            item.response(f, x.re, x.im);
+            sum.add(x);
+        }
+    }
+    
+    private void childrenResponse1W(double[] f, double[] re, double[] im)
+    {
+        ComplexArray sum = new ComplexArray(re, im);
+        ComplexArray x = new ComplexArray(f.length);
+        
+        sum.fill(children.isEmpty() ? 1 : 0);
+        
+        for (IItem item: children)
+        {
+            item.response1W(f, x.re, x.im);
+            sum.add(x);
+        }
+    }
+    
+    private void childrenListeningWindowResponse(double[] f, double[] re, double[] im)
+    {
+        ComplexArray sum = new ComplexArray(re, im);
+        ComplexArray x = new ComplexArray(f.length);
+        
+        sum.fill(children.isEmpty() ? 1 : 0);
+        
+        for (IItem item: children)
+        {
+            item.listeningWindowResponse(f, x.re, x.im);
+            sum.add(x);
+        }
+    }
+    
+    private void childrenPowerResponse(double[] f, double[] re, double[] im)
+    {
+        ComplexArray sum = new ComplexArray(re, im);
+        ComplexArray x = new ComplexArray(f.length);
+        
+        sum.fill(children.isEmpty() ? 1 : 0);
+        
+        for (IItem item: children)
+        {
+            item.powerResponse(f, x.re, x.im);
+            sum.add(x);
+        }
+    }
+    
+    private void childrenResponseWithBaffle(double[] f, double[] re, double[] im)
+    {
+        ComplexArray sum = new ComplexArray(re, im);
+        ComplexArray x = new ComplexArray(f.length);
+        
+        sum.fill(children.isEmpty() ? 1 : 0);
+        
+        for (IItem item: children)
+        {
+            item.responseWithBaffle(f, x.re, x.im);
+            sum.add(x);
+        }
+    }
+    
+    private void childrenResponseWithRoom(double[] f, double[] re, double[] im)
+    {
+        ComplexArray sum = new ComplexArray(re, im);
+        ComplexArray x = new ComplexArray(f.length);
+        
+        sum.fill(children.isEmpty() ? 1 : 0);
+        
+        for (IItem item: children)
+        {
+            item.responseWithRoom(f, x.re, x.im);
+            sum.add(x);
+        }
+    }
+    
+    private void childrenFilter(double[] f, double[] re, double[] im)
+    {
+        ComplexArray sum = new ComplexArray(re, im);
+        ComplexArray x = new ComplexArray(f.length);
+        
+        sum.fill(children.isEmpty() ? 1 : 0);
+        
+        for (IItem item: children)
+        {
+            item.filter(f, x.re, x.im);
+            sum.add(x);
+        }
+    }
+    
+    private void childrenImpedance(double[] f, double[] re, double[] im)
+    {
+        ImpedanceSweepMemo memo = impedanceSweepMemo;
+        
+        if (memo != null && Arrays.equals(memo.f, f))
+        {
+            System.arraycopy(memo.re, 0, re, 0, f.length);
+            System.arraycopy(memo.im, 0, im, 0, f.length);
+            return;
+        }
+        
+        ComplexArray sum = new ComplexArray(re, im);
+        sum.fill(0);
+        
+        if (children.isEmpty())
+        {
+            return;
+        }
+        
+        ComplexArray z = new ComplexArray(f.length);
+        
+        for (IItem item: children)
+        {
+            item.impedance(f, z.re, z.im);
+            z.reciprocal();
+            sum.add(z);
+        }
+        
+        sum.reciprocal();
+        
+        impedanceSweepMemo = new ImpedanceSweepMemo(f.clone(), re.clone(), im.clone());
+    }
+    
+    private void childrenMaxPower(double[] f, double[] power)
+    {
+        Arrays.fill(power, Double.MAX_VALUE);
+        
+        double[] p = new double[f.length];
+        
+        for (IItem item: children)
+        {
+            item.maxPower(f, p);
+            
+            for (int i = 0; i < f.length; i++)
+            {
+                power[i] = Math.min(power[i], p[i]);
+            }
+        }
+    }
+    
+    private void childrenExcursion(double[] f, double power, double[] excursion)
+    {
+        Arrays.fill(excursion, 0);
+        
+        double[] x = new double[f.length];
+        
+        for (IItem item: children)
+        {
+            item.excursion(f, power, x);
+            
+            for (int i = 0; i < f.length; i++)
+            {
+                excursion[i] = Math.max(excursion[i], x[i]);
+            }
+        }
+    }
+    
     private JsonValue childrenToJSON()
     {
         JsonArray array = Json.array().asArray();
@@ -371,6 +596,56 @@ public abstract class Item implements IItem
         return childrenExcursion(f, power);
     }
     
+    protected void itemResponse(double[] f, double[] re, double[] im)
+    {
+        childrenResponse(f, re, im);
+    }
+    
+    protected void itemResponse1W(double[] f, double[] re, double[] im)
+    {
+        childrenResponse1W(f, re, im);
+    }
+    
+    protected void itemListeningWindowResponse(double[] f, double[] re, double[] im)
+    {
+        childrenListeningWindowResponse(f, re, im);
+    }
+    
+    protected void itemPowerResponse(double[] f, double[] re, double[] im)
+    {
+        childrenPowerResponse(f, re, im);
+    }
+    
+    protected void itemResponseWithBaffle(double[] f, double[] re, double[] im)
+    {
+        childrenResponseWithBaffle(f, re, im);
+    }
+    
+    protected void itemResponseWithRoom(double[] f, double[] re, double[] im)
+    {
+        childrenResponseWithRoom(f, re, im);
+    }
+    
+    protected void itemImpedance(double[] f, double[] re, double[] im)
+    {
+        childrenImpedance(f, re, im);
+    }
+    
+    protected void itemFilter(double[] f, double[] re, double[] im)
+    {
+        childrenFilter(f, re, im);
+    }
+    
+    protected void itemMaxPower(double[] f, double[] power)
+    {
+        childrenMaxPower(f, power);
+    }
+    
+    protected void itemExcursion(double[] f, double power, double[] excursion)
+    {
+        childrenExcursion(f, power, excursion);
+    }
+    
     @Override
     final public Complex response(double f)
     {
@@ -510,4 +785,174 @@ public abstract class Item implements IItem
                 return itemExcursion(f, power);
         }
     }
+    
+    @Override
+    final public void response(double[] f, double[] re, double[] im)
+    {
+        switch (status)
+        {
+            case DISCONNECTED:
+                Fnc.fill(re, im, 1);
+                break;
+            case BYPASSED:
+                childrenResponse(f, re, im);
+                break;
+            default:
+                itemResponse(f, re, im);
+                break;
+        }
+    }
+    
+    @Override
+    final public void response1W(double[] f, double[] re, double[] im)
+    {
+        switch (status)
+        {
+            case DISCONNECTED:
+                Fnc.fill(re, im, 1);
+                break;
+            case BYPASSED:
+                childrenResponse1W(f, re, im);
+                break;
+            default:
+                itemResponse1W(f, re, im);
+                break;
+        }
+    }
+    
+    @Override
+    final public void listeningWindowResponse(double[] f, double[] re, double[] im)
+    {
+        switch (status)
+        {
+            case DISCONNECTED:
+                Fnc.fill(re, im, 1);
+                break;
+            case BYPASSED:
+                childrenListeningWindowResponse(f, re, im);
+                break;
+            default:
+                itemListeningWindowResponse(f, re, im);
+                break;
+        }
+    }
+    
+    @Override
+    final public void powerResponse(double[] f, double[] re, double[] im)
+    {
+        switch (status)
+        {
+            case DISCONNECTED:
+                Fnc.fill(re, im, 1);
+                break;
+            case BYPASSED:
+                childrenPowerResponse(f, re, im);
+                break;
+            default:
+                itemPowerResponse(f, re, im);
+                break;
+        }
+    }
+    
+    @Override
+    final public void responseWithBaffle(double[] f, double[] re, double[] im)
+    {
+        switch (status)
+        {
+            case DISCONNECTED:
+                Fnc.fill(re, im, 1);
+                break;
+            case BYPASSED:
+                childrenResponseWithBaffle(f, re, im);
+                break;
+            default:
+                itemResponseWithBaffle(f, re, im);
+                break;
+        }
+    }
+    
+    @Override
+    final public void responseWithRoom(double[] f, double[] re, double[] im)
+    {
+        switch (status)
+        {
+            case DISCONNECTED:
+                Fnc.fill(re, im, 1);
+                break;
+            case BYPASSED:
+                childrenResponseWithRoom(f, re, im);
+                break;
+            default:
+                itemResponseWithRoom(f, re, im);
+                break;
+        }
+    }
+    
+    @Override
+    final public void impedance(double[] f, double[] re, double[] im)
+    {
+        switch (status)
+        {
+            case DISCONNECTED:
+                Fnc.fill(re, im, Double.MAX_VALUE);
+                break;
+            case BYPASSED:
+                childrenImpedance(f, re, im);
+                break;
+            default:
+                itemImpedance(f, re, im);
+                break;
+        }
+    }
+    
+    @Override
+    final public void filter(double[] f, double[] re, double[] im)
+    {
+        switch (status)
+        {
+            case DISCONNECTED:
+                Fnc.fill(re, im, 0);
+                break;
+            case BYPASSED:
+                childrenFilter(f, re, im);
+                break;
+            default:
+                itemFilter(f, re, im);
+                break;
+        }
+    }
+    
+    @Override
+    final public void maxPower(double[] f, double[] power)
+    {
+        switch (status)
+        {
+            case DISCONNECTED:
+                Arrays.fill(power, Double.MAX_VALUE);
+                break;
+            case BYPASSED:
+                childrenMaxPower(f, power);
+                break;
+            default:
+                itemMaxPower(f, power);
+                break;
+        }
+    }
+    
+    @Override
+    final public void excursion(double[] f, double power, double[] excursion)
+    {
+        switch (status)
+        {
+            case DISCONNECTED:
+                Arrays.fill(excursion, 0);
+                break;
+            case BYPASSED:
+                childrenExcursion(f, power, excursion);
+                break;
+            default:
+                itemExcursion(f, power, excursion);
+                break;
+        }
+    }
 }
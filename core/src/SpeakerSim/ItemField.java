@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package SpeakerSim;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+/*
+ * Numeric field of item, for example "C" of capacitor or "BassReflex.Vb" of speaker.
+ * Item is found by its position in tree, so same field can be set on copies of project.
+ * Setting calculated component of pass filter switches filter to custom type.
+ */
+public final class ItemField
+{
+    public final String Field;
+    
+    private final int[] path;
+    private final String name;
+    
+    public ItemField(Project project, IItem item, String field)
+    {
+        Field = field;
+        path = path(project, item);
+        name = item.toString();
+        
+        // fails on unknown field
+        field(owner(item));
+    }
+    
+    // child indices from project to item
+    private static int[] find(IItem parent, IItem item, int depth)
+    {
+        if (parent == item)
+        {
+            return new int[depth];
+        }
+        
+        List<IItem> children = parent.getChildren();
+        
+        for (int i = 0; i < children.size(); i++)
+        {
+            int[] p = find(children.get(i), item, depth + 1);
+            
+            if (p != null)
+            {
+                p[depth] = i;
+                return p;
+            }
+        }
+        
+        return null;
+    }
+    
+    static int[] path(Project project, IItem item)
+    {
+        int[] p = find(project, item, 0);
+        
+        if (p == null)
+        {
+            throw new HandledException(item + " is not in project!");
+        }
+        
+        return p;
+    }
+    
+    // same item in copy of project
+    static IItem getItem(Project project, int[] path)
+    {
+        IItem item = project;
+        
+        for (int i : path)
+        {
+            item = item.getChildren().get(i);
+        }
+        
+        return item;
+    }
+    
+    public IItem getItem(Project project)
+    {
+        return getItem(project, path);
+    }
+    
+    // object that has last part of field
+    private Object owner(IItem item)
+    {
+        String[] parts = Field.split("\\.");
+        Object object = item;
+        
+        try
+        {
+            for (int i = 0; i < parts.length - 1 && object != null; i++)
+            {
+                object = object.getClass().getField(parts[i]).get(object);
+            }
+        }
+        catch (NoSuchFieldException | IllegalAccessException e)
+        {
+            throw new HandledException("Unknown field " + Field + " of " + name + "!", e);
+        }
+        
+        if (object == null)
+        {
+            throw new HandledException("Unknown field " + Field + " of " + name + "!");
+        }
+        
+        return object;
+    }
+    
+    private Field field(Object owner)
+    {
+        try
+        {
+            Field f = owner.getClass().getField(Field.substring(Field.lastIndexOf('.') + 1));
+            
+            if (f.getType() != double.class && f.getType() != int.class)
+            {
+                throw new HandledException(Field + " of " + name + " is not numeric!");
+            }
+            
+            return f;
+        }
+        catch (NoSuchFieldException e)
+        {
+            throw new HandledException("Unknown field " + Field + " of " + name + "!", e);
+        }
+    }
+    
+    public double get(Project project)
+    {
+        Object owner = owner(getItem(project));
+        Field f = field(owner);
+        
+        try
+        {
+            return f.getType() == int.class ? f.getInt(owner) : f.getDouble(owner);
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new HandledException("Unknown field " + Field + " of " + name + "!", e);
+        }
+    }
+    
+    // filter keeps values of its type, same as when component is edited in filter window
+    private static void setCustom(Project project, PassFilter filter)
+    {
+        // copies have no center until simulated
+        if (project.CenterPosition == null)
+        {
+            Curves.center(project, Curves.speakers(project));
+        }
+        
+        project.refresh();
+        filter.setType(PassFilter.TYPES.length - 1);
+    }
+    
+    public void set(Project project, double value)
+    {
+        IItem item = getItem(project);
+        Object owner = owner(item);
+        Field f = field(owner);
+        
+        // otherwise value would be overwritten on refresh
+        if (owner instanceof PassFilter && !((PassFilter) owner).isCustom() && PassFilter.isCalculated(f.getName()))
+        {
+            setCustom(project, (PassFilter) owner);
+        }
+        
+        try
+        {
+            if (f.getType() == int.class)
+            {
+                f.setInt(owner, (int) Math.round(value));
+            }
+            else
+            {
+                f.setDouble(owner, value);
+            }
+            
+            item.invalidate();
+        }
+        catch (IllegalAccessException e)
+        {
+            throw new HandledException("Unknown field " + Field + " of " + name + "!", e);
+        }
+    }
+    
+    @Override
+    public String toString()
+    {
+        return name + " " + Field;
+    }
+}
@@ -53,10 +53,8 @@ public class LPad extends Filter
     }
 
     @Override
-    public Complex thisFilter(double f)
+    protected Complex thisFilter(double f, Complex z)
     {
-        Complex z = super.itemImpedance(f);
-
         if (Rp > 0)
         {
             z = z.multiply(Rp).divide(z.add(Rp));
@@ -67,10 +65,8 @@ public class LPad extends Filter
     }
 
     @Override
-    protected Complex itemImpedance(double f)
+    protected Complex thisImpedance(double f, Complex z)
     {
-        Complex z = super.itemImpedance(f);
-
         if (Rp > 0)
         {
             z = z.multiply(Rp).divide(z.add(Rp));
@@ -98,7 +94,7 @@ public class LPad extends Filter
         
         for (int i = 0; i < freq.length; i++)
         {
-            z[i] = super.itemImpedance(freq[i]).abs();
+            z[i] = loadImpedance(freq[i]).abs();
         }
         
         Fnc.smooth(z, (int)Math.round(Settings.getInstance().pointsPerOctave()));
@@ -64,4 +64,20 @@ public class ListeningWindowSimulation
         
         return sum.divide(s.length / 2);
     }
+    
+    public void response(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        Fnc.fill(re, im, 0);
+        
+        for (PositionSimulation item : s)
+        {
+            item.response(f, r, i);
+            Fnc.add(re, im, r, i);
+        }
+        
+        Fnc.multiply(re, im, 1.0 / (s.length / 2));
+    }
 }
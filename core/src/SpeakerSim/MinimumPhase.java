@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+/*
+ * Minimum phase from amplitude with Bode gain-phase relation.
+ * Log amplitude is resampled to uniform logarithmic frequency grid,
+ * where the relation is a convolution, which is done with FFT.
+ */
+final class MinimumPhase
+{
+    private MinimumPhase()
+    {
+    }
+    
+    private static int powerOfTwo(int n)
+    {
+        int x = 1;
+        
+        while (x < n)
+        {
+            x <<= 1;
+        }
+        
+        return x;
+    }
+    
+    // in place radix-2 FFT, inverse is not scaled
+    private static void fft(double[] re, double[] im, boolean inverse)
+    {
+        int n = re.length;
+        
+        for (int i = 1, j = 0; i < n; i++)
+        {
+            int bit = n >> 1;
+            
+            for (; (j & bit) != 0; bit >>= 1)
+            {
+                j ^= bit;
+            }
+            
+            j ^= bit;
+            
+            if (i < j)
+            {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        
+        for (int len = 2; len <= n; len <<= 1)
+        {
+            double angle = (inverse ? 2 : -2) * Math.PI / len;
+            int half = len >> 1;
+            
+            for (int k = 0; k < half; k++)
+            {
+                double wr = Math.cos(angle * k);
+                double wi = Math.sin(angle * k);
+                
+                for (int i = k; i < n; i += len)
+                {
+                    int j = i + half;
+                    double xr = re[j] * wr - im[j] * wi;
+                    double xi = re[j] * wi + im[j] * wr;
+                    re[j] = re[i] - xr;
+                    im[j] = im[i] - xi;
+                    re[i] += xr;
+                    im[i] += xi;
+                }
+            }
+        }
+    }
+    
+    // weight of log amplitude slope at distance x (in log frequency)
+    private static double kernel(double x)
+    {
+        double t = Math.exp(Math.abs(x));
+        return 2 * Math.log((t + 1) / (t - 1)) / (Math.PI * Math.PI);
+    }
+    
+    // Bode integral of log amplitude at uniform grid points
+    private static double[] integral(double[] a, double step)
+    {
+        int n = a.length;
+        int size = powerOfTwo(2 * n);
+        double[] xRe = new double[size];
+        double[] xIm = new double[size];
+        double[] hRe = new double[size];
+        double[] hIm = new double[size];
+        
+        for (int j = 0; j < n - 1; j++)
+        {
+            xRe[j] = a[j + 1] - a[j];
+        }
+        
+        // slope between j and j + 1 is taken at midpoint, so kernel is never evaluated at 0
+        for (int e = -(n - 2); e <= n - 1; e++)
+        {
+            hRe[(e + size) % size] = kernel((e - 0.5) * step);
+        }
+        
+        fft(xRe, xIm, false);
+        fft(hRe, hIm, false);
+        
+        for (int i = 0; i < size; i++)
+        {
+            double r = xRe[i] * hRe[i] - xIm[i] * hIm[i];
+            xIm[i] = xRe[i] * hIm[i] + xIm[i] * hRe[i];
+            xRe[i] = r;
+        }
+        
+        fft(xRe, xIm, true);
+        
+        double[] sum = new double[n];
+        for (int k = 0; k < n; k++)
+        {
+            sum[k] = xRe[k] / size;
+        }
+        
+        return sum;
+    }
+    
+    // phase in radians, amplitude is linear, slopes (dB/octave) extrapolate amplitude outside of frequency range
+    static double[] calcPhase(double[] frequency, double[] amplitude, double slopeLo, double slopeHi)
+    {
+        int length = frequency.length;
+        double lo = Math.log(2 * Math.PI * frequency[0]);
+        double hi = Math.log(2 * Math.PI * frequency[length - 1]);
+        
+        slopeLo /= 6;
+        slopeHi /= 6;
+        
+        double[] phase = new double[length];
+        double[] sum = new double[length];
+        
+        if (length > 1)
+        {
+            // resample log amplitude to uniform grid of log frequency
+            int n = powerOfTwo(2 * length);
+            double start = Math.log(frequency[0]);
+            double step = (Math.log(frequency[length - 1]) - start) / (n - 1);
+            double[] a = new double[n];
+            
+            int j = 1;
+            double prevU = start;
+            double prevA = Math.log(amplitude[0]);
+            double u = Math.log(frequency[1]);
+            double x = Math.log(amplitude[1]);
+            
+            for (int k = 0; k < n; k++)
+            {
+                double uk = start + k * step;
+                
+                while (uk > u && j < length - 1)
+                {
+                    j++;
+                    prevU = u;
+                    prevA = x;
+                    u = Math.log(frequency[j]);
+                    x = Math.log(amplitude[j]);
+                }
+                
+                a[k] = Fnc.interpolate(prevU, prevA, u, x, Math.min(uk, u));
+            }
+            
+            double[] integral = integral(a, step);
+            
+            // back to original frequencies
+            for (int i = 0; i < length; i++)
+            {
+                double p = (Math.log(frequency[i]) - start) / step;
+                int k = Math.min((int) p, n - 2);
+                sum[i] = Fnc.interpolate(k, integral[k], k + 1, integral[k + 1], p);
+            }
+        }
+        
+        for (int i = 0; i < length; i++)
+        {
+            double x = Math.log(2 * Math.PI * frequency[i]);
+            x = Math.PI * (sum[i] + slopeLo * HilbertBodeTransform.transform(lo - x) + slopeHi * (1 - HilbertBodeTransform.transform(hi - x))) / 2;
+            phase[i] = Math.atan2(Math.sin(x), Math.cos(x));
+        }
+        
+        return phase;
+    }
+}
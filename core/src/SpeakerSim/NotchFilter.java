@@ -63,16 +63,15 @@ public abstract class NotchFilter extends Filter
     }
 
     @Override
-    public Complex thisFilter(double f)
+    protected Complex thisFilter(double f, Complex z)
     {
-        Complex z = super.itemImpedance(f);
         return z.divide(z.add(Z(f)));
     }
 
     @Override
-    protected Complex itemImpedance(double f)
+    protected Complex thisImpedance(double f, Complex z)
     {
-        return super.itemImpedance(f).add(Z(f));
+        return z.add(Z(f));
     }
     
     public String name()
@@ -16,6 +16,8 @@
 
 package SpeakerSim;
 
+import java.util.Arrays;
+
 public class NullSimulation implements ISimulation
 {
     private final Driver driver;
@@ -99,4 +101,101 @@ public class NullSimulation implements ISimulation
     {
         return driver.response(f, horizontalAngle, verticalAngle, false).multiply(room.response(f)).multiply(distance.response(f));
     }
+    
+    @Override
+    public void response(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        driver.response(f, horizontalAngle, verticalAngle, false, re, im);
+        distance.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void response1W(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        driver.response1W(f, re, im);
+        distance.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void listeningWindowResponse(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        driver.response(f, re, im);
+        listeningWindow.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void powerResponse(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        driver.response(f, re, im);
+        powerResponse.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void impedance(double[] f, double[] re, double[] im)
+    {
+        driver.impedance(f, re, im);
+    }
+    
+    @Override
+    public void maxPower(double[] f, double[] power)
+    {
+        double Pe = driver.PeRMS();
+        
+        if (driver.Xmax == 0)
+        {
+            Arrays.fill(power, Pe);
+            return;
+        }
+        
+        excursion(f, Pe, power);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            power[i] = Math.min(Math.pow(driver.Xmax * 1000 / power[i], 2) * Pe, Pe);
+        }
+    }
+    
+    @Override
+    public void excursion(double[] f, double Pe, double[] excursion)
+    {
+        driver.excursion(f, Pe, excursion);
+    }
+    
+    @Override
+    public void responseWithBaffle(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        response(f, re, im);
+        baffle.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void responseWithRoom(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        response(f, re, im);
+        room.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
 }
@@ -16,6 +16,8 @@
 
 package SpeakerSim;
 
+import java.util.Arrays;
+
 public class OpenBaffleSimulation implements ISimulation
 {
     private final Driver driver;
@@ -128,4 +130,122 @@ public class OpenBaffleSimulation implements ISimulation
         
         return x.multiply(distance.response(f));
     }
+    
+    private void quarterWave(double[] f, double[] re, double[] im)
+    {
+        for (int i = 0; i < f.length; i++)
+        {
+            double x = 1 / Math.sqrt(1 + Math.pow(listeningQuarterWave / f[i], 2));
+            re[i] *= x;
+            im[i] *= x;
+        }
+    }
+    
+    @Override
+    public void response(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        driver.normResponse(f, horizontalAngle, verticalAngle, true, re, im);
+        driver.responseSimRelative(f, r, i);
+        Fnc.multiply(re, im, r, i);
+        distance.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void response1W(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        driver.normResponse1W(f, re, im);
+        driver.responseSimRelative(f, r, i);
+        Fnc.multiply(re, im, r, i);
+        distance.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void impedance(double[] f, double[] re, double[] im)
+    {
+        driver.impedance(f, re, im);
+    }
+    
+    @Override
+    public void maxPower(double[] f, double[] power)
+    {
+        double Pe = driver.PeRMS();
+        
+        if (driver.Xmax == 0)
+        {
+            Arrays.fill(power, Pe);
+            return;
+        }
+        
+        excursion(f, Pe, power);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            power[i] = Math.min(Math.pow(driver.Xmax * 1000 / power[i], 2) * Pe, Pe);
+        }
+    }
+    
+    @Override
+    public void listeningWindowResponse(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        driver.normResponse(f, re, im);
+        driver.responseSimRelative(f, r, i);
+        Fnc.multiply(re, im, r, i);
+        listeningWindow.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+        quarterWave(f, re, im);
+    }
+    
+    @Override
+    public void powerResponse(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        driver.normResponse(f, re, im);
+        driver.responseSimRelative(f, r, i);
+        Fnc.multiply(re, im, r, i);
+        powerResponse.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+        quarterWave(f, re, im);
+    }
+    
+    @Override
+    public void excursion(double[] f, double Pe, double[] excursion)
+    {
+        driver.excursion(f, Pe, excursion);
+    }
+    
+    @Override
+    public void responseWithBaffle(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        response(f, re, im);
+        quarterWave(f, re, im);
+        baffle.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
+    
+    @Override
+    public void responseWithRoom(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        response(f, re, im);
+        room.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
 }
@@ -0,0 +1,239 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package SpeakerSim;
+
+import com.eclipsesource.json.Json;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Simulates every combination of values of chosen fields on copies of project.
+ * Variants are simulated in parallel, every variant on its own copy.
+ */
+public final class ParameterSweep
+{
+    public static final class Variant
+    {
+        public final double[] Values;
+        public ResponseMetrics Metrics;
+        public String Error;
+        
+        private Variant(double[] values)
+        {
+            Values = values;
+        }
+    }
+    
+    // reference band of metrics
+    public double Low = 200;
+    public double High = 2000;
+    
+    private final Project project;
+    private final List<ItemField> fields = new ArrayList<ItemField>();
+    private final List<double[]> values = new ArrayList<double[]>();
+    
+    public ParameterSweep(Project project)
+    {
+        this.project = project;
+    }
+    
+    public void add(IItem item, String field, double... v)
+    {
+        if (v.length == 0)
+        {
+            throw new HandledException("No values of " + field + "!");
+        }
+        
+        fields.add(new ItemField(project, item, field));
+        values.add(v);
+    }
+    
+    public static double[] range(double from, double to, int count)
+    {
+        double[] v = new double[count];
+        
+        for (int i = 0; i < count; i++)
+        {
+            v[i] = count > 1 ? from + (to - from) * i / (count - 1) : from;
+        }
+        
+        return v;
+    }
+    
+    // geometric steps, for component values
+    public static double[] logRange(double from, double to, int count)
+    {
+        double[] v = new double[count];
+        
+        for (int i = 0; i < count; i++)
+        {
+            v[i] = count > 1 ? from * Math.pow(to / from, (double) i / (count - 1)) : from;
+        }
+        
+        return v;
+    }
+    
+    public List<ItemField> getFields()
+    {
+        return fields;
+    }
+    
+    public int size()
+    {
+        long n = 1;
+        
+        for (double[] v : values)
+        {
+            n *= v.length;
+            
+            if (n > Integer.MAX_VALUE)
+            {
+                throw new HandledException("Too many variants!");
+            }
+        }
+        
+        return (int) n;
+    }
+    
+    // values of variant, last field changes fastest
+    public double[] values(int index)
+    {
+        double[] v = new double[values.size()];
+        
+        for (int j = v.length - 1; j >= 0; j--)
+        {
+            double[] x = values.get(j);
+            v[j] = x[index % x.length];
+            index /= x.length;
+        }
+        
+        return v;
+    }
+    
+    private void simulate(String json, Variant variant) throws InterruptedException
+    {
+        Project copy = Project.copy(Json.parse(json));
+        
+        for (int j = 0; j < fields.size(); j++)
+        {
+            fields.get(j).set(copy, variant.Values[j]);
+        }
+        
+        variant.Metrics = ResponseMetrics.simulate(copy, Low, High);
+    }
+    
+    // variants in order of values(index), failed variants have Error instead of Metrics
+    public List<Variant> run(int threads) throws InterruptedException
+    {
+        int count = size();
+        final String json;
+        
+        SimulationContext previous = project.getContext().enter();
+        try
+        {
+            json = project.toJSON().toString();
+        }
+        finally
+        {
+            SimulationContext.exit(previous);
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, count)));
+        List<Variant> variants = new ArrayList<Variant>(count);
+        List<Future<?>> tasks = new ArrayList<Future<?>>(count);
+        
+        try
+        {
+            for (int i = 0; i < count; i++)
+            {
+                final Variant variant = new Variant(values(i));
+                variants.add(variant);
+                
+                tasks.add(pool.submit(new Callable<Void>()
+                {
+                    @Override
+                    public Void call() throws Exception
+                    {
+                        simulate(json, variant);
+                        return null;
+                    }
+                }));
+            }
+            
+            for (int i = 0; i < count; i++)
+            {
+                try
+                {
+                    tasks.get(i).get();
+                }
+                catch (ExecutionException ex)
+                {
+                    Throwable cause = ex.getCause();
+                    variants.get(i).Error = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+                }
+            }
+            
+            return variants;
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+    
+    // one row per variant
+    public void writeCSV(PrintWriter writer, List<Variant> variants)
+    {
+        StringBuilder line = new StringBuilder();
+        
+        for (ItemField field : fields)
+        {
+            line.append(Curves.column(field.toString())).append(",");
+        }
+        
+        line.append("\"F3\",\"Ripple\",\"Max SPL\",\"Min impedance\",\"Error\"\r\n");
+        writer.print(line);
+        
+        for (Variant variant : variants)
+        {
+            line.setLength(0);
+            
+            for (double x : variant.Values)
+            {
+                line.append(Curves.number(x)).append(",");
+            }
+            
+            ResponseMetrics m = variant.Metrics;
+            
+            if (m != null)
+            {
+                line.append(Curves.number(m.F3)).append(",").append(Curves.number(m.Ripple)).append(",").append(Curves.number(m.MaxSPL)).append(",").append(Curves.number(m.MinImpedance)).append(",");
+            }
+            else
+            {
+                line.append(",,,,").append(Curves.column(variant.Error));
+            }
+            
+            writer.print(line.append("\r\n"));
+        }
+    }
+}
@@ -61,6 +61,12 @@ public abstract class PassFilter extends Filter
         return isCustom(type);
     }
     
+    // fields calculated from type and frequency on refresh, unless type is custom
+    public static boolean isCalculated(String field)
+    {
+        return field.equals("C1") || field.equals("C2") || field.equals("L1") || field.equals("L2");
+    }
+    
     public static double calcL(double L, double z, double f)
     {
         L = L * z / f;
@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.util.Arrays;
+
+/*
+ * Horizontal or vertical FRD set sampled to angle x frequency grid.
+ * Amplitude and phase are interpolated linearly between measured angles.
+ */
+final class PolarData
+{
+    private final ResponseData[] data;
+    private final boolean horizontal;
+    private final double SPLdiff;
+    private final boolean invert;
+    private final double[] angles;
+    private final double[] freq;
+    private final double[][] amplitude;
+    private final double[][] phase;
+    
+    private PolarData(ResponseData[] data, boolean horizontal, double SPLdiff, boolean invert, double[] freq)
+    {
+        this.data = data;
+        this.horizontal = horizontal;
+        this.SPLdiff = SPLdiff;
+        this.invert = invert;
+        this.freq = freq;
+        
+        angles = new double[data.length];
+        amplitude = new double[data.length][freq.length];
+        phase = new double[data.length][freq.length];
+        
+        double[] re = new double[freq.length];
+        double[] im = new double[freq.length];
+        
+        for (int i = 0; i < data.length; i++)
+        {
+            angles[i] = angle(data[i]);
+            data[i].response(freq, SPLdiff, invert, re, im);
+            
+            for (int j = 0; j < freq.length; j++)
+            {
+                amplitude[i][j] = Math.hypot(re[j], im[j]);
+                phase[i][j] = Math.atan2(im[j], re[j]);
+            }
+        }
+    }
+    
+    // returns polar if it is still valid for data, levels and current frequency grid, otherwise new one
+    static PolarData of(PolarData polar, ResponseData[] data, boolean horizontal, double SPLdiff, boolean invert)
+    {
+        if (data == null)
+        {
+            return null;
+        }
+        
+        double[] freq = Settings.getInstance().freq;
+        
+        if (polar != null && polar.data == data && polar.horizontal == horizontal &&
+            polar.SPLdiff == SPLdiff && polar.invert == invert && polar.isGrid(freq))
+        {
+            return polar;
+        }
+        
+        return new PolarData(data, horizontal, SPLdiff, invert, freq.clone());
+    }
+    
+    private boolean isGrid(double[] f)
+    {
+        return f.length == freq.length && f[0] == freq[0] && f[f.length - 1] == freq[freq.length - 1];
+    }
+    
+    private double angle(ResponseData d)
+    {
+        return horizontal ? d.horizontalAngle : d.verticalAngle;
+    }
+    
+    // index of upper measured angle, -1 if angle is outside of measurements
+    private int upper(double angle)
+    {
+        if (angles[0] > angle)
+        {
+            return -1;
+        }
+        
+        for (int i = 1; i < angles.length; i++)
+        {
+            if (angles[i] >= angle)
+            {
+                return i;
+            }
+        }
+        
+        return -1;
+    }
+    
+    // measurements with only positive angles are symmetrical
+    private double normalize(double angle)
+    {
+        return angles[0] >= 0 ? Math.abs(angle) : angle;
+    }
+    
+    private Complex get(int i, int j, double angle)
+    {
+        return Complex.toComplex
+        (
+            Fnc.interpolate(angles[i - 1], amplitude[i - 1][j], angles[i], amplitude[i][j], angle),
+            Fnc.interpolate(angles[i - 1], phase[i - 1][j], angles[i], phase[i][j], angle)
+        );
+    }
+    
+    // null if angle is outside of measurements
+    public Complex get(double f, double angle)
+    {
+        angle = normalize(angle);
+        int i = upper(angle);
+        
+        if (i < 0)
+        {
+            return null;
+        }
+        
+        int j = Arrays.binarySearch(freq, f);
+        
+        if (j >= 0)
+        {
+            return get(i, j, angle);
+        }
+        
+        // off grid
+        Complex a = data[i - 1].response(f, SPLdiff, invert);
+        Complex b = data[i].response(f, SPLdiff, invert);
+        return Complex.toComplex
+        (
+            Fnc.interpolate(angles[i - 1], a.abs(), angles[i], b.abs(), angle),
+            Fnc.interpolate(angles[i - 1], a.phase(), angles[i], b.phase(), angle)
+        );
+    }
+    
+    // false if angle is outside of measurements
+    public boolean get(double[] f, double angle, double[] re, double[] im)
+    {
+        angle = normalize(angle);
+        int i = upper(angle);
+        
+        if (i < 0)
+        {
+            return false;
+        }
+        
+        int j = -1;
+        for (int k = 0; k < f.length; k++)
+        {
+            // sweeps are usually consecutive points of grid
+            if (j >= 0 && j + 1 < freq.length && freq[j + 1] == f[k])
+            {
+                j++;
+            }
+            else
+            {
+                j = Arrays.binarySearch(freq, f[k]);
+            }
+            
+            Fnc.set(re, im, k, j >= 0 ? get(i, j, angle) : get(f[k], angle));
+        }
+        
+        return true;
+    }
+}
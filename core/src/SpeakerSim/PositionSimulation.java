@@ -43,4 +43,16 @@ public class PositionSimulation
         
         return x;
     }
+    
+    public void response(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        source.relativeOffAxis(f, horizontalAngle, verticalAngle, dipole, re, im);
+        baffle.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+        distance.response(f, r, i);
+        Fnc.multiply(re, im, r, i);
+    }
 }
@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Coarse to fine evaluation of sweep.
+ * Every pass takes every n-th point (and last point) of frequencies,
+ * points evaluated by previous passes are reused.
+ */
+public final class ProgressiveEvaluation
+{
+    private final EvaluationPlan plan;
+    private final double[] freq;
+    private final double power;
+    private final IItem[] items;
+    private final EvaluationPlan.Result[] results;
+    private final boolean[] done;
+    
+    public ProgressiveEvaluation(EvaluationPlan plan, double[] freq, double power, IItem ... items)
+    {
+        this.plan = plan;
+        this.freq = freq;
+        this.power = power;
+        this.items = items;
+        
+        results = EvaluationPlan.Result.create(items.length, freq.length);
+        done = new boolean[freq.length];
+    }
+    
+    // indices of every stride-th point and last point
+    public static int[] points(int length, int stride)
+    {
+        int count = (length + stride - 1) / stride;
+        boolean last = (length - 1) % stride != 0;
+        int[] points = new int[count + (last ? 1 : 0)];
+        
+        for (int i = 0; i < count; i++)
+        {
+            points[i] = i * stride;
+        }
+        
+        if (last)
+        {
+            points[count] = length - 1;
+        }
+        
+        return points;
+    }
+    
+    public static double[] select(double[] x, int[] points)
+    {
+        double[] y = new double[points.length];
+        
+        for (int i = 0; i < points.length; i++)
+        {
+            y[i] = x[points[i]];
+        }
+        
+        return y;
+    }
+    
+    // results of items at points, only points not done by previous passes are evaluated
+    public EvaluationPlan.Result[] evaluate(ForkJoinPool pool, int[] points) throws InterruptedException
+    {
+        int count = 0;
+        
+        for (int i : points)
+        {
+            if (!done[i])
+            {
+                count++;
+            }
+        }
+        
+        if (count > 0)
+        {
+            int[] missing = new int[count];
+            count = 0;
+            
+            for (int i : points)
+            {
+                if (!done[i])
+                {
+                    missing[count++] = i;
+                }
+            }
+            
+            EvaluationPlan.Result[] part = plan.evaluate(pool, select(freq, missing), power, items);
+            
+            for (int j = 0; j < items.length; j++)
+            {
+                results[j].scatter(part[j], missing);
+            }
+            
+            for (int i : missing)
+            {
+                done[i] = true;
+            }
+        }
+        
+        EvaluationPlan.Result[] selected = new EvaluationPlan.Result[items.length];
+        
+        for (int j = 0; j < items.length; j++)
+        {
+            selected[j] = results[j].gather(points);
+        }
+        
+        return selected;
+    }
+}
@@ -36,10 +36,30 @@ public class Project extends Item
     
     private static Project instance;
     private static Date currentVersion;
-    private static final SimpleDateFormat VERSION_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
     
+    // SimpleDateFormat is not thread safe, projects are opened concurrently by batch and copies
+    private static final ThreadLocal<SimpleDateFormat> VERSION_FORMAT = new ThreadLocal<SimpleDateFormat>()
+    {
+        @Override
+        protected SimpleDateFormat initialValue()
+        {
+            return new SimpleDateFormat("yyyy-MM-dd");
+        }
+    };
+    
+    private EvaluationPlan plan;
+    private final SimulationContext context = new SimulationContext(this);
+    
+    // project of context bound to current thread, otherwise last opened project
     public static Project getInstance()
     {
+        SimulationContext context = SimulationContext.current();
+        
+        if (context != null)
+        {
+            return context.getProject();
+        }
+        
         if (instance == null)
         {
             instance = new Project();
@@ -66,7 +86,7 @@ public class Project extends Item
     {
         try
         {
-            return VERSION_FORMAT.parse(version);
+            return VERSION_FORMAT.get().parse(version);
         }
         catch (ParseException ex)
         {
@@ -74,7 +94,7 @@ public class Project extends Item
         }
     }
     
-    public static Date currentVersion()
+    public static synchronized Date currentVersion()
     {
         if (currentVersion == null)
         {
@@ -95,7 +115,7 @@ public class Project extends Item
     
     public static String currentVersionString()
     {
-        return VERSION_FORMAT.format(currentVersion());
+        return VERSION_FORMAT.get().format(currentVersion());
     }
     
     public Project()
@@ -118,15 +138,25 @@ public class Project extends Item
     }
     
     public Project(JsonValue json)
+    {
+        this(json, true);
+    }
+    
+    // copy is not opened, instance is left unchanged
+    private Project(JsonValue json, boolean open)
     {
         JsonObject jsonObj = json.asObject();
         
         Version = parseVersion(jsonObj.getString("Version", ""));
         
         Project p = instance;
+        SimulationContext previous = context.enter();
         try
         {
-            instance = this;
+            if (open)
+            {
+                instance = this;
+            }
             
             Settings = new Settings(jsonObj.get("Settings"));
             Environment = new Environment(jsonObj.get("Environment"));
@@ -138,7 +168,10 @@ public class Project extends Item
         }
         catch (Exception e)
         {
-            instance = p;
+            if (open)
+            {
+                instance = p;
+            }
             
             if (Version.compareTo(currentVersion()) > 0)
             {
@@ -147,10 +180,25 @@ public class Project extends Item
             
             throw e;
         }
+        finally
+        {
+            SimulationContext.exit(previous);
+        }
         
         Version = currentVersion();
     }
     
+    // independent project with own context, for simulating variants on other threads
+    public Project copy()
+    {
+        return new Project(toJSON(), false);
+    }
+    
+    public static Project copy(JsonValue json)
+    {
+        return new Project(json, false);
+    }
+    
     public Project(File file) throws IOException
     {
         this(JSON.open(file));
@@ -186,9 +234,47 @@ public class Project extends Item
         modified = false;
     }
     
+    public SimulationContext getContext()
+    {
+        return context;
+    }
+    
+    @Override
+    public void refresh()
+    {
+        SimulationContext previous = context.enter();
+        
+        try
+        {
+            context.refreshKey();
+            super.refresh();
+            plan = new EvaluationPlan(this, plan, context);
+        }
+        finally
+        {
+            SimulationContext.exit(previous);
+        }
+    }
+    
+    public EvaluationPlan getPlan()
+    {
+        if (plan == null)
+        {
+            plan = new EvaluationPlan(this, null, context);
+        }
+        
+        return plan;
+    }
+    
     @Override
     protected Complex itemImpedance(double f)
     {
         return new Complex();
     }
+    
+    @Override
+    protected void itemImpedance(double[] f, double[] re, double[] im)
+    {
+        Fnc.fill(re, im, 0);
+    }
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.util.Arrays;
+
+/*
+ * Measured data (FRD or ZMA) resampled to frequency grid as linear complex values.
+ * Values outside measured range are clamped to first or last entry.
+ */
+final class ResampledData
+{
+    private final ResponseEntry[] data;
+    private final boolean dB;
+    private final DistanceSimulation distance;
+    private final double[] freq;
+    private final ComplexArray values;
+    
+    private ResampledData(ResponseEntry[] data, boolean dB, DistanceSimulation distance, double[] freq)
+    {
+        this.data = data;
+        this.dB = dB;
+        this.distance = distance;
+        this.freq = freq;
+        
+        values = new ComplexArray(freq.length);
+        for (int i = 0; i < freq.length; i++)
+        {
+            values.set(i, interpolate(freq[i]));
+        }
+    }
+    
+    // returns table if it is still valid for data and current frequency grid, otherwise new one
+    static ResampledData of(ResampledData table, ResponseEntry[] data, boolean dB, DistanceSimulation distance)
+    {
+        double[] freq = Settings.getInstance().freq;
+        
+        if (table != null && table.data == data && table.dB == dB && table.distance == distance && table.isGrid(freq))
+        {
+            return table;
+        }
+        
+        return new ResampledData(data, dB, distance, freq.clone());
+    }
+    
+    // grid is determined by start, end and number of points
+    private boolean isGrid(double[] f)
+    {
+        return f.length == freq.length && f[0] == freq[0] && f[f.length - 1] == freq[freq.length - 1];
+    }
+    
+    public Complex get(double f)
+    {
+        int i = Arrays.binarySearch(freq, f);
+        
+        if (i >= 0)
+        {
+            return values.get(i);
+        }
+        
+        return interpolate(f);
+    }
+    
+    public void get(double[] f, double[] re, double[] im)
+    {
+        int j = -1;
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            // sweeps are usually consecutive points of grid
+            if (j >= 0 && j + 1 < freq.length && freq[j + 1] == f[i])
+            {
+                j++;
+            }
+            else
+            {
+                j = Arrays.binarySearch(freq, f[i]);
+            }
+            
+            if (j >= 0)
+            {
+                re[i] = values.re[j];
+                im[i] = values.im[j];
+            }
+            else
+            {
+                Fnc.set(re, im, i, interpolate(f[i]));
+            }
+        }
+    }
+    
+    public Complex interpolate(double f)
+    {
+        int i = Arrays.binarySearch(data, new ResponseEntry(f, 0, 0));
+        double amplitude;
+        double phase;
+        
+        if (i < 0)
+        {
+            i = -i - 1;
+        }
+        
+        // no lower value
+        if (i == 0)
+        {
+            amplitude = data[0].amplitude;
+            phase = data[0].phase;
+        }
+        // no higher value
+        else if (i == data.length)
+        {
+            amplitude = data[i - 1].amplitude;
+            phase = data[i - 1].phase;
+        }
+        else
+        {
+            amplitude = Fnc.interpolate(data[i - 1].frequency, data[i - 1].amplitude, data[i].frequency, data[i].amplitude, f);
+            phase = Fnc.interpolate(data[i - 1].frequency, data[i - 1].phase, data[i].frequency, data[i].phase, f);
+        }
+        
+        Complex x = Complex.toComplex(dB ? Fnc.toAmplitude(amplitude) : amplitude, Math.toRadians(phase));
+        
+        if (distance != null)
+        {
+            x = x.divide(distance.response(f));
+        }
+        
+        return x;
+    }
+}
@@ -47,16 +47,15 @@ public class Resistor extends Filter
     }
 
     @Override
-    public Complex thisFilter(double f)
+    protected Complex thisFilter(double f, Complex z)
     {
-        Complex z = super.itemImpedance(f);
         return z.divide(z.add(R));
     }
 
     @Override
-    protected Complex itemImpedance(double f)
+    protected Complex thisImpedance(double f, Complex z)
     {
-        return super.itemImpedance(f).add(R);
+        return z.add(R);
     }
     
     @Override
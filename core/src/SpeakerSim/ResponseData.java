@@ -19,8 +19,12 @@ package SpeakerSim;
 import com.eclipsesource.json.*;
 import java.io.*;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class ResponseData implements JSONable, Comparable<ResponseData>
 {
@@ -32,6 +36,8 @@ public class ResponseData implements JSONable, Comparable<ResponseData>
     public double verticalAngle;
     public ResponseEntry[] data;
     private final DistanceSimulation dist;
+    private final DistanceSimulation minimumPhaseDist;
+    private volatile ResampledData table;
     
     public Complex response(double f, double SPLdiff, boolean invert)
     {
@@ -40,47 +46,62 @@ public class ResponseData implements JSONable, Comparable<ResponseData>
         {
             return Complex.toComplex(0.00000000000001, Math.toRadians(data[0].phase));
         }
-
-        for (int i = 1; i < data.length; i++)
+        
+        // no higher value
+        if (data[data.length - 1].frequency < f)
         {
-            if (data[i].frequency >= f)
+            return Complex.toComplex(0.00000000000001, Math.toRadians(data[data.length - 1].phase));
+        }
+        
+        return table().get(f).multiply(gain(SPLdiff, invert));
+    }
+    
+    public void response(double[] f, double SPLdiff, boolean invert, double[] re, double[] im)
+    {
+        table().get(f, re, im);
+        
+        double gain = gain(SPLdiff, invert);
+        for (int i = 0; i < f.length; i++)
+        {
+            if (data[0].frequency > f[i])
             {
-                double amplitude = Fnc.interpolate(data[i - 1].frequency, data[i - 1].amplitude, data[i].frequency, data[i].amplitude, f);
-                double phase = Math.toRadians(Fnc.interpolate(data[i - 1].frequency, data[i - 1].phase, data[i].frequency, data[i].phase, f));
-                
-                if (invert)
-                {
-                    if (phase >= 0)
-                    {
-                        phase -= Math.PI;
-                    }
-                    else
-                    {
-                        phase += Math.PI;
-                    }
-                }
-
-                if (inputIsVoltage)
-                {
-                    amplitude += Fnc.toDecibels(2.83) - Fnc.toDecibels(inputValue);
-                }
-                else
-                {
-                    amplitude += SPLdiff - Fnc.powerToDecibels(inputValue);
-                }
-                
-                Complex x = dist.response(f);
-                if (isMinimumPhase)
-                {
-                    x = Complex.toComplex(x.abs(), 0);
-                }
-
-                return Complex.toComplex(Fnc.toAmplitude(amplitude), phase).divide(x);
+                Fnc.set(re, im, i, Complex.toComplex(0.00000000000001, Math.toRadians(data[0].phase)));
+            }
+            else if (data[data.length - 1].frequency < f[i])
+            {
+                Fnc.set(re, im, i, Complex.toComplex(0.00000000000001, Math.toRadians(data[data.length - 1].phase)));
+            }
+            else
+            {
+                re[i] *= gain;
+                im[i] *= gain;
             }
         }
-
-        // no higher value
-        return Complex.toComplex(0.00000000000001, Math.toRadians(data[data.length - 1].phase));
+    }
+    
+    // inverted phase is same as negative amplitude
+    private double gain(double SPLdiff, boolean invert)
+    {
+        double gain;
+        
+        if (inputIsVoltage)
+        {
+            gain = Fnc.toDecibels(2.83) - Fnc.toDecibels(inputValue);
+        }
+        else
+        {
+            gain = SPLdiff - Fnc.powerToDecibels(inputValue);
+        }
+        
+        return invert ? -Fnc.toAmplitude(gain) : Fnc.toAmplitude(gain);
+    }
+    
+    // data is resampled to frequency grid on first use after data or grid change
+    private ResampledData table()
+    {
+        ResampledData t = ResampledData.of(table, data, true, isMinimumPhase ? minimumPhaseDist : dist);
+        table = t;
+        return t;
     }
     
     public Complex response(double f, double SPLdiff)
@@ -90,113 +111,61 @@ public class ResponseData implements JSONable, Comparable<ResponseData>
     
     public static ResponseEntry[] ImportData(File file, boolean dB) throws IOException
     {
-        List<ResponseEntry> frd = new ArrayList<ResponseEntry>();
-        boolean hasPhase = false;
+        return ResponseParser.parse(file, dB);
+    }
+    
+    // files are parsed in parallel, entries are in order of files
+    public static ResponseEntry[][] ImportData(File[] files, final boolean dB, int threads) throws IOException, InterruptedException
+    {
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, files.length)));
+        List<Future<ResponseEntry[]>> tasks = new ArrayList<Future<ResponseEntry[]>>(files.length);
         
-        try (BufferedReader r = new BufferedReader(new FileReader(file)))
+        try
         {
-            String line;
-            
-            while ((line = r.readLine()) != null)
+            for (final File file : files)
             {
-                line = line.trim();
-                
-                if (!line.isEmpty() && Character.isDigit(line.charAt(0)))
+                tasks.add(pool.submit(new Callable<ResponseEntry[]>()
                 {
-                    ResponseEntry entry = new ResponseEntry(line);
-                    frd.add(entry);
-                    
-                    if (entry.phase != 0)
+                    @Override
+                    public ResponseEntry[] call() throws IOException
                     {
-                        hasPhase = true;
+                        return ResponseParser.parse(file, dB);
                     }
-                }
+                }));
             }
-        }
-        
-        if (frd.isEmpty())
-        {
-            throw new HandledException("File does not contain any entry!");
-        }
-        
-        // sort by frequency
-        Collections.sort(frd);
-        
-        // average value of duplicate frequencies
-        for (int i = 0; i < frd.size(); i++)
-        {
-            ResponseEntry entry = frd.get(i);
-            int next = i + 1;
             
-            for (int dups = 1; next < frd.size(); dups++)
+            ResponseEntry[][] data = new ResponseEntry[files.length][];
+            
+            for (int i = 0; i < data.length; i++)
             {
-                ResponseEntry dup = frd.get(next);
-                
-                if (entry.compareTo(dup) == 0)
+                try
                 {
-                    entry.amplitude += dup.amplitude;
-                    entry.phase += dup.phase;
-                    frd.remove(next);
+                    data[i] = tasks.get(i).get();
                 }
-                else
+                catch (ExecutionException ex)
                 {
-                    if (dups > 1)
+                    Throwable cause = ex.getCause();
+                    
+                    if (cause instanceof IOException)
                     {
-                        entry.amplitude /= dups;
-                        entry.phase /= dups;
-                        frd.set(i, entry);
+                        throw (IOException) cause;
                     }
-                    break;
-                }
-            }
-        }
-        
-        // no phase -> calculate phase from amplitude
-        if (!hasPhase)
-        {
-            double[] frequency = new double[frd.size()];
-            double[] amplitude = new double[frequency.length];
-            
-            int i = 0;
-            for (ResponseEntry entry : frd)
-            {
-                frequency[i] = entry.frequency;
-                amplitude[i] = entry.amplitude;
-                i++;
-            }
-            
-            double slopeLo = Fnc.calcSlopeLo(frequency, amplitude);
-            double slopeHi = Fnc.calcSlopeHi(frequency, amplitude);
-            
-            if (dB)
-            {
-                for (i = 0; i < amplitude.length; i++)
-                {
-                    amplitude[i] = Fnc.toAmplitude(amplitude[i]);
+                    
+                    if (cause instanceof RuntimeException)
+                    {
+                        throw (RuntimeException) cause;
+                    }
+                    
+                    throw new HandledException(cause.toString(), cause);
                 }
             }
             
-            double[] phase = Fnc.calcPhase(frequency, amplitude, slopeLo, slopeHi);
-            
-            ResponseEntry[] array = new ResponseEntry[frequency.length];
-            i = 0;
-            for (ResponseEntry entry : frd)
-            {
-                entry.phase = Math.toDegrees(phase[i]);
-                array[i] = entry;
-                i++;
-            }
-            
-            return array;
+            return data;
         }
-        
-        ResponseEntry[] array = new ResponseEntry[frd.size()];
-        for (int i = 0; i < array.length; i++)
+        finally
         {
-            array[i] = frd.get(i);
+            pool.shutdownNow();
         }
-        
-        return array;
     }
     
     public static void ExportData(ResponseEntry[] frd, File file) throws FileNotFoundException, UnsupportedEncodingException
@@ -251,6 +220,7 @@ public class ResponseData implements JSONable, Comparable<ResponseData>
         }
         
         dist = new DistanceSimulation(distance);
+        minimumPhaseDist = new DistanceSimulation(distance, Double.POSITIVE_INFINITY);
     }
     
     public ResponseData(File file, boolean dB) throws IOException
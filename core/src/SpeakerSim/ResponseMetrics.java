@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package SpeakerSim;
+
+/*
+ * Single number figures of simulated curves, for comparing variants of design.
+ * Reference level is average system response in reference band.
+ */
+public final class ResponseMetrics
+{
+    public final double F3; // frequency below reference band where response falls 3 dB under reference level, NaN if it does not inside simulated range
+    public final double Ripple; // difference between highest and lowest response in reference band (dB)
+    public final double MaxSPL; // lowest max SPL from F3 (or start of simulated range) to end of reference band (dB)
+    public final double MinImpedance; // lowest impedance in whole frequency range (ohms)
+    
+    public ResponseMetrics(Curves c, double low, double high)
+    {
+        this(c, min(c.Impedance), low, high);
+    }
+    
+    private ResponseMetrics(Curves c, double minImpedance, double low, double high)
+    {
+        double[] freq = c.Frequencies;
+        double min;
+        MinImpedance = minImpedance;
+        
+        if (!c.hasResponse())
+        {
+            F3 = Double.NaN;
+            Ripple = Double.NaN;
+            MaxSPL = Double.NaN;
+            return;
+        }
+        
+        int[] band = band(freq, low, high);
+        double[] r = c.SystemResponse;
+        double max = -Double.MAX_VALUE;
+        min = Double.MAX_VALUE;
+        
+        for (int i = band[0]; i <= band[1]; i++)
+        {
+            max = Math.max(max, r[i]);
+            min = Math.min(min, r[i]);
+        }
+        
+        Ripple = max - min;
+        
+        F3 = f3(freq, r, low, high);
+        
+        // without F3 whole range below reference band is usable
+        double from = Double.isNaN(F3) ? freq[0] : F3;
+        
+        min = Double.MAX_VALUE;
+        for (int i = 0; i <= band[1]; i++)
+        {
+            if (freq[i] >= from)
+            {
+                min = Math.min(min, c.MaxSPL[i]);
+            }
+        }
+        
+        MaxSPL = min;
+    }
+    
+    // first and last index of reference band
+    static int[] band(double[] freq, double low, double high)
+    {
+        int start = 0;
+        int end = freq.length - 1;
+        
+        while (start < end && freq[start] < low)
+        {
+            start++;
+        }
+        
+        while (end > start && freq[end] > high)
+        {
+            end--;
+        }
+        
+        return new int[] { start, end };
+    }
+    
+    // response (dB) is needed up to end of reference band, NaN if it does not fall 3 dB under average of band
+    static double f3(double[] freq, double[] dB, double low, double high)
+    {
+        int[] band = band(freq, low, high);
+        int start = band[0];
+        double sum = 0;
+        
+        for (int i = start; i <= band[1]; i++)
+        {
+            sum += dB[i];
+        }
+        
+        // search down from reference band, interpolate on log frequency
+        double level = sum / (band[1] - start + 1) - 3;
+        
+        for (int i = start; i > 0; i--)
+        {
+            if (dB[i - 1] < level)
+            {
+                double t = dB[i] > level ? (level - dB[i - 1]) / (dB[i] - dB[i - 1]) : 1;
+                return freq[i - 1] * Math.pow(freq[i] / freq[i - 1], t);
+            }
+        }
+        
+        return Double.NaN;
+    }
+    
+    private static double min(double[] x)
+    {
+        double min = Double.MAX_VALUE;
+        
+        for (double v : x)
+        {
+            min = Math.min(min, v);
+        }
+        
+        return min;
+    }
+    
+    // system response of project, impedance is lowest load of amplifiers
+    public static ResponseMetrics simulate(Project project, double low, double high) throws InterruptedException
+    {
+        Curves c = Curves.simulate(null, project, project);
+        double min = Double.MAX_VALUE;
+        
+        SimulationContext previous = project.getContext().enter();
+        try
+        {
+            for (IItem amplifier : project.getChildren())
+            {
+                min = Math.min(min, min(Curves.impedance(project.getPlan(), c.Frequencies, amplifier).Impedance));
+            }
+        }
+        finally
+        {
+            SimulationContext.exit(previous);
+        }
+        
+        return new ResponseMetrics(c, min, low, high);
+    }
+}
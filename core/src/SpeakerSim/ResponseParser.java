@@ -0,0 +1,488 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package SpeakerSim;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/*
+ * Reader of FRD and ZMA files, lines are frequency, amplitude and optional phase.
+ * File is read to buffer at once and numbers are parsed from bytes into primitive arrays,
+ * strings are made only for numbers that are not plain decimal (fallback to Fnc.parseDouble).
+ */
+final class ResponseParser
+{
+    private static final double[] POW10 =
+    {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    
+    private final byte[] buf;
+    private final int[] start = new int[4];
+    private final int[] end = new int[4];
+    
+    private double[] frequency = new double[256];
+    private double[] amplitude = new double[256];
+    private double[] phase = new double[256];
+    private int size;
+    private boolean hasPhase;
+    
+    private ResponseParser(byte[] buf)
+    {
+        this.buf = buf;
+    }
+    
+    private static byte[] read(File file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            long length = channel.size();
+            
+            if (length > Integer.MAX_VALUE - 8)
+            {
+                throw new HandledException("File is too large!");
+            }
+            
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0)
+            {
+            }
+            
+            return buffer.position() == buffer.capacity() ? buffer.array() : Arrays.copyOf(buffer.array(), buffer.position());
+        }
+    }
+    
+    private static boolean isSpace(int c)
+    {
+        return c <= ' ' && c >= 0;
+    }
+    
+    // splits line to at most 3 fields, returns number of fields or 4 if there are more
+    private int split(int from, int to, boolean comma)
+    {
+        int n = 0;
+        int i = from;
+        
+        while (i < to)
+        {
+            if (n == 4)
+            {
+                return n;
+            }
+            
+            start[n] = i;
+            
+            if (comma)
+            {
+                while (i < to && buf[i] != ',')
+                {
+                    i++;
+                }
+                
+                end[n++] = i++;
+                
+                // field after last comma
+                if (i == to && buf[to - 1] == ',')
+                {
+                    break;
+                }
+            }
+            else
+            {
+                while (i < to && !isSpace(buf[i]) && buf[i] != ';')
+                {
+                    i++;
+                }
+                
+                end[n++] = i;
+                
+                while (i < to && (isSpace(buf[i]) || buf[i] == ';'))
+                {
+                    i++;
+                }
+            }
+        }
+        
+        return n;
+    }
+    
+    private double number(int k)
+    {
+        int from = start[k];
+        int to = end[k];
+        
+        while (from < to && isSpace(buf[from]))
+        {
+            from++;
+        }
+        
+        while (to > from && isSpace(buf[to - 1]))
+        {
+            to--;
+        }
+        
+        double x = decimal(from, to);
+        
+        // same rules as Fnc.parseDouble, for numbers in other formats
+        if (Double.isNaN(x))
+        {
+            return Fnc.parseDouble(new String(buf, from, to - from, StandardCharsets.ISO_8859_1));
+        }
+        
+        return x;
+    }
+    
+    // plain decimal numbers with up to 15 digits, which are exact in double, NaN otherwise
+    private double decimal(int from, int to)
+    {
+        int dot = -1;
+        int comma = -1;
+        
+        for (int i = from; i < to; i++)
+        {
+            if (buf[i] == '.' && dot == -1)
+            {
+                dot = i;
+            }
+            else if (buf[i] == ',' && comma == -1)
+            {
+                comma = i;
+            }
+        }
+        
+        // 1.234.567,89 or 1,234,567.89
+        byte point = dot < comma ? (byte) ',' : (byte) '.';
+        byte separator = dot < comma ? (byte) '.' : (byte) ',';
+        
+        int i = from;
+        boolean negative = false;
+        
+        if (i < to && (buf[i] == '-' || buf[i] == '+'))
+        {
+            negative = buf[i++] == '-';
+        }
+        
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+        boolean fraction = false;
+        
+        for (; i < to; i++)
+        {
+            byte c = buf[i];
+            
+            if (c >= '0' && c <= '9')
+            {
+                any = true;
+                
+                if (mantissa != 0 || c != '0')
+                {
+                    if (++digits > 15)
+                    {
+                        return Double.NaN;
+                    }
+                    
+                    mantissa = mantissa * 10 + (c - '0');
+                }
+                
+                if (fraction)
+                {
+                    exponent--;
+                }
+            }
+            else if (c == point && !fraction)
+            {
+                fraction = true;
+            }
+            else if (c != separator)
+            {
+                break;
+            }
+        }
+        
+        if (!any)
+        {
+            return Double.NaN;
+        }
+        
+        if (i < to)
+        {
+            if (buf[i] != 'e' && buf[i] != 'E')
+            {
+                return Double.NaN;
+            }
+            
+            i++;
+            boolean negativeExp = false;
+            
+            if (i < to && (buf[i] == '-' || buf[i] == '+'))
+            {
+                negativeExp = buf[i++] == '-';
+            }
+            
+            if (i == to || to - i > 3)
+            {
+                return Double.NaN;
+            }
+            
+            int exp = 0;
+            
+            for (; i < to; i++)
+            {
+                if (buf[i] < '0' || buf[i] > '9')
+                {
+                    return Double.NaN;
+                }
+                
+                exp = exp * 10 + (buf[i] - '0');
+            }
+            
+            exponent += negativeExp ? -exp : exp;
+        }
+        
+        double x = mantissa;
+        
+        if (mantissa != 0)
+        {
+            if (exponent < -22 || exponent > 22)
+            {
+                return Double.NaN;
+            }
+            
+            x = exponent < 0 ? x / POW10[-exponent] : x * POW10[exponent];
+        }
+        
+        return negative ? -x : x;
+    }
+    
+    private void add(double f, double a, double p)
+    {
+        if (size == frequency.length)
+        {
+            frequency = Arrays.copyOf(frequency, size * 2);
+            amplitude = Arrays.copyOf(amplitude, size * 2);
+            phase = Arrays.copyOf(phase, size * 2);
+        }
+        
+        frequency[size] = f;
+        amplitude[size] = a;
+        phase[size] = p;
+        size++;
+        
+        if (p != 0)
+        {
+            hasPhase = true;
+        }
+    }
+    
+    private void lines()
+    {
+        int length = buf.length;
+        int i = 0;
+        
+        while (i < length)
+        {
+            int to = i;
+            
+            while (to < length && buf[to] != '\n' && buf[to] != '\r')
+            {
+                to++;
+            }
+            
+            int next = to + 1;
+            
+            while (i < to && isSpace(buf[i]))
+            {
+                i++;
+            }
+            
+            while (to > i && isSpace(buf[to - 1]))
+            {
+                to--;
+            }
+            
+            // lines of headers and comments don't start with digit
+            if (i < to && buf[i] >= '0' && buf[i] <= '9')
+            {
+                int n = split(i, to, false);
+                
+                if (n != 2 && n != 3)
+                {
+                    n = split(i, to, true);
+                    
+                    if (n != 2 && n != 3)
+                    {
+                        throw new HandledException("FRD or ZMA file is invalid!");
+                    }
+                }
+                
+                add(number(0), number(1), n == 3 ? number(2) : 0);
+            }
+            
+            i = next;
+        }
+    }
+    
+    // stable merge sort of indexes by frequency, so duplicates are averaged in order of file
+    private int[] order()
+    {
+        int[] index = new int[size];
+        boolean sorted = true;
+        
+        for (int i = 0; i < size; i++)
+        {
+            index[i] = i;
+            
+            if (i > 0 && frequency[i - 1] > frequency[i])
+            {
+                sorted = false;
+            }
+        }
+        
+        if (sorted)
+        {
+            return index;
+        }
+        
+        int[] tmp = new int[size];
+        
+        for (int width = 1; width < size; width *= 2)
+        {
+            for (int lo = 0; lo < size; lo += 2 * width)
+            {
+                int mid = Math.min(lo + width, size);
+                int hi = Math.min(lo + 2 * width, size);
+                int a = lo;
+                int b = mid;
+                
+                for (int k = lo; k < hi; k++)
+                {
+                    if (a < mid && (b >= hi || frequency[index[a]] <= frequency[index[b]]))
+                    {
+                        tmp[k] = index[a++];
+                    }
+                    else
+                    {
+                        tmp[k] = index[b++];
+                    }
+                }
+            }
+            
+            int[] t = index;
+            index = tmp;
+            tmp = t;
+        }
+        
+        return index;
+    }
+    
+    private ResponseEntry[] entries(boolean dB)
+    {
+        if (size == 0)
+        {
+            throw new HandledException("File does not contain any entry!");
+        }
+        
+        int[] index = order();
+        double[] f = new double[size];
+        double[] a = new double[size];
+        double[] p = new double[size];
+        int n = 0;
+        
+        // average value of duplicate frequencies, in one pass over sorted entries
+        for (int i = 0; i < size;)
+        {
+            int j = index[i];
+            double sumA = amplitude[j];
+            double sumP = phase[j];
+            int dups = 1;
+            
+            for (i++; i < size && frequency[index[i]] == frequency[j]; i++, dups++)
+            {
+                sumA += amplitude[index[i]];
+                sumP += phase[index[i]];
+            }
+            
+            f[n] = frequency[j];
+            a[n] = dups > 1 ? sumA / dups : sumA;
+            p[n] = dups > 1 ? sumP / dups : sumP;
+            n++;
+        }
+        
+        if (n < size)
+        {
+            f = Arrays.copyOf(f, n);
+            a = Arrays.copyOf(a, n);
+            p = Arrays.copyOf(p, n);
+        }
+        
+        // no phase -> calculate phase from amplitude
+        if (!hasPhase)
+        {
+            double slopeLo = Fnc.calcSlopeLo(f, a);
+            double slopeHi = Fnc.calcSlopeHi(f, a);
+            double[] amp = a;
+            
+            if (dB)
+            {
+                amp = new double[n];
+                
+                for (int i = 0; i < n; i++)
+                {
+                    amp[i] = Fnc.toAmplitude(a[i]);
+                }
+            }
+            
+            p = Fnc.calcPhase(f, amp, slopeLo, slopeHi);
+            
+            for (int i = 0; i < n; i++)
+            {
+                p[i] = Math.toDegrees(p[i]);
+            }
+        }
+        
+        ResponseEntry[] array = new ResponseEntry[n];
+        
+        for (int i = 0; i < n; i++)
+        {
+            array[i] = new ResponseEntry(f[i], a[i], p[i]);
+        }
+        
+        return array;
+    }
+    
+    public static ResponseEntry[] parse(byte[] data, boolean dB)
+    {
+        ResponseParser parser = new ResponseParser(data);
+        parser.lines();
+        return parser.entries(dB);
+    }
+    
+    public static ResponseEntry[] parse(File file, boolean dB) throws IOException
+    {
+        return parse(read(file), dB);
+    }
+}
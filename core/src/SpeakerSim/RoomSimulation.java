@@ -88,4 +88,34 @@ public class RoomSimulation
         
         return r;
     }
+    
+    public void response(double[] f, double[] re, double[] im)
+    {
+        double[] r = new double[f.length];
+        double[] i = new double[f.length];
+        
+        Fnc.fill(re, im, 1);
+        
+        for (int w = 0; w < wallSource.length; w++)
+        {
+            wallSource[w].response(f, r, i);
+            
+            for (int j = 0; j < f.length; j++)
+            {
+                double x = wall[w] / (speedOfSound / f[j]);
+                double sinc = Math.sin(x) / x;
+                re[j] += r[j] * sinc;
+                im[j] += i[j] * sinc;
+            }
+        }
+        
+        for (int w = wallSource.length - 1; w < wall.length; w++)
+        {
+            for (int j = 0; j < f.length; j++)
+            {
+                double x = wall[w] / (speedOfSound / f[j]);
+                re[j] += Math.sin(x) / x;
+            }
+        }
+    }
 }
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+/*
+ * Everything besides items, that simulations depend on: settings, environment,
+ * frequency grid and positions of project.
+ * Context is bound to thread during refresh and evaluation, so Project.getInstance(),
+ * Settings.getInstance() and Environment.getInstance() return values of project
+ * being simulated, and several projects can be simulated concurrently.
+ */
+public final class SimulationContext
+{
+    private static final ThreadLocal<SimulationContext> CURRENT = new ThreadLocal<SimulationContext>();
+    
+    private final Project project;
+    private volatile String key;
+    
+    public SimulationContext(Project project)
+    {
+        this.project = project;
+    }
+    
+    public Project getProject()
+    {
+        return project;
+    }
+    
+    public Settings getSettings()
+    {
+        return project.Settings;
+    }
+    
+    public Environment getEnvironment()
+    {
+        return project.Environment;
+    }
+    
+    public double[] getFrequencies()
+    {
+        return project.Settings.freq;
+    }
+    
+    public Position getListeningPosition()
+    {
+        return project.ListeningPosition;
+    }
+    
+    public Position getCenterPosition()
+    {
+        return project.CenterPosition;
+    }
+    
+    // snapshot of context, taken on refresh, equal keys mean equal simulation results
+    public String getKey()
+    {
+        if (key == null)
+        {
+            refreshKey();
+        }
+        
+        return key;
+    }
+    
+    void refreshKey()
+    {
+        key = project.Settings.toJSON().toString() + project.Environment.toJSON() + project.ListeningPosition.toJSON() +
+              (project.CenterPosition != null ? project.CenterPosition.toJSON() : "");
+    }
+    
+    // context bound to current thread, null if none
+    public static SimulationContext current()
+    {
+        return CURRENT.get();
+    }
+    
+    // binds context to current thread, previous context must be restored with exit
+    public SimulationContext enter()
+    {
+        SimulationContext previous = CURRENT.get();
+        CURRENT.set(this);
+        return previous;
+    }
+    
+    public static void exit(SimulationContext previous)
+    {
+        if (previous == null)
+        {
+            CURRENT.remove();
+        }
+        else
+        {
+            CURRENT.set(previous);
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/*
+ * Repeated moving average in linear time, windows are computed once per grid.
+ */
+public final class Smoothing
+{
+    private static final int PASSES = 3;
+    
+    private final int[] start; // inclusive
+    private final int[] end; // exclusive
+    
+    // 1/fraction octave window around each frequency
+    public Smoothing(double[] freq, double fraction)
+    {
+        double ratio = Math.pow(2, 1 / (2 * fraction));
+        start = new int[freq.length];
+        end = new int[freq.length];
+        
+        int lo = 0;
+        int hi = 0;
+        
+        for (int i = 0; i < freq.length; i++)
+        {
+            while (freq[lo] * ratio < freq[i])
+            {
+                lo++;
+            }
+            
+            while (hi < freq.length && freq[hi] <= freq[i] * ratio)
+            {
+                hi++;
+            }
+            
+            start[i] = lo;
+            end[i] = Math.max(hi, i + 1);
+        }
+    }
+    
+    // window of fixed number of points, shifted at ends
+    public Smoothing(int length, int points)
+    {
+        points = Math.max(1, Math.min(points, length));
+        int half = points / 2;
+        start = new int[length];
+        end = new int[length];
+        
+        for (int i = 0; i < length; i++)
+        {
+            int s = i - Math.min(half, i);
+            if (length - s < points)
+            {
+                s = length - points;
+            }
+            
+            start[i] = s;
+            end[i] = s + points;
+        }
+    }
+    
+    // y is average of x, x is left unchanged
+    // windows only move forward, so window is kept as two parts without subtracting values that left it:
+    // front with suffix sums made when back is moved to it, and back with running sum
+    private void average(double[] x, double[] y, double[] suffix)
+    {
+        int mid = 0; // front is [start, mid), back is [mid, end)
+        int e = 0;
+        double back = 0;
+        
+        for (int i = 0; i < x.length; i++)
+        {
+            int s = start[i];
+            
+            while (e < end[i])
+            {
+                back += x[e++];
+            }
+            
+            if (s >= mid)
+            {
+                double sum = 0;
+                
+                for (int j = e - 1; j >= s; j--)
+                {
+                    sum += x[j];
+                    suffix[j] = sum;
+                }
+                
+                mid = e;
+                back = 0;
+            }
+            
+            y[i] = (suffix[s] + back) / (e - s);
+        }
+    }
+    
+    public void smooth(double[] x, int passes)
+    {
+        double[] y = new double[x.length];
+        double[] suffix = new double[x.length];
+        
+        for (int p = 0; p < passes; p++)
+        {
+            average(x, y, suffix);
+            System.arraycopy(y, 0, x, 0, x.length);
+        }
+    }
+    
+    public void smooth(double[] x)
+    {
+        smooth(x, PASSES);
+    }
+    
+    // curves are smoothed in parallel
+    public void smooth(ForkJoinPool pool, List<double[]> curves) throws InterruptedException
+    {
+        List<Future<?>> tasks = new ArrayList<Future<?>>();
+        
+        for (final double[] x : curves)
+        {
+            tasks.add(pool.submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    smooth(x);
+                }
+            }));
+        }
+        
+        EvaluationPlan.join(tasks);
+    }
+}
@@ -40,6 +40,8 @@ public class Speaker extends Item
     public Aperiodic Aperiodic;
     
     private ISimulation simulation;
+    private long simulationVersion;
+    private String simulationContext;
     
     @Override
     public final void refresh()
@@ -48,6 +50,15 @@ public class Speaker extends Item
         
         Project project = Project.getInstance();
         
+        // simulation is still valid
+        if (simulation != null && simulationVersion == getVersion() && project.getContext().getKey().equals(simulationContext))
+        {
+            return;
+        }
+        
+        simulationVersion = getVersion();
+        simulationContext = project.getContext().getKey();
+        
         if (Driver.Closed)
         {
             simulation = new NullSimulation(project.Environment, Driver, Baffle, Position, project.CenterPosition, project.ListeningPosition);
@@ -106,6 +117,7 @@ public class Speaker extends Item
     public final void setSimulator(SimulatorType simulator)
     {
         Simulator = simulator;
+        invalidate();
     }
     
     public ISimulation getSimulation()
@@ -236,6 +248,140 @@ public class Speaker extends Item
         return simulation.excursion(f, power) * itemFilter(f).abs();
     }
     
+    // impedance divider between children (a) and this driver (b)
+    private void dividers(double[] f, ComplexArray a, ComplexArray b)
+    {
+        super.itemImpedance(f, a.re, a.im);
+        simulation.impedance(f, b.re, b.im);
+        ComplexArray.dividers(a, b);
+    }
+    
+    private void mix(double[] f, double[] re, double[] im, ComplexArray s)
+    {
+        ComplexArray a = new ComplexArray(f.length);
+        ComplexArray b = new ComplexArray(f.length);
+        
+        dividers(f, a, b);
+        new ComplexArray(re, im).mix(a, s, b);
+    }
+    
+    @Override
+    protected void itemResponse(double[] f, double[] re, double[] im)
+    {
+        ComplexArray s = new ComplexArray(f.length);
+        
+        super.itemResponse(f, re, im);
+        simulation.response(f, s.re, s.im);
+        mix(f, re, im, s);
+    }
+    
+    @Override
+    protected void itemResponse1W(double[] f, double[] re, double[] im)
+    {
+        ComplexArray s = new ComplexArray(f.length);
+        
+        super.itemResponse1W(f, re, im);
+        simulation.response1W(f, s.re, s.im);
+        mix(f, re, im, s);
+    }
+    
+    @Override
+    protected void itemListeningWindowResponse(double[] f, double[] re, double[] im)
+    {
+        ComplexArray s = new ComplexArray(f.length);
+        
+        super.itemListeningWindowResponse(f, re, im);
+        simulation.listeningWindowResponse(f, s.re, s.im);
+        mix(f, re, im, s);
+    }
+    
+    @Override
+    protected void itemPowerResponse(double[] f, double[] re, double[] im)
+    {
+        ComplexArray s = new ComplexArray(f.length);
+        
+        super.itemPowerResponse(f, re, im);
+        simulation.powerResponse(f, s.re, s.im);
+        mix(f, re, im, s);
+    }
+    
+    @Override
+    protected void itemResponseWithBaffle(double[] f, double[] re, double[] im)
+    {
+        ComplexArray s = new ComplexArray(f.length);
+        
+        super.itemResponseWithBaffle(f, re, im);
+        simulation.responseWithBaffle(f, s.re, s.im);
+        mix(f, re, im, s);
+    }
+    
+    @Override
+    protected void itemResponseWithRoom(double[] f, double[] re, double[] im)
+    {
+        ComplexArray s = new ComplexArray(f.length);
+        
+        super.itemResponseWithRoom(f, re, im);
+        simulation.responseWithRoom(f, s.re, s.im);
+        mix(f, re, im, s);
+    }
+    
+    @Override
+    protected void itemFilter(double[] f, double[] re, double[] im)
+    {
+        ComplexArray filter = new ComplexArray(re, im);
+        ComplexArray a = new ComplexArray(f.length);
+        ComplexArray b = new ComplexArray(f.length);
+        
+        super.itemFilter(f, re, im);
+        dividers(f, a, b);
+        filter.multiply(a);
+        filter.add(b);
+    }
+    
+    @Override
+    protected void itemImpedance(double[] f, double[] re, double[] im)
+    {
+        ComplexArray z = new ComplexArray(f.length);
+        
+        super.itemImpedance(f, re, im);
+        simulation.impedance(f, z.re, z.im);
+        new ComplexArray(re, im).add(z);
+    }
+    
+    @Override
+    protected void itemMaxPower(double[] f, double[] power)
+    {
+        ComplexArray a = new ComplexArray(f.length);
+        ComplexArray b = new ComplexArray(f.length);
+        double[] p = new double[f.length];
+        
+        super.itemMaxPower(f, power);
+        simulation.maxPower(f, p);
+        dividers(f, a, b);
+        
+        PowerFilter filter = Settings.getInstance().PowerFilter;
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            power[i] = Math.min(power[i] / Math.hypot(a.re[i], a.im[i]), filter.toFiltered(p[i], f[i]) / Math.hypot(b.re[i], b.im[i]));
+        }
+    }
+    
+    @Override
+    protected void itemExcursion(double[] f, double power, double[] excursion)
+    {
+        double[] re = new double[f.length];
+        double[] im = new double[f.length];
+        
+        simulation.excursion(f, power, excursion);
+        itemFilter(f, re, im);
+        
+        for (int i = 0; i < f.length; i++)
+        {
+            excursion[i] *= Math.hypot(re[i], im[i]);
+        }
+    }
+    
     @Override
     public String toString()
     {
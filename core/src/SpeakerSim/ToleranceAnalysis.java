@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package SpeakerSim;
+
+import com.eclipsesource.json.Json;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Monte-Carlo analysis of production spread: fields are randomly scaled within tolerance
+ * and item is simulated on copies of project in parallel.
+ * Percentile bands of response and impedance are reported while samples accumulate.
+ */
+public final class ToleranceAnalysis
+{
+    public enum Distribution
+    {
+        Uniform,
+        Normal // tolerance is 3 sigma
+    }
+    
+    public static final double[] PERCENTILES = {5, 50, 95};
+    
+    public interface Listener
+    {
+        // runs on thread that called run
+        public void update(Bands bands);
+    }
+    
+    public static final class Bands
+    {
+        public final int Samples;
+        public final double[] Frequencies;
+        public final double[][] Response; // dB, one curve per percentile
+        public final double[][] Impedance;
+        
+        private Bands(int samples, double[] freq, double[][] response, double[][] impedance)
+        {
+            Samples = samples;
+            Frequencies = freq;
+            Response = response;
+            Impedance = impedance;
+        }
+    }
+    
+    // fields scaled by same random factor, each with its own exponent
+    private static final class Tolerance
+    {
+        private final List<ItemField> fields = new ArrayList<ItemField>();
+        private final List<Double> exponents = new ArrayList<Double>();
+        private final double tolerance;
+        private final Distribution distribution;
+        
+        private Tolerance(double tolerance, Distribution distribution)
+        {
+            this.tolerance = tolerance;
+            this.distribution = distribution;
+        }
+        
+        private double factor(SplittableRandom random)
+        {
+            double u;
+            
+            if (distribution == Distribution.Normal)
+            {
+                // Box-Muller, cut at tolerance
+                u = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble()) / 3;
+                u = Math.max(-1, Math.min(1, u));
+            }
+            else
+            {
+                u = 2 * random.nextDouble() - 1;
+            }
+            
+            return 1 + tolerance * u;
+        }
+    }
+    
+    public long Seed = 1;
+    public long UpdateInterval = 250; // ms
+    
+    private final Project project;
+    private final int[] item;
+    private final List<Tolerance> tolerances = new ArrayList<Tolerance>();
+    
+    public ToleranceAnalysis(Project project, IItem item)
+    {
+        this.project = project;
+        this.item = ItemField.path(project, item);
+    }
+    
+    // relative tolerance, all fields vary together
+    public void add(IItem item, double tolerance, Distribution distribution, String... fields)
+    {
+        Tolerance t = new Tolerance(tolerance, distribution);
+        
+        for (String field : fields)
+        {
+            t.fields.add(new ItemField(project, item, field));
+            t.exponents.add(1.0);
+        }
+        
+        tolerances.add(t);
+    }
+    
+    // spread of suspension compliance, Fs and Q scale with inverse square root of it
+    public void addCompliance(Speaker speaker, double tolerance, Distribution distribution)
+    {
+        Tolerance t = new Tolerance(tolerance, distribution);
+        String[] fields = {"Driver.Cms", "Driver.Vas", "Driver.Fs", "Driver.Qes", "Driver.Qms", "Driver.Qts"};
+        
+        for (int j = 0; j < fields.length; j++)
+        {
+            t.fields.add(new ItemField(project, speaker, fields[j]));
+            t.exponents.add(j < 2 ? 1 : -0.5);
+        }
+        
+        tolerances.add(t);
+    }
+    
+    private void addDefaults(IItem item)
+    {
+        if (item instanceof Capacitor || item instanceof Resistor)
+        {
+            add(item, 0.05, Distribution.Uniform, item instanceof Capacitor ? "C" : "R");
+        }
+        else if (item instanceof Inductor)
+        {
+            add(item, 0.05, Distribution.Uniform, "L");
+        }
+        else if (item instanceof Zobel)
+        {
+            add(item, 0.05, Distribution.Uniform, "C");
+            add(item, 0.05, Distribution.Uniform, "R");
+        }
+        else if (item instanceof NotchFilter)
+        {
+            add(item, 0.05, Distribution.Uniform, "L");
+            add(item, 0.05, Distribution.Uniform, "C");
+            add(item, 0.05, Distribution.Uniform, "R");
+        }
+        else if (item instanceof LPad)
+        {
+            add(item, 0.05, Distribution.Uniform, "Rs");
+            add(item, 0.05, Distribution.Uniform, "Rp");
+        }
+        else if (item instanceof PassFilter)
+        {
+            // calculated types are switched to custom on copies, values are built components
+            for (String field : new String[] {"C1", "C2", "L1", "L2"})
+            {
+                add(item, 0.05, Distribution.Uniform, field);
+            }
+            
+            // DCR of inductors
+            add(item, 0.1, Distribution.Normal, "RL1");
+            add(item, 0.1, Distribution.Normal, "RL2");
+        }
+        else if (item instanceof Speaker)
+        {
+            addCompliance((Speaker) item, 0.15, Distribution.Normal);
+            add(item, 0.05, Distribution.Normal, "Driver.Re");
+        }
+        
+        for (IItem child : item.getChildren())
+        {
+            addDefaults(child);
+        }
+    }
+    
+    // typical spread of all components and drivers of project
+    public void addDefaults()
+    {
+        addDefaults(project);
+    }
+    
+    private double[][] simulate(String json, double[][] base, long index) throws InterruptedException
+    {
+        Project copy = Project.copy(Json.parse(json));
+        SplittableRandom random = new SplittableRandom(Seed + index);
+        
+        for (int k = 0; k < tolerances.size(); k++)
+        {
+            Tolerance t = tolerances.get(k);
+            double factor = t.factor(random);
+            
+            for (int j = 0; j < t.fields.size(); j++)
+            {
+                t.fields.get(j).set(copy, base[k][j] * Math.pow(factor, t.exponents.get(j)));
+            }
+        }
+        
+        Curves c = Curves.simulate(null, copy, ItemField.getItem(copy, item));
+        return new double[][] { c.Response, c.Impedance };
+    }
+    
+    private static double[][] percentiles(List<double[]> samples)
+    {
+        int n = samples.size();
+        int points = samples.get(0).length;
+        double[][] bands = new double[PERCENTILES.length][points];
+        double[] x = new double[n];
+        
+        for (int i = 0; i < points; i++)
+        {
+            for (int s = 0; s < n; s++)
+            {
+                x[s] = samples.get(s)[i];
+            }
+            
+            Arrays.sort(x);
+            
+            for (int p = 0; p < PERCENTILES.length; p++)
+            {
+                double rank = PERCENTILES[p] / 100 * (n - 1);
+                int r = (int) rank;
+                bands[p][i] = r + 1 < n ? x[r] + (rank - r) * (x[r + 1] - x[r]) : x[r];
+            }
+        }
+        
+        return bands;
+    }
+    
+    private Bands bands(List<double[]> responses, List<double[]> impedances)
+    {
+        return new Bands(responses.size(), project.Settings.freq, percentiles(responses), percentiles(impedances));
+    }
+    
+    // listener can be null
+    public Bands run(int threads, int samples, Listener listener) throws InterruptedException
+    {
+        final String json;
+        final double[][] base = new double[tolerances.size()][];
+        
+        SimulationContext previous = project.getContext().enter();
+        try
+        {
+            json = project.toJSON().toString();
+            
+            for (int k = 0; k < base.length; k++)
+            {
+                List<ItemField> fields = tolerances.get(k).fields;
+                base[k] = new double[fields.size()];
+                
+                for (int j = 0; j < base[k].length; j++)
+                {
+                    base[k][j] = fields.get(j).get(project);
+                }
+            }
+        }
+        finally
+        {
+            SimulationContext.exit(previous);
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, samples)));
+        CompletionService<double[][]> completion = new ExecutorCompletionService<double[][]>(pool);
+        List<double[]> responses = new ArrayList<double[]>(samples);
+        List<double[]> impedances = new ArrayList<double[]>(samples);
+        
+        try
+        {
+            for (int i = 0; i < samples; i++)
+            {
+                final long index = i;
+                
+                completion.submit(new Callable<double[][]>()
+                {
+                    @Override
+                    public double[][] call() throws Exception
+                    {
+                        return simulate(json, base, index);
+                    }
+                });
+            }
+            
+            long last = System.currentTimeMillis();
+            
+            for (int i = 0; i < samples; i++)
+            {
+                double[][] curves;
+                
+                try
+                {
+                    curves = completion.take().get();
+                }
+                catch (ExecutionException ex)
+                {
+                    Throwable cause = ex.getCause();
+                    throw cause instanceof RuntimeException ? (RuntimeException) cause : new HandledException(cause.toString(), cause);
+                }
+                
+                responses.add(curves[0]);
+                impedances.add(curves[1]);
+                
+                // samples complete in any order, bands are updated periodically
+                long now = System.currentTimeMillis();
+                if (listener != null && i < samples - 1 && now - last >= UpdateInterval)
+                {
+                    listener.update(bands(responses, impedances));
+                    last = now;
+                }
+            }
+            
+            Bands bands = bands(responses, impedances);
+            
+            if (listener != null)
+            {
+                listener.update(bands);
+            }
+            
+            return bands;
+        }
+        finally
+        {
+            pool.shutdownNow();
+        }
+    }
+}
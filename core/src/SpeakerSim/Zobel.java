@@ -63,9 +63,8 @@ public class Zobel extends Filter
     }
 
     @Override
-    public Complex thisFilter(double f)
+    protected Complex thisFilter(double f, Complex z)
     {
-        Complex z = super.itemImpedance(f);
         Complex z2 = Z(f);
 
         z = z.multiply(z2).divide(z.add(z2));
@@ -75,9 +74,8 @@ public class Zobel extends Filter
     }
 
     @Override
-    public Complex itemImpedance(double f)
+    protected Complex thisImpedance(double f, Complex z)
     {
-        Complex z = super.itemImpedance(f);
         Complex z2 = Z(f);
 
         z = z.multiply(z2).divide(z.add(z2));
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class AlignmentBatchTest
+{
+    @Test
+    public void alignmentBatch() throws IOException, InterruptedException
+    {
+        Project project = new Project(AlignmentBatchTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        File dir = Files.createTempDirectory("speakersim").toFile();
+        
+        Driver woofer = Curves.speakers(project).get(0).Driver;
+        woofer.save(new File(dir, "woofer.sdrv"));
+        Files.write(new File(dir, "winisd.wdr").toPath(), "[Driver]\r\nBrand=Foo\r\nModel=Bar\r\nFs=30\r\nVas=0.03\r\nQes=0.4\r\nQms=3\r\nQts=0.35\r\nRe=6\r\nBL=7\r\nLe=0.0005\r\nXmax=0.004\r\nDd=0.17\r\nSd=0.02\r\nCms=0.001\r\nMms=0.02\r\nRms=1\r\nno=0.01\r\nSPL=88\r\nUSPL=90\r\nPe=50\r\n".getBytes("UTF-8"));
+        Files.write(new File(dir, "broken.sdrv").toPath(), "{".getBytes("UTF-8"));
+        
+        AlignmentBatch batch = new AlignmentBatch(project);
+        batch.addDirectory(dir);
+        assertEquals(3, batch.size());
+        
+        List<AlignmentBatch.Result> results = batch.run(4);
+        assertEquals(1, batch.getErrors().size());
+        assertFalse(results.isEmpty());
+        
+        for (int i = 0; i < results.size(); i++)
+        {
+            AlignmentBatch.Result r = results.get(i);
+            assertTrue(r.Vb > 0);
+            assertTrue(r.F3 > project.Settings.StartFrequency && r.F3 < batch.Low);
+            assertTrue(Double.isFinite(r.MaxSPL));
+            assertEquals(r.Alignment == AlignmentBatch.Alignment.Closed, Double.isNaN(r.PortVelocity));
+            
+            if (i > 0)
+            {
+                assertTrue(results.get(i - 1).F3 <= r.F3);
+            }
+        }
+        
+        // reflex box extends response below closed box, BB4 is tuned to Fs
+        AlignmentBatch.Result closed = null;
+        AlignmentBatch.Result bb4 = null;
+        
+        for (AlignmentBatch.Result r : results)
+        {
+            if (r.Path.endsWith("winisd.wdr"))
+            {
+                if (r.Alignment == AlignmentBatch.Alignment.Closed)
+                {
+                    closed = r;
+                }
+                else if (r.Alignment == AlignmentBatch.Alignment.BB4)
+                {
+                    bb4 = r;
+                }
+            }
+        }
+        
+        assertNotNull(closed);
+        assertNotNull(bb4);
+        assertTrue(bb4.F3 < closed.F3);
+        assertEquals(30, bb4.Fb, 1e-9);
+        
+        // same table without parallel simulation
+        List<AlignmentBatch.Result> again = batch.run(1);
+        assertEquals(results.size(), again.size());
+        
+        for (int i = 0; i < results.size(); i++)
+        {
+            assertEquals(results.get(i).F3, again.get(i).F3, 0);
+            assertEquals(results.get(i).MaxSPL, again.get(i).MaxSPL, 0);
+        }
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintWriter writer = new PrintWriter(out);
+        AlignmentBatch.writeCSV(writer, results);
+        writer.flush();
+        assertEquals(results.size() + 1, out.toString().split("\r\n").length);
+    }
+    
+    @Test
+    public void f3()
+    {
+        double[] freq = { 10, 20, 40, 80, 160, 320 };
+        
+        // 12 dB per octave below 80 Hz, -3 dB is between 40 and 80 Hz
+        assertEquals(40 * Math.pow(2, 0.75), ResponseMetrics.f3(freq, new double[] { -36, -24, -12, 0, 0, 0 }, 100, 400), 1e-12);
+        assertTrue(Double.isNaN(ResponseMetrics.f3(freq, new double[] { -2, -1, 0, 0, 0, 0 }, 100, 400)));
+        assertTrue(Double.isNaN(ResponseMetrics.f3(freq, new double[] { -36, -24, -12, 0, 0, 0 }, 5, 400)));
+        assertArrayEquals(new int[] { 4, 5 }, ResponseMetrics.band(freq, 100, 400));
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package SpeakerSim;
+
+import java.io.IOException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BaffleSimulationTest
+{
+    @Test
+    public void sweepMatchesScalar() throws IOException
+    {
+        Project project = new Project(BaffleSimulationTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        Project.setInstance(project);
+        double[] freq = project.Settings.freq;
+        double[] re = new double[freq.length];
+        double[] im = new double[freq.length];
+        Driver driver = Curves.speakers(project).get(0).Driver;
+        
+        // centered driver has symmetrical edges with merged paths
+        Baffle[] baffles =
+        {
+            null,
+            new Baffle(),
+            new Baffle(0.3, 0.7, 0.15, 0.45, 0),
+            new Baffle(0.2, 0.2, 0.1, 0.1, 0.01),
+            new Baffle(0.5, 1.1, 0.12, 0.8, 0.02)
+        };
+        
+        for (int i = 1; i < baffles.length; i++)
+        {
+            baffles[i].Enabled = i > 1;
+        }
+        
+        Position[] listening =
+        {
+            new Position(2, 0, 0),
+            new Position(2, 1, 0.3),
+            new Position(0.5, -1, 0.2)
+        };
+        
+        for (Baffle baffle : baffles)
+        {
+            for (Position listeningPos : listening)
+            {
+                for (boolean dipole : new boolean[] { false, true })
+                {
+                    BaffleSimulation sim = new BaffleSimulation(baffle, driver, new Position(), listeningPos, project.Environment, dipole);
+                    sim.response(freq, re, im);
+                    
+                    for (int i = 0; i < freq.length; i++)
+                    {
+                        Complex expected = sim.response(freq[i]);
+                        assertEquals(expected.getReal(), re[i], Math.abs(expected.getReal()) * 1e-12);
+                        assertEquals(expected.getImaginary(), im[i], 1e-12);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package SpeakerSim;
+
+import java.io.IOException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BoxSimulationTest
+{
+    private static void assertComplex(Complex expected, double re, double im)
+    {
+        double delta = Math.max(expected.abs() * 1e-9, 1e-12);
+        assertEquals(expected.getReal(), re, delta);
+        assertEquals(expected.getImaginary(), im, delta);
+    }
+    
+    private static void assertSimulation(ISimulation sim, double[] freq)
+    {
+        double[] re = new double[freq.length];
+        double[] im = new double[freq.length];
+        double[] x = new double[freq.length];
+        
+        sim.response(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(sim.response(freq[i]), re[i], im[i]);
+        }
+        
+        sim.response1W(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(sim.response1W(freq[i]), re[i], im[i]);
+        }
+        
+        sim.listeningWindowResponse(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(sim.listeningWindowResponse(freq[i]), re[i], im[i]);
+        }
+        
+        sim.powerResponse(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(sim.powerResponse(freq[i]), re[i], im[i]);
+        }
+        
+        sim.impedance(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(sim.impedance(freq[i]), re[i], im[i]);
+        }
+        
+        sim.maxPower(freq, x);
+        for (int i = 0; i < freq.length; i++)
+        {
+            double expected = sim.maxPower(freq[i]);
+            assertEquals(expected, x[i], expected * 1e-9);
+        }
+        
+        for (double power : new double[] { 1, 100 })
+        {
+            sim.excursion(freq, power, x);
+            for (int i = 0; i < freq.length; i++)
+            {
+                double expected = sim.excursion(freq[i], power);
+                assertEquals(expected, x[i], expected * 1e-9);
+            }
+        }
+    }
+    
+    @Test
+    public void sweepsMatchScalar() throws IOException
+    {
+        Project project = new Project(BoxSimulationTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        Project.setInstance(project);
+        double[] freq = project.Settings.freq;
+        Driver driver = Curves.speakers(project).get(0).Driver;
+        Position driverPos = new Position(0.2, 0.3, 1);
+        Position centerPos = new Position(0.2, 0.4, 1);
+        
+        for (double Vb : new double[] { 0.01, 0.05, 0.2 })
+        {
+            ClosedBox closed = new ClosedBox();
+            closed.Vb = Vb;
+            assertSimulation(new ClosedBoxSimulation(project.Environment, closed, driver, new Baffle(), driverPos, centerPos, project.ListeningPosition), freq);
+            
+            for (double Qp : new double[] { 5, 100 })
+            {
+                BassReflex reflex = new BassReflex();
+                BassReflexSimulation.calcBox(reflex, driver);
+                reflex.Vb = Vb;
+                reflex.Qp = Qp;
+                reflex.Ql = 5;
+                assertSimulation(new BassReflexSimulation(project.Environment, reflex, driver, new Baffle(), driverPos, centerPos, project.ListeningPosition), freq);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package SpeakerSim;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CLIMainTest
+{
+    @Test
+    public void batch() throws IOException, InterruptedException
+    {
+        File dir = Files.createTempDirectory("speakersim").toFile();
+        File a = new File(dir, "a.ssim");
+        File b = new File(dir, "b.ssim");
+        
+        for (File file : new File[] { a, b })
+        {
+            try (InputStream in = CLIMainTest.class.getClassLoader().getResourceAsStream("default.ssim"))
+            {
+                Files.copy(in, file.toPath());
+            }
+        }
+        
+        PrintStream out = new PrintStream(new ByteArrayOutputStream());
+        assertEquals(2, SpeakerSim.CLI.Main.run(new String[] { "-x" }, out, out));
+        assertEquals(0, SpeakerSim.CLI.Main.run(new String[] { "-j", "2", a.getPath(), b.getPath() }, out, out));
+        
+        Project project = new Project(a);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        Curves curves;
+        
+        try
+        {
+            curves = Curves.simulate(pool, project, project);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        
+        int points = project.Settings.freq.length;
+        
+        for (String name : new String[] { "a", "b" })
+        {
+            List<String> frd = Files.readAllLines(new File(dir, name + ".frd").toPath());
+            List<String> csv = Files.readAllLines(new File(dir, name + ".csv").toPath());
+            assertTrue(new File(dir, name + ".zma").isFile());
+            assertEquals(points + 1, csv.size());
+            assertTrue(frd.size() > 0 && frd.size() <= points);
+            
+            ResponseEntry last = new ResponseEntry(frd.get(frd.size() - 1));
+            assertEquals(curves.Response[points - 1], last.amplitude, 1e-6);
+        }
+    }
+    
+    @Test
+    public void versionsOnManyThreads() throws InterruptedException
+    {
+        final String[] versions = { "2019-08-16", "2020-01-31", "2017-12-01", "2021-06-30" };
+        final boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[8];
+        
+        for (int t = 0; t < threads.length; t++)
+        {
+            threads[t] = new Thread(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    for (int i = 0; i < 2000; i++)
+                    {
+                        String version = versions[i % versions.length];
+                        Date date = Project.parseVersion(version);
+                        
+                        if (!version.equals(new SimpleDateFormat("yyyy-MM-dd").format(date)))
+                        {
+                            failed[0] = true;
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        
+        for (Thread thread : threads)
+        {
+            thread.join();
+        }
+        
+        assertFalse(failed[0]);
+    }
+}
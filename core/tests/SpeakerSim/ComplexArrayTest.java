@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package SpeakerSim;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ComplexArrayTest
+{
+    private static final int N = 100;
+    
+    private static ComplexArray random(Random random)
+    {
+        ComplexArray x = new ComplexArray(N);
+        
+        for (int i = 0; i < N; i++)
+        {
+            x.set(i, random.nextGaussian() * 10, random.nextGaussian() * 10);
+        }
+        
+        return x;
+    }
+    
+    private static ComplexArray copy(ComplexArray x)
+    {
+        return new ComplexArray(x.re.clone(), x.im.clone());
+    }
+    
+    private static void assertComplex(Complex expected, ComplexArray x, int i)
+    {
+        double delta = Math.max(expected.abs() * 1e-12, 1e-12);
+        assertEquals(expected.getReal(), x.re[i], delta);
+        assertEquals(expected.getImaginary(), x.im[i], delta);
+    }
+    
+    @Test
+    public void kernelsMatchScalar()
+    {
+        Random random = new Random(1);
+        ComplexArray a = random(random);
+        ComplexArray b = random(random);
+        ComplexArray c = random(random);
+        
+        ComplexArray add = copy(a);
+        add.add(b);
+        ComplexArray addScalar = copy(a);
+        addScalar.add(3.5);
+        ComplexArray subtract = copy(a);
+        subtract.subtract(b);
+        ComplexArray multiply = copy(a);
+        multiply.multiply(b);
+        ComplexArray multiplyScalar = copy(a);
+        multiplyScalar.multiply(-2.5);
+        ComplexArray divide = copy(a);
+        divide.divide(b);
+        ComplexArray reciprocal = copy(a);
+        reciprocal.reciprocal();
+        ComplexArray parallel = copy(a);
+        parallel.parallel(b);
+        ComplexArray mix = copy(a);
+        mix.mix(b, c, copy(add));
+        ComplexArray dividerA = copy(a);
+        ComplexArray dividerB = copy(b);
+        ComplexArray.dividers(dividerA, dividerB);
+        double[] abs = new double[N];
+        a.abs(abs);
+        
+        for (int i = 0; i < N; i++)
+        {
+            Complex x = a.get(i);
+            Complex y = b.get(i);
+            Complex z = c.get(i);
+            
+            assertComplex(x.add(y), add, i);
+            assertComplex(x.add(3.5), addScalar, i);
+            assertComplex(x.subtract(y), subtract, i);
+            assertComplex(x.multiply(y), multiply, i);
+            assertComplex(x.multiply(-2.5), multiplyScalar, i);
+            assertComplex(x.divide(y), divide, i);
+            assertComplex(x.reciprocal(), reciprocal, i);
+            assertComplex(Fnc.zParallel(x, y), parallel, i);
+            assertComplex(x.multiply(y).add(z.multiply(x.add(y))), mix, i);
+            assertComplex(x.divide(x.add(y)), dividerA, i);
+            assertComplex(y.divide(x.add(y)), dividerB, i);
+            assertEquals(x.abs(), abs[i], x.abs() * 1e-12);
+        }
+    }
+}
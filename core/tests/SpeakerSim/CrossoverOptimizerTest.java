@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.io.IOException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CrossoverOptimizerTest
+{
+    @Test
+    public void crossoverOptimizer() throws IOException, InterruptedException
+    {
+        Project project = new Project(CrossoverOptimizerTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        double[] freq = project.Settings.freq;
+        
+        assertEquals(10, CrossoverOptimizer.snap(9.6, CrossoverOptimizer.E12), 0);
+        assertEquals(4.7e-6, CrossoverOptimizer.snap(4.6e-6, CrossoverOptimizer.E24), 0);
+        assertEquals(8.2e-4, CrossoverOptimizer.snap(1e-3, CrossoverOptimizer.E12, -1), 0);
+        assertEquals(-Fnc.toDecibels(2), CrossoverOptimizer.linkwitzRiley(new double[] { 1000 }, 0, 1000, 4, false)[0], 1e-12);
+        
+        // target is response with original inductor
+        Project copy = project.copy();
+        double[] target = Curves.simulate(null, copy, copy.getChildren().get(0).getChildren().get(0)).Response;
+        
+        LowPassFilter filter = (LowPassFilter) project.getChildren().get(0).getChildren().get(0);
+        double l = filter.L1;
+        filter.L1 = 1.6 * l;
+        
+        CrossoverOptimizer optimizer = new CrossoverOptimizer(project);
+        optimizer.addVariable(filter, "L1");
+        optimizer.addTarget(filter, target, CrossoverOptimizer.band(freq, 100, 5000));
+        CrossoverOptimizer.Result result = optimizer.optimize(4);
+        
+        assertEquals(l, result.Values[0], l * 0.02);
+        assertEquals(l, result.Snapped[0], 0);
+        assertEquals(0, result.SnappedError, 1e-6);
+        assertTrue(result.Evaluations <= optimizer.MaxEvaluations + 8);
+        
+        optimizer.apply(result.Snapped);
+        assertEquals(l, filter.L1, 0);
+    }
+    
+    @Test
+    public void calculatedFilter() throws IOException, InterruptedException
+    {
+        Project project = new Project(CrossoverOptimizerTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        double[] freq = project.Settings.freq;
+        
+        LowPassFilter filter = (LowPassFilter) project.getChildren().get(0).getChildren().get(0);
+        filter.setType(3);
+        Curves.simulate(null, project, project);
+        double l = filter.L1;
+        
+        // target is response with larger inductor, filter of copy is switched to custom
+        Project copy = project.copy();
+        new ItemField(project, filter, "L1").set(copy, 1.3 * l);
+        double[] target = Curves.simulate(null, copy, copy.getChildren().get(0).getChildren().get(0)).Response;
+        
+        CrossoverOptimizer optimizer = new CrossoverOptimizer(project);
+        optimizer.Series = null;
+        optimizer.addVariable(filter, "L1");
+        optimizer.addTarget(filter, target, CrossoverOptimizer.band(freq, 100, 5000));
+        CrossoverOptimizer.Result result = optimizer.optimize(4);
+        
+        assertEquals(1.3 * l, result.Values[0], l * 0.02);
+        assertFalse(filter.isCustom());
+        
+        // applied value is kept on refresh
+        optimizer.apply(result.Values);
+        Curves.simulate(null, project, project);
+        assertTrue(filter.isCustom());
+        assertEquals(result.Values[0], filter.L1, 0);
+    }
+}
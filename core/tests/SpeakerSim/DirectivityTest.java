@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package SpeakerSim;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DirectivityTest
+{
+    @Test
+    public void tableMatchesFormula()
+    {
+        // off grid arguments, both signs, up to and beyond end of table
+        for (double x = 0; x < 300; x += 0.0371)
+        {
+            for (double sign : new double[] { 1, -1 })
+            {
+                double ka = sign * x;
+                double piston = ka == 0 ? 1 : Math.abs(2 * Fnc.besselJ1Signed(ka) / ka);
+                assertEquals("circular(" + ka + ")", piston, Directivity.circular(ka), 2e-5);
+                assertEquals("sinc(" + ka + ")", ka == 0 ? 1 : Math.sin(ka) / ka, Directivity.sinc(ka), 2e-5);
+            }
+        }
+        
+        for (double angle = -180; angle <= 180; angle += 0.5)
+        {
+            double a = Math.abs(angle);
+            double monopole = a > 90 ? 1 + Math.sin(Math.toRadians(a - 90)) : Math.sin(Math.toRadians(a));
+            assertEquals(monopole, Directivity.factor(angle, false), 1e-12);
+            assertEquals(Math.sin(Math.toRadians(a)), Directivity.factor(angle, true), 1e-12);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DriverLibraryTest
+{
+    @Test
+    public void driverLibrary() throws IOException, InterruptedException
+    {
+        Project project = new Project(DriverLibraryTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        File dir = Files.createTempDirectory("speakersim").toFile();
+        File sub = new File(dir, "tweeters");
+        assertTrue(sub.mkdir());
+        
+        Driver woofer = Curves.speakers(project).get(0).Driver;
+        Driver tweeter = Curves.speakers(project).get(1).Driver;
+        woofer.save(new File(dir, "woofer.sdrv"));
+        tweeter.save(new File(sub, "tweeter.sdrv"));
+        Files.write(new File(dir, "winisd.wdr").toPath(), "[Driver]\r\nBrand=Foo\r\nModel=Bar\r\nFs=30\r\nVas=0.03\r\nQes=0.4\r\nQms=3\r\nQts=0.35\r\nRe=6\r\nBL=7\r\nLe=0.0005\r\nXmax=0.004\r\nDd=0.17\r\nSd=0.02\r\nCms=0.001\r\nMms=0.02\r\nRms=1\r\nno=0.01\r\nSPL=88\r\nUSPL=90\r\nPe=50\r\n".getBytes("UTF-8"));
+        Files.write(new File(dir, "broken.sdrv").toPath(), "{".getBytes("UTF-8"));
+        
+        File file = new File(dir, "library.idx");
+        DriverLibrary library = new DriverLibrary(file);
+        library.addDirectory(dir);
+        assertTrue(library.refresh(4));
+        assertEquals(3, library.size());
+        assertEquals(1, library.getErrors().size());
+        assertFalse(library.refresh(4));
+        
+        List<DriverLibrary.Entry> found = library.find(new DriverLibrary.Query().range(DriverLibrary.Parameter.Qts, woofer.Qts, woofer.Qts));
+        assertEquals(1, found.size());
+        assertEquals(woofer.Name, found.get(0).Name);
+        assertEquals(woofer.Fs, found.get(0).get(DriverLibrary.Parameter.Fs), 0);
+        
+        found = library.find(new DriverLibrary.Query().range(DriverLibrary.Parameter.Fs, 0, 100).range(DriverLibrary.Parameter.Qts, 0.3, 0.5));
+        assertEquals(2, found.size());
+        assertTrue(found.get(0).get(DriverLibrary.Parameter.Fs) <= found.get(1).get(DriverLibrary.Parameter.Fs));
+        assertEquals(3, library.find(new DriverLibrary.Query()).size());
+        
+        // saved index is used without parsing, changed file is parsed again
+        DriverLibrary saved = new DriverLibrary(file);
+        assertEquals(3, saved.size());
+        assertEquals(library.getDirectories(), saved.getDirectories());
+        
+        tweeter.Fs = 1234;
+        File f = new File(sub, "tweeter.sdrv");
+        tweeter.save(f);
+        assertTrue(f.setLastModified(f.lastModified() + 2000));
+        assertTrue(saved.refresh(2));
+        assertEquals(1, saved.find(new DriverLibrary.Query().range(DriverLibrary.Parameter.Fs, 1000, 2000)).size());
+        assertEquals(tweeter.Fs, saved.find(new DriverLibrary.Query().range(DriverLibrary.Parameter.Fs, 1000, 2000)).get(0).open().Fs, 0);
+        
+        f = new File(dir, "broken.sdrv");
+        woofer.save(f);
+        assertTrue(f.setLastModified(f.lastModified() + 2000));
+        assertTrue(saved.refresh(2));
+        assertEquals(4, saved.size());
+        assertTrue(saved.getErrors().isEmpty());
+    }
+    
+    @Test
+    public void overlappingDirectories() throws IOException, InterruptedException
+    {
+        Project project = new Project(DriverLibraryTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        File dir = Files.createTempDirectory("speakersim").toFile();
+        File sub = new File(dir, "tweeters");
+        assertTrue(sub.mkdir());
+        
+        Curves.speakers(project).get(0).Driver.save(new File(dir, "woofer.sdrv"));
+        Curves.speakers(project).get(1).Driver.save(new File(sub, "tweeter.sdrv"));
+        
+        // parent replaces subdirectory, same directory by other path is not added again
+        DriverLibrary library = new DriverLibrary(null);
+        library.addDirectory(sub);
+        library.addDirectory(dir);
+        library.addDirectory(new File(sub, ".."));
+        assertEquals(1, library.getDirectories().size());
+        assertEquals(dir.getCanonicalFile(), library.getDirectories().get(0));
+        
+        assertTrue(library.refresh(4));
+        assertEquals(2, library.size());
+        
+        library.addDirectory(sub);
+        assertFalse(library.refresh(4));
+        assertEquals(2, library.size());
+    }
+}
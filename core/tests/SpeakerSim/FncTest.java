@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package SpeakerSim;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FncTest
+{
+    // x, J0(x) to J5(x), H1(x), from exact series in 150 digit arithmetic
+    private static final double[][] BESSEL =
+    {
+        { 0.1, 0.99750156206604002, 0.049937526036241998, 0.0012489586587999188, 2.0820315754756262e-05, 2.602864854568403e-07, 2.6030817909644409e-09, 0.0021206516014255538 },
+        { 0.5, 0.93846980724081286, 0.2422684576748739, 0.030604023458682642, 0.002563729994587244, 0.00016073647636428759, 8.0536272413574736e-06, 0.052173744242341072 },
+        { 1, 0.76519768655796661, 0.4400505857449335, 0.11490348493190047, 0.019563353982668407, 0.0024766389641099553, 0.00024975773021123444, 0.19845733620194439 },
+        { 2.5, -0.048383776468197998, 0.49709410246427405, 0.44605905843961724, 0.21660039103911352, 0.073781880054255233, 0.019501625134503219, 0.86315420665653531 },
+        { 4.9, -0.20973832758532632, -0.31469467101519061, 0.081291523089330145, 0.38105509802688869, 0.38530655612726822, 0.2480168303441615, 0.84208902464347157 },
+        { 5.1, -0.14433474706050051, -0.33709720201823185, 0.012139765876880187, 0.34661858701970649, 0.3956468070874804, 0.27400385547045886, 0.77283980822010978 },
+        { 7.9, 0.19436184484127833, 0.21917939992175114, -0.13887338916488562, -0.28949504000523751, -0.080996261472003644, 0.20747350940067688, 0.46469018114288951 },
+        { 8, 0.1716508071375539, 0.23463634685391463, -0.11299172042407525, -0.29113220706595228, -0.10535743487538894, 0.18577477219056332, 0.48811604612142112 },
+        { 8.1, 0.14751745404437758, 0.24760776698159292, -0.086379733802008959, -0.29026442564925165, -0.12863095186410339, 0.16322151022791498, 0.51280124280321193 },
+        { 10, -0.24593576445134835, 0.043472746168861438, 0.25463031368512062, 0.058379379305186815, -0.21960268610200853, -0.23406152818679363, 0.89183249209453808 },
+        { 15.9, -0.16497049948567058, 0.10802789006306508, 0.17855891333008128, -0.063107408722164138, -0.20237302982901115, -0.03871549936790436, 0.80771606914601735 },
+        { 16.1, -0.18302369246531039, 0.071979418622450261, 0.19196523515132904, -0.024286192497896455, -0.20101599011948923, -0.075597529300607508, 0.82456852784072998 },
+        { 20, 0.16702466434058316, 0.06683312417585005, -0.16034135192299814, -0.098901394560449676, 0.13067093355486326, 0.15116976798239498, 0.47268818429104287 },
+        { 30, -0.086367983581040211, -0.11875106261662294, 0.078451246073265354, 0.12921122875972499, -0.052609000321320355, -0.14324029551207706, 0.72175037834698996 },
+        { 50, 0.055812327669251816, -0.097511828125175143, -0.059712800794258822, 0.092734804061634438, 0.070840977281654949, -0.081400247696569644, 0.58007844794544194 },
+        { 100, 0.019985850304223122, -0.077145352014112156, -0.021528757344505364, 0.076284201720331943, 0.026105809447725281, -0.074195736964513925, 0.61631110327201344 }
+    };
+    
+    @Test
+    public void besselAndStruve()
+    {
+        for (double[] row : BESSEL)
+        {
+            for (double sign : new double[] { 1, -1 })
+            {
+                double x = sign * row[0];
+                
+                assertEquals(row[1], Fnc.besselJ0(x), 1e-7);
+                assertEquals(sign * row[2], Fnc.besselJ1Signed(x), 1e-7);
+                assertEquals(row[7], Fnc.struveH1(x), 5e-7);
+                
+                // orders above 1 switch from series to recurrence where |x| exceeds order
+                for (int n = 0; n <= 5; n++)
+                {
+                    double expected = n % 2 == 0 ? row[n + 1] : sign * row[n + 1];
+                    assertEquals("J" + n + "(" + x + ")", expected, Fnc.besselJn(n, x), 1e-7);
+                }
+            }
+        }
+    }
+}
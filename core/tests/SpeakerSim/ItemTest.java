@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package SpeakerSim;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ItemTest
+{
+    private static Complex parallel(IItem item, double f)
+    {
+        Complex sum = new Complex();
+        
+        for (IItem child : item.getChildren())
+        {
+            sum = sum.add(Complex.divide(1, child.impedance(f)));
+        }
+        
+        return Complex.divide(1, sum);
+    }
+    
+    private static void assertComplex(Complex expected, double re, double im)
+    {
+        double delta = Math.max(expected.abs() * 1e-12, 1e-15);
+        assertEquals(expected.getReal(), re, delta);
+        assertEquals(expected.getImaginary(), im, delta);
+    }
+    
+    @Test
+    public void childrenImpedanceMemo()
+    {
+        Amplifier amplifier = new Amplifier();
+        amplifier.setStatus(Item.Status.BYPASSED);
+        
+        Resistor resistor = new Resistor();
+        resistor.R = 8;
+        Inductor inductor = new Inductor();
+        inductor.L = 1e-3;
+        Resistor load = new Resistor();
+        load.R = 4;
+        inductor.getChildren().add(load);
+        amplifier.getChildren().add(resistor);
+        amplifier.getChildren().add(inductor);
+        amplifier.refresh();
+        
+        // repeated and alternating frequencies
+        for (double f : new double[] { 100, 100, 1000, 100, 5000, 5000, 20 })
+        {
+            Complex z = amplifier.impedance(f);
+            assertComplex(parallel(amplifier, f), z.getReal(), z.getImaginary());
+        }
+        
+        double[] a = { 20, 200, 2000 };
+        double[] b = { 50, 500, 5000, 20000 };
+        
+        for (double[] freq : new double[][] { a, a, b, a })
+        {
+            double[] re = new double[freq.length];
+            double[] im = new double[freq.length];
+            amplifier.impedance(freq, re, im);
+            
+            for (int i = 0; i < freq.length; i++)
+            {
+                assertComplex(parallel(amplifier, freq[i]), re[i], im[i]);
+            }
+            
+            // caller owns result, memo is not shared with it
+            re[0] = Double.NaN;
+        }
+        
+        // refresh after edit drops memo
+        load.R = 2;
+        amplifier.refresh();
+        Complex z = amplifier.impedance(100);
+        assertComplex(parallel(amplifier, 100), z.getReal(), z.getImaginary());
+        
+        double[] re = new double[a.length];
+        double[] im = new double[a.length];
+        amplifier.impedance(a, re, im);
+        
+        for (int i = 0; i < a.length; i++)
+        {
+            assertComplex(parallel(amplifier, a[i]), re[i], im[i]);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MinimumPhaseTest
+{
+    // second order high pass at 80 Hz and first order low pass at 3 kHz
+    private static Complex response(double f)
+    {
+        double w = f / 80;
+        Complex x = new Complex(-w * w).divide(new Complex(1 - w * w, w * Math.sqrt(2)));
+        return x.divide(new Complex(1, f / 3000));
+    }
+    
+    private static void assertPhase(int points)
+    {
+        double[] frequency = new double[points];
+        double[] amplitude = new double[points];
+        double[] dB = new double[points];
+        
+        for (int i = 0; i < points; i++)
+        {
+            frequency[i] = 20 * Math.pow(1000, i / (points - 1.0));
+            amplitude[i] = response(frequency[i]).abs();
+            dB[i] = Fnc.toDecibels(amplitude[i]);
+        }
+        
+        double[] phase = Fnc.calcPhase(frequency, amplitude, Fnc.calcSlopeLo(frequency, dB), Fnc.calcSlopeHi(frequency, dB));
+        
+        for (int i = 0; i < points; i++)
+        {
+            double error = response(frequency[i]).phase() - phase[i];
+            assertEquals(0, Math.toDegrees(Math.atan2(Math.sin(error), Math.cos(error))), 1.5);
+        }
+    }
+    
+    @Test
+    public void minimumPhase()
+    {
+        assertPhase(300);
+        assertPhase(5000);
+    }
+}
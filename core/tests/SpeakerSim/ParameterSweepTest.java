@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ParameterSweepTest
+{
+    @Test
+    public void parameterSweep() throws IOException, InterruptedException
+    {
+        Project project = new Project(ParameterSweepTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        Speaker speaker = Curves.speakers(project).get(0);
+        double re = speaker.Driver.Re;
+        
+        ParameterSweep sweep = new ParameterSweep(project);
+        sweep.add(speaker, "Driver.Re", re, 2 * re);
+        sweep.add(project, "ListeningPosition.X", ParameterSweep.range(1, 3, 3));
+        assertEquals(6, sweep.size());
+        assertArrayEquals(new double[] { 2 * re, 2 }, sweep.values(4), 0);
+        
+        try
+        {
+            sweep.add(speaker, "Driver.Name");
+            fail();
+        }
+        catch (HandledException e)
+        {
+            
+        }
+        
+        List<ParameterSweep.Variant> variants = sweep.run(4);
+        assertEquals(6, variants.size());
+        assertEquals(re, speaker.Driver.Re, 0);
+        assertSame(project, Project.getInstance());
+        
+        Project copy = project.copy();
+        copy.ListeningPosition.X = 3;
+        ResponseMetrics expected = ResponseMetrics.simulate(copy, sweep.Low, sweep.High);
+        ResponseMetrics m = variants.get(2).Metrics;
+        
+        assertNull(variants.get(2).Error);
+        assertEquals(expected.F3, m.F3, 1e-9);
+        assertEquals(expected.Ripple, m.Ripple, 1e-9);
+        assertEquals(expected.MaxSPL, m.MaxSPL, 1e-9);
+        assertEquals(expected.MinImpedance, m.MinImpedance, 1e-9);
+        assertTrue(m.F3 > project.Settings.StartFrequency && m.F3 < sweep.Low);
+        assertTrue(m.MinImpedance > 1 && m.MinImpedance < 100);
+        assertNotEquals(m.MinImpedance, variants.get(5).Metrics.MinImpedance, 1e-3);
+    }
+    
+    @Test
+    public void metricsWithoutF3() throws IOException, InterruptedException
+    {
+        Project project = new Project(ParameterSweepTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        
+        // reference band from start of simulated range, response can not fall below it
+        ResponseMetrics m = ResponseMetrics.simulate(project, project.Settings.StartFrequency, 1000);
+        ResponseMetrics expected = ResponseMetrics.simulate(project, 200, 1000);
+        
+        assertTrue(Double.isNaN(m.F3));
+        assertTrue(Double.isFinite(m.Ripple));
+        assertTrue(Double.isFinite(m.MaxSPL));
+        assertTrue(m.MaxSPL <= expected.MaxSPL);
+    }
+    
+    @Test
+    public void calculatedFilter() throws IOException, InterruptedException
+    {
+        Project project = new Project(ParameterSweepTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        PassFilter filter = (PassFilter) project.getChildren().get(0).getChildren().get(0);
+        filter.setType(3);
+        Curves.simulate(null, project, project);
+        double l = filter.L1;
+        
+        // filter of copy is switched to custom, so refresh does not overwrite values
+        ParameterSweep sweep = new ParameterSweep(project);
+        sweep.add(filter, "L1", l / 2, l, 2 * l);
+        List<ParameterSweep.Variant> variants = sweep.run(3);
+        
+        assertFalse(filter.isCustom());
+        assertEquals(l, filter.L1, 0);
+        
+        ResponseMetrics expected = ResponseMetrics.simulate(project.copy(), sweep.Low, sweep.High);
+        ResponseMetrics m = variants.get(1).Metrics;
+        assertEquals(expected.Ripple, m.Ripple, 1e-9);
+        assertEquals(expected.MinImpedance, m.MinImpedance, 1e-9);
+        assertNotEquals(variants.get(0).Metrics.Ripple, variants.get(2).Metrics.Ripple, 1e-3);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.io.IOException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PolarDataTest
+{
+    private static void assertComplex(Complex expected, double re, double im)
+    {
+        double delta = Math.max(expected.abs() * 1e-9, 1e-12);
+        assertEquals(expected.getReal(), re, delta);
+        assertEquals(expected.getImaginary(), im, delta);
+    }
+    
+    private static ResponseData frd(double horizontalAngle, double verticalAngle, double level)
+    {
+        ResponseData d = new ResponseData(null);
+        d.horizontalAngle = horizontalAngle;
+        d.verticalAngle = verticalAngle;
+        d.data = new ResponseEntry[]
+        {
+            new ResponseEntry(20, level, 10),
+            new ResponseEntry(1000, level + 3, -90),
+            new ResponseEntry(20000, level - 10, -170)
+        };
+        return d;
+    }
+    
+    @Test
+    public void polarData() throws IOException
+    {
+        Project project = new Project(PolarDataTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        Project.setInstance(project);
+        double[] freq = project.Settings.freq;
+        Driver driver = Curves.speakers(project).get(0).Driver;
+        
+        ResponseData onAxis = frd(0, 0, 90);
+        ResponseData h30 = frd(30, 0, 87);
+        driver.FRD = onAxis;
+        driver.hFRD = new ResponseData[] { onAxis, h30, frd(60, 0, 80) };
+        driver.vFRD = new ResponseData[] { onAxis, frd(0, 30, 85) };
+        
+        double[] angles = { 0, -15, 45, 75 };
+        double[] re = new double[freq.length];
+        double[] im = new double[freq.length];
+        
+        for (double angle : angles)
+        {
+            driver.response(freq, angle, 0, false, re, im);
+            
+            for (int i = 0; i < freq.length; i++)
+            {
+                Complex x = driver.response(freq[i], angle, 0, false);
+                assertComplex(x, re[i], im[i]);
+            }
+        }
+        
+        for (int i = 0; i < freq.length; i += 7)
+        {
+            double f = freq[i];
+            Complex a = onAxis.response(f, driver.SPLdiff(), driver.Inverted);
+            Complex b = h30.response(f, driver.SPLdiff(), driver.Inverted);
+            Complex expected = Complex.toComplex((a.abs() + b.abs()) / 2, (a.phase() + b.phase()) / 2);
+            
+            // vertical axis at 0 degrees is on-axis, which is louder
+            Complex x = driver.response(f, 15, 0, false);
+            assertComplex(expected, x.getReal(), x.getImaginary());
+        }
+    }
+}
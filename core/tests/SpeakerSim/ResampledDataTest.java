@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.io.IOException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ResampledDataTest
+{
+    private static void assertComplex(Complex expected, double re, double im)
+    {
+        double delta = Math.max(expected.abs() * 1e-9, 1e-12);
+        assertEquals(expected.getReal(), re, delta);
+        assertEquals(expected.getImaginary(), im, delta);
+    }
+    
+    @Test
+    public void resampledData() throws IOException
+    {
+        Project project = new Project(ResampledDataTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        Project.setInstance(project);
+        CustomImpedance custom = new CustomImpedance();
+        custom.ZMA = new ResponseEntry[]
+        {
+            new ResponseEntry(50, 8, -30),
+            new ResponseEntry(400, 20, 45),
+            new ResponseEntry(5000, 12, 10)
+        };
+        
+        for (int n = 0; n < 2; n++)
+        {
+            double[] freq = project.Settings.freq;
+            double[] re = new double[freq.length];
+            double[] im = new double[freq.length];
+            custom.z(freq, re, im);
+            
+            for (int i = 0; i < freq.length; i++)
+            {
+                double f = freq[i];
+                Complex expected;
+                
+                if (f <= 50)
+                {
+                    expected = Complex.toComplex(8, Math.toRadians(-30));
+                }
+                else if (f <= 400)
+                {
+                    expected = Complex.toComplex(Fnc.interpolate(50, 8, 400, 20, f), Math.toRadians(Fnc.interpolate(50, -30, 400, 45, f)));
+                }
+                else if (f <= 5000)
+                {
+                    expected = Complex.toComplex(Fnc.interpolate(400, 20, 5000, 12, f), Math.toRadians(Fnc.interpolate(400, 45, 5000, 10, f)));
+                }
+                else
+                {
+                    expected = Complex.toComplex(12, Math.toRadians(10));
+                }
+                
+                assertComplex(expected, re[i], im[i]);
+            }
+            
+            // off grid
+            Complex x = custom.z(225);
+            assertComplex(Complex.toComplex(14, Math.toRadians(7.5)), x.getReal(), x.getImaginary());
+            
+            // grid change
+            project.Settings.StartFrequency = 100;
+            project.Settings.Points = 300;
+            project.Settings.Refresh();
+        }
+    }
+}
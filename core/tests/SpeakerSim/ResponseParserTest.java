@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ResponseParserTest
+{
+    @Test
+    public void responseParser() throws IOException, InterruptedException
+    {
+        File dir = Files.createTempDirectory("speakersim").toFile();
+        File frd = new File(dir, "test.frd");
+        Files.write(frd.toPath(), ("* Measurement\r\nFreq(Hz) SPL(dB) Phase(degrees)\r\n" +
+                                   "  200\t85.25\t-10\r\n" +
+                                   "100;84,5;-5\r\n" +
+                                   "300, 86, 1.5e1\n" +
+                                   "100 85.5 -15\n" +
+                                   "1.000,5 87 20\r" +
+                                   "400 88 30\n" +
+                                   "400 89 50\n").getBytes("UTF-8"));
+        
+        ResponseEntry[] data = ResponseData.ImportData(frd, true);
+        double[][] expected =
+        {
+            { 100, 85, -10 },
+            { 200, 85.25, -10 },
+            { 300, 86, 15 },
+            { 400, 88.5, 40 },
+            { 1000.5, 87, 20 }
+        };
+        
+        assertEquals(expected.length, data.length);
+        
+        for (int i = 0; i < data.length; i++)
+        {
+            assertEquals(expected[i][0], data[i].frequency, 0);
+            assertEquals(expected[i][1], data[i].amplitude, 0);
+            assertEquals(expected[i][2], data[i].phase, 0);
+        }
+        
+        // numbers are same as parsed from strings, without phase it is calculated
+        StringBuilder text = new StringBuilder();
+        Random random = new Random(1);
+        double f = 10;
+        
+        for (int i = 0; i < 2000; i++)
+        {
+            f *= 1.003;
+            text.append(i % 2 == 0 ? String.format(Locale.US, "%.4f", f) : Double.toString(f)).append(" ");
+            text.append(i % 3 == 0 ? Double.toString((Math.abs(random.nextGaussian()) + 0.1) * 1e-6) : String.format(Locale.US, "%.3f", 80 + random.nextGaussian())).append("\n");
+        }
+        
+        File zma = new File(dir, "test.zma");
+        Files.write(zma.toPath(), text.toString().getBytes("UTF-8"));
+        data = ResponseData.ImportData(zma, false);
+        String[] lines = text.toString().split("\n");
+        assertEquals(lines.length, data.length);
+        
+        for (int i = 0; i < data.length; i++)
+        {
+            ResponseEntry entry = new ResponseEntry(lines[i]);
+            assertEquals(entry.frequency, data[i].frequency, 0);
+            assertEquals(entry.amplitude, data[i].amplitude, 0);
+            assertTrue(Double.isFinite(data[i].phase));
+        }
+        
+        ResponseEntry[][] all = ResponseData.ImportData(new File[] { frd, zma, frd }, true, 3);
+        assertEquals(5, all[0].length);
+        assertEquals(5, all[2].length);
+        assertEquals(lines.length, all[1].length);
+        assertEquals(data[7].amplitude, all[1][7].amplitude, 0);
+        
+        Files.write(frd.toPath(), "100 80 1 2\n".getBytes("UTF-8"));
+        
+        try
+        {
+            ResponseData.ImportData(new File[] { zma, frd }, true, 2);
+            fail();
+        }
+        catch (HandledException ex)
+        {
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package SpeakerSim;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SmoothingTest
+{
+    // moving average summed directly, window is every point within half of fraction of octave
+    private static double[] direct(double[] freq, double fraction, double[] x, int passes)
+    {
+        double ratio = Math.pow(2, 1 / (2 * fraction));
+        
+        for (int p = 0; p < passes; p++)
+        {
+            double[] y = new double[x.length];
+            
+            for (int i = 0; i < x.length; i++)
+            {
+                double sum = 0;
+                int n = 0;
+                
+                for (int j = 0; j < x.length; j++)
+                {
+                    if (j == i || (freq[j] * ratio >= freq[i] && freq[j] <= freq[i] * ratio))
+                    {
+                        sum += x[j];
+                        n++;
+                    }
+                }
+                
+                y[i] = sum / n;
+            }
+            
+            x = y;
+        }
+        
+        return x;
+    }
+    
+    // window of fixed number of points, shifted at ends
+    private static double[] direct(int points, double[] x, int passes)
+    {
+        for (int p = 0; p < passes; p++)
+        {
+            double[] y = new double[x.length];
+            
+            for (int i = 0; i < x.length; i++)
+            {
+                int start = Math.min(i - Math.min(points / 2, i), x.length - points);
+                double sum = 0;
+                
+                for (int j = start; j < start + points; j++)
+                {
+                    sum += x[j];
+                }
+                
+                y[i] = sum / points;
+            }
+            
+            x = y;
+        }
+        
+        return x;
+    }
+    
+    // error is relative to average of absolute values in window, as in direct summation
+    private static void assertArray(double[] expected, double[] magnitude, double[] x)
+    {
+        for (int i = 0; i < x.length; i++)
+        {
+            assertEquals("point " + i, expected[i], x[i], magnitude[i] * 1e-12);
+        }
+    }
+    
+    private static double[] abs(double[] x)
+    {
+        double[] y = new double[x.length];
+        
+        for (int i = 0; i < x.length; i++)
+        {
+            y[i] = Math.abs(x[i]);
+        }
+        
+        return y;
+    }
+    
+    @Test
+    public void matchesDirectAverage()
+    {
+        int n = 999;
+        double[] freq = new double[n];
+        double[] falling = new double[n];
+        double[] noise = new double[n];
+        Random random = new Random(1);
+        
+        for (int i = 0; i < n; i++)
+        {
+            freq[i] = 10 * Math.pow(2000, i / (n - 1.0));
+            
+            // large values at start must not affect precision of later windows
+            falling[i] = freq[i] < 100 ? Math.pow(10, 30 - 28 * i / (n / 3.0)) : 100 + Math.sin(i * 0.1);
+            noise[i] = random.nextGaussian() * (i % 97 == 0 ? 1e12 : 1);
+        }
+        
+        for (double[] curve : new double[][] { falling, noise })
+        {
+            for (double fraction : new double[] { 1, 3, 12, 48 })
+            {
+                double[] x = curve.clone();
+                new Smoothing(freq, fraction).smooth(x);
+                assertArray(direct(freq, fraction, curve, 3), direct(freq, fraction, abs(curve), 3), x);
+            }
+            
+            for (int points : new int[] { 1, 4, 33, n })
+            {
+                double[] x = curve.clone();
+                Fnc.smooth(x, points);
+                assertArray(direct(points, curve, 3), direct(points, abs(curve), 3), x);
+                
+                x = curve.clone();
+                Fnc.averageSmooth(x, points);
+                assertArray(direct(points, curve, 1), direct(points, abs(curve), 1), x);
+            }
+        }
+        
+        // passband after huge values keeps its level
+        double[] x = falling.clone();
+        new Smoothing(freq, 12).smooth(x);
+        assertEquals(100, x[n - 200], 1);
+    }
+}
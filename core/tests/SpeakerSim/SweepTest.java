@@ -0,0 +1,448 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.AfterClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SweepTest
+{
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+    
+    @AfterClass
+    public static void shutdown()
+    {
+        POOL.shutdown();
+    }
+    
+    private static Project open() throws IOException
+    {
+        Project project = new Project(SweepTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        Project.setInstance(project);
+        project.CenterPosition = new Position(0.5, 0.5, 1);
+        
+        IItem amplifier = project.getChildren().get(0);
+        
+        Inductor inductor = new Inductor();
+        inductor.getChildren().add(new Capacitor());
+        amplifier.getChildren().add(inductor);
+        
+        LPad pad = new LPad();
+        pad.Rs = 2;
+        pad.Rp = 8;
+        pad.getChildren().add(new Resistor());
+        pad.getChildren().get(0).setStatus(Item.Status.DISCONNECTED);
+        amplifier.getChildren().add(pad);
+        
+        return project;
+    }
+    
+    private static List<IItem> items(IItem item)
+    {
+        List<IItem> items = new ArrayList<IItem>();
+        items.add(item);
+        
+        for (IItem child : item.getChildren())
+        {
+            items.addAll(items(child));
+        }
+        
+        return items;
+    }
+    
+    private static void assertComplex(Complex expected, double re, double im)
+    {
+        double delta = Math.max(expected.abs() * 1e-9, 1e-12);
+        assertEquals(expected.getReal(), re, delta);
+        assertEquals(expected.getImaginary(), im, delta);
+    }
+    
+    private static void assertSweep(IItem item, double[] freq)
+    {
+        double[] re = new double[freq.length];
+        double[] im = new double[freq.length];
+        double[] x = new double[freq.length];
+        
+        item.response(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(item.response(freq[i]), re[i], im[i]);
+        }
+        
+        item.response1W(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(item.response1W(freq[i]), re[i], im[i]);
+        }
+        
+        item.listeningWindowResponse(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(item.listeningWindowResponse(freq[i]), re[i], im[i]);
+        }
+        
+        item.powerResponse(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(item.powerResponse(freq[i]), re[i], im[i]);
+        }
+        
+        item.responseWithBaffle(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(item.responseWithBaffle(freq[i]), re[i], im[i]);
+        }
+        
+        item.responseWithRoom(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(item.responseWithRoom(freq[i]), re[i], im[i]);
+        }
+        
+        item.impedance(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(item.impedance(freq[i]), re[i], im[i]);
+        }
+        
+        item.filter(freq, re, im);
+        for (int i = 0; i < freq.length; i++)
+        {
+            assertComplex(item.filter(freq[i]), re[i], im[i]);
+        }
+        
+        item.maxPower(freq, x);
+        for (int i = 0; i < freq.length; i++)
+        {
+            double expected = item.maxPower(freq[i]);
+            assertEquals(expected, x[i], expected * 1e-9);
+        }
+        
+        item.excursion(freq, Double.MAX_VALUE, x);
+        for (int i = 0; i < freq.length; i++)
+        {
+            double expected = item.excursion(freq[i], Double.MAX_VALUE);
+            assertEquals(expected, x[i], expected * 1e-9);
+        }
+    }
+    
+    private static void assertArrays(double[] expectedRe, double[] expectedIm, double[] re, double[] im)
+    {
+        for (int i = 0; i < re.length; i++)
+        {
+            assertComplex(new Complex(expectedRe[i], expectedIm[i]), re[i], im[i]);
+        }
+    }
+    
+    private static void assertArray(double[] expected, double[] x)
+    {
+        for (int i = 0; i < x.length; i++)
+        {
+            assertEquals(expected[i], x[i], expected[i] * 1e-9);
+        }
+    }
+    
+    private static void assertPlan(EvaluationPlan plan, IItem item, double[] freq)
+    {
+        double[] expectedRe = new double[freq.length];
+        double[] expectedIm = new double[freq.length];
+        double[] expected = new double[freq.length];
+        double[] re = new double[freq.length];
+        double[] im = new double[freq.length];
+        double[] x = new double[freq.length];
+        
+        item.response(freq, expectedRe, expectedIm);
+        plan.response(item, freq, re, im);
+        assertArrays(expectedRe, expectedIm, re, im);
+        
+        item.response1W(freq, expectedRe, expectedIm);
+        plan.response1W(item, freq, re, im);
+        assertArrays(expectedRe, expectedIm, re, im);
+        
+        item.listeningWindowResponse(freq, expectedRe, expectedIm);
+        plan.listeningWindowResponse(item, freq, re, im);
+        assertArrays(expectedRe, expectedIm, re, im);
+        
+        item.powerResponse(freq, expectedRe, expectedIm);
+        plan.powerResponse(item, freq, re, im);
+        assertArrays(expectedRe, expectedIm, re, im);
+        
+        item.responseWithBaffle(freq, expectedRe, expectedIm);
+        plan.responseWithBaffle(item, freq, re, im);
+        assertArrays(expectedRe, expectedIm, re, im);
+        
+        item.responseWithRoom(freq, expectedRe, expectedIm);
+        plan.responseWithRoom(item, freq, re, im);
+        assertArrays(expectedRe, expectedIm, re, im);
+        
+        item.impedance(freq, expectedRe, expectedIm);
+        plan.impedance(item, freq, re, im);
+        assertArrays(expectedRe, expectedIm, re, im);
+        
+        item.filter(freq, expectedRe, expectedIm);
+        plan.filter(item, freq, re, im);
+        assertArrays(expectedRe, expectedIm, re, im);
+        
+        item.maxPower(freq, expected);
+        plan.maxPower(item, freq, x);
+        assertArray(expected, x);
+        
+        item.excursion(freq, Double.MAX_VALUE, expected);
+        plan.excursion(item, freq, Double.MAX_VALUE, x);
+        assertArray(expected, x);
+    }
+    
+    private static void assertFused(EvaluationPlan plan, Project project, double[] freq) throws InterruptedException
+    {
+        double[] re = new double[freq.length];
+        double[] im = new double[freq.length];
+        double[] x = new double[freq.length];
+        IItem[] items = items(project).toArray(new IItem[0]);
+        EvaluationPlan.Result[] results = plan.evaluate(freq, Double.MAX_VALUE, items);
+        EvaluationPlan.Result[] parallel = plan.evaluate(POOL, freq, Double.MAX_VALUE, items);
+        
+        for (int i = 0; i < items.length; i++)
+        {
+            IItem item = items[i];
+            EvaluationPlan.Result result = results[i];
+            
+            item.response(freq, re, im);
+            assertArrays(re, im, result.Response.re, result.Response.im);
+            item.response1W(freq, re, im);
+            assertArrays(re, im, result.Response1W.re, result.Response1W.im);
+            item.listeningWindowResponse(freq, re, im);
+            assertArrays(re, im, result.ListeningWindowResponse.re, result.ListeningWindowResponse.im);
+            item.powerResponse(freq, re, im);
+            assertArrays(re, im, result.PowerResponse.re, result.PowerResponse.im);
+            item.responseWithBaffle(freq, re, im);
+            assertArrays(re, im, result.ResponseWithBaffle.re, result.ResponseWithBaffle.im);
+            item.responseWithRoom(freq, re, im);
+            assertArrays(re, im, result.ResponseWithRoom.re, result.ResponseWithRoom.im);
+            item.impedance(freq, re, im);
+            assertArrays(re, im, result.Impedance.re, result.Impedance.im);
+            item.filter(freq, re, im);
+            assertArrays(re, im, result.Filter.re, result.Filter.im);
+            item.maxPower(freq, x);
+            assertArray(x, result.MaxPower);
+            item.excursion(freq, Double.MAX_VALUE, x);
+            assertArray(x, result.Excursion);
+            
+            assertArrays(result.Response.re, result.Response.im, parallel[i].Response.re, parallel[i].Response.im);
+            assertArrays(result.Impedance.re, result.Impedance.im, parallel[i].Impedance.re, parallel[i].Impedance.im);
+            assertArray(result.MaxPower, parallel[i].MaxPower);
+            assertArray(result.Excursion, parallel[i].Excursion);
+        }
+    }
+    
+    @Test
+    public void sweepMatchesScalar() throws IOException
+    {
+        Project project = open();
+        double[] freq = project.Settings.freq;
+        
+        for (Speaker.SimulatorType simulator : Speaker.SimulatorType.values())
+        {
+            for (IItem item : items(project))
+            {
+                if (item instanceof Speaker)
+                {
+                    ((Speaker) item).setSimulator(simulator);
+                }
+            }
+            
+            project.refresh();
+            
+            for (IItem item : items(project))
+            {
+                assertSweep(item, freq);
+            }
+        }
+    }
+    
+    @Test
+    public void bypassedItems() throws IOException
+    {
+        Project project = open();
+        double[] freq = project.Settings.freq;
+        
+        for (IItem item : items(project.getChildren().get(0)))
+        {
+            item.setStatus(Item.Status.BYPASSED);
+        }
+        
+        project.refresh();
+        
+        for (IItem item : items(project))
+        {
+            assertSweep(item, freq);
+        }
+    }
+    
+    @Test
+    public void planMatchesTree() throws IOException, InterruptedException
+    {
+        Project project = open();
+        double[] freq = project.Settings.freq;
+        
+        Amplifier amplifier = (Amplifier) project.getChildren().get(0);
+        Gain gain = new Gain();
+        gain.dB = -3;
+        amplifier.Filters = new IActiveFilter[] { gain };
+        
+        HighPassFilter highPass = new HighPassFilter();
+        highPass.C1 = 2.2e-5;
+        highPass.L1 = 4.7e-4;
+        highPass.RL1 = 0.2;
+        
+        SerialNotchFilter notch = new SerialNotchFilter();
+        notch.L = 1e-3;
+        notch.C = 1e-5;
+        notch.R = 4;
+        
+        Amplifier inner = new Amplifier();
+        inner.Pe = 20;
+        inner.Zo = 0.1;
+        
+        Speaker speaker = (Speaker) items(project).get(4);
+        Speaker copy = new Speaker(speaker.toJSON().asObject().get("Value"));
+        notch.getChildren().add(copy);
+        highPass.getChildren().add(notch);
+        inner.getChildren().add(highPass);
+        amplifier.getChildren().add(inner);
+        
+        project.refresh();
+        EvaluationPlan plan = project.getPlan();
+        
+        for (IItem item : items(project))
+        {
+            assertPlan(plan, item, freq);
+        }
+        
+        assertFused(plan, project, freq);
+        
+        highPass.setStatus(Item.Status.BYPASSED);
+        inner.setStatus(Item.Status.BYPASSED);
+        project.refresh();
+        plan = project.getPlan();
+        
+        for (IItem item : items(project))
+        {
+            assertPlan(plan, item, freq);
+        }
+        
+        assertFused(plan, project, freq);
+    }
+    
+    @Test
+    public void incrementalRefresh() throws IOException, InterruptedException
+    {
+        Project project = open();
+        double[] freq = project.Settings.freq;
+        
+        project.refresh();
+        Speaker speaker = (Speaker) items(project).get(4);
+        ISimulation simulation = speaker.getSimulation();
+        assertFused(project.getPlan(), project, freq);
+        
+        // unchanged speaker keeps its simulation
+        List<IItem> children = project.getChildren().get(0).getChildren();
+        LPad pad = (LPad) children.get(children.size() - 1);
+        pad.Rs = 4;
+        pad.invalidate();
+        project.refresh();
+        assertSame(simulation, speaker.getSimulation());
+        assertFused(project.getPlan(), project, freq);
+        
+        speaker.Position = new Position(0.3, 0.5, 1);
+        speaker.invalidate();
+        project.refresh();
+        assertNotSame(simulation, speaker.getSimulation());
+        assertFused(project.getPlan(), project, freq);
+        
+        simulation = speaker.getSimulation();
+        project.ListeningPosition = new Position(2, 2, 1.2);
+        project.refresh();
+        assertNotSame(simulation, speaker.getSimulation());
+        assertFused(project.getPlan(), project, freq);
+    }
+    
+    @Test
+    public void separateContexts() throws IOException, InterruptedException
+    {
+        Project project = open();
+        Project other = open();
+        other.Environment.SpeedOfSound = 300;
+        other.ListeningPosition = new Position(3, 1, 1);
+        other.refresh();
+        
+        // other project is current instance, but must not affect this one
+        project.refresh();
+        IItem[] items = items(project).toArray(new IItem[0]);
+        double[] freq = project.Settings.freq;
+        EvaluationPlan.Result[] results = project.getPlan().evaluate(POOL, freq, Double.MAX_VALUE, items);
+        
+        Project reference = open();
+        reference.refresh();
+        EvaluationPlan.Result[] expected = reference.getPlan().evaluate(freq, Double.MAX_VALUE, items(reference).toArray(new IItem[0]));
+        
+        for (int i = 0; i < items.length; i++)
+        {
+            assertArrays(expected[i].Response.re, expected[i].Response.im, results[i].Response.re, results[i].Response.im);
+            assertArrays(expected[i].ResponseWithRoom.re, expected[i].ResponseWithRoom.im, results[i].ResponseWithRoom.re, results[i].ResponseWithRoom.im);
+            assertArrays(expected[i].Impedance.re, expected[i].Impedance.im, results[i].Impedance.re, results[i].Impedance.im);
+        }
+        
+        assertSame(reference, Project.getInstance());
+    }
+    
+    @Test
+    public void progressiveEvaluation() throws IOException, InterruptedException
+    {
+        Project project = open();
+        project.refresh();
+        EvaluationPlan plan = project.getPlan();
+        double[] freq = project.Settings.freq;
+        IItem[] items = items(project).toArray(new IItem[0]);
+        
+        assertArrayEquals(new int[] { 0, 8, 9 }, ProgressiveEvaluation.points(10, 8));
+        assertArrayEquals(new int[] { 0, 8 }, ProgressiveEvaluation.points(9, 8));
+        assertArrayEquals(new int[] { 0, 1, 2 }, ProgressiveEvaluation.points(3, 1));
+        
+        ProgressiveEvaluation evaluation = new ProgressiveEvaluation(plan, freq, Double.MAX_VALUE, items);
+        
+        for (int stride : new int[] { 8, 2, 1 })
+        {
+            int[] points = ProgressiveEvaluation.points(freq.length, stride);
+            EvaluationPlan.Result[] results = evaluation.evaluate(POOL, points);
+            EvaluationPlan.Result[] expected = plan.evaluate(ProgressiveEvaluation.select(freq, points), Double.MAX_VALUE, items);
+            
+            for (int i = 0; i < items.length; i++)
+            {
+                assertArrays(expected[i].Response.re, expected[i].Response.im, results[i].Response.re, results[i].Response.im);
+                assertArrays(expected[i].PowerResponse.re, expected[i].PowerResponse.im, results[i].PowerResponse.re, results[i].PowerResponse.im);
+                assertArrays(expected[i].Impedance.re, expected[i].Impedance.im, results[i].Impedance.re, results[i].Impedance.im);
+                assertArray(expected[i].MaxPower, results[i].MaxPower);
+                assertArray(expected[i].Excursion, results[i].Excursion);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2019 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ToleranceAnalysisTest
+{
+    private static void assertArray(double[] expected, double[] x)
+    {
+        for (int i = 0; i < x.length; i++)
+        {
+            assertEquals(expected[i], x[i], expected[i] * 1e-9);
+        }
+    }
+    
+    @Test
+    public void toleranceAnalysis() throws IOException, InterruptedException
+    {
+        Project project = new Project(ToleranceAnalysisTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        IItem amplifier = project.getChildren().get(0);
+        Project copy = project.copy();
+        Curves nominal = Curves.simulate(null, copy, copy.getChildren().get(0));
+        
+        // without spread every sample is nominal
+        ToleranceAnalysis exact = new ToleranceAnalysis(project, amplifier);
+        exact.add(amplifier.getChildren().get(0), 0, ToleranceAnalysis.Distribution.Uniform, "L1");
+        ToleranceAnalysis.Bands bands = exact.run(2, 3, null);
+        
+        for (int p = 0; p < ToleranceAnalysis.PERCENTILES.length; p++)
+        {
+            assertArray(nominal.Response, bands.Response[p]);
+            assertArray(nominal.Impedance, bands.Impedance[p]);
+        }
+        
+        final List<ToleranceAnalysis.Bands> updates = new ArrayList<ToleranceAnalysis.Bands>();
+        ToleranceAnalysis analysis = new ToleranceAnalysis(project, amplifier);
+        analysis.addDefaults();
+        bands = analysis.run(4, 20, new ToleranceAnalysis.Listener()
+        {
+            @Override
+            public void update(ToleranceAnalysis.Bands bands)
+            {
+                updates.add(bands);
+            }
+        });
+        
+        assertEquals(20, bands.Samples);
+        assertSame(bands, updates.get(updates.size() - 1));
+        
+        double difference = 0;
+        for (int i = 0; i < bands.Frequencies.length; i++)
+        {
+            assertTrue(bands.Response[0][i] <= bands.Response[1][i] && bands.Response[1][i] <= bands.Response[2][i]);
+            assertTrue(bands.Impedance[0][i] <= bands.Impedance[1][i] && bands.Impedance[1][i] <= bands.Impedance[2][i]);
+            difference += Math.abs(bands.Response[1][i] - nominal.Response[i]) / bands.Frequencies.length;
+        }
+        assertTrue(difference < 1);
+        assertTrue(bands.Response[2][0] - bands.Response[0][0] > 0.1);
+        
+        // samples do not depend on order of completion
+        ToleranceAnalysis.Bands again = analysis.run(3, 20, null);
+        assertArray(bands.Response[0], again.Response[0]);
+        assertArray(bands.Impedance[2], again.Impedance[2]);
+    }
+    
+    @Test
+    public void calculatedFilter() throws IOException, InterruptedException
+    {
+        Project project = new Project(ToleranceAnalysisTest.class.getClassLoader().getResourceAsStream("default.ssim"));
+        IItem amplifier = project.getChildren().get(0);
+        PassFilter filter = (PassFilter) amplifier.getChildren().get(0);
+        filter.setType(3);
+        Curves nominal = Curves.simulate(null, project, amplifier);
+        
+        // filter of copy is switched to custom, so spread is not overwritten on refresh
+        ToleranceAnalysis exact = new ToleranceAnalysis(project, amplifier);
+        exact.add(filter, 0, ToleranceAnalysis.Distribution.Uniform, "C1", "L1");
+        ToleranceAnalysis.Bands bands = exact.run(2, 3, null);
+        assertArray(nominal.Response, bands.Response[1]);
+        
+        ToleranceAnalysis analysis = new ToleranceAnalysis(project, amplifier);
+        analysis.add(filter, 0.5, ToleranceAnalysis.Distribution.Uniform, "L1");
+        bands = analysis.run(4, 20, null);
+        
+        double spread = 0;
+        for (int i = 0; i < bands.Frequencies.length; i++)
+        {
+            spread = Math.max(spread, bands.Response[2][i] - bands.Response[0][i]);
+        }
+        assertTrue(spread > 1);
+        assertFalse(filter.isCustom());
+    }
+}
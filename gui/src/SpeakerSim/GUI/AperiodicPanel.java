@@ -375,6 +375,7 @@ public final class AperiodicPanel extends javax.swing.JPanel implements ISpeaker
     {//GEN-HEADEREND:event_portCalcButtonActionPerformed
         if (new VentCalculator(null, Project.getInstance(), speaker.Aperiodic, (AperiodicSimulation) speaker.getSimulation(), speaker.Driver).showDialog())
         {
+            speaker.invalidate();
             Project.getInstance().setModified();
         }
     }//GEN-LAST:event_portCalcButtonActionPerformed
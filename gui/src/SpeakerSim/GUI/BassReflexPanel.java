@@ -500,6 +500,7 @@ public final class BassReflexPanel extends javax.swing.JPanel implements ISpeake
     {//GEN-HEADEREND:event_portCalcButtonActionPerformed
         if (new PortCalculator(null, Project.getInstance(), speaker.BassReflex, (BassReflexSimulation) speaker.getSimulation()).showDialog())
         {
+            speaker.invalidate();
             Project.getInstance().setModified();
         }
     }//GEN-LAST:event_portCalcButtonActionPerformed
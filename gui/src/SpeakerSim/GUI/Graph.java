@@ -245,7 +245,7 @@ public final class Graph
         chartPanel.setCursor(Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR));
     }
     
-    public void clear(boolean all)
+    private void clearMarks()
     {
         for (Crosshair crosshair : yCrosshairs)
         {
@@ -264,6 +264,11 @@ public final class Graph
                 i += step;
             }
         }
+    }
+    
+    public void clear(boolean all)
+    {
+        clearMarks();
         
         if (all)
         {
@@ -287,6 +292,20 @@ public final class Graph
         colorIndex = 0;
     }
     
+    // removes series added since last clear, so they can be replaced with refined ones
+    public void clearCurrent()
+    {
+        clearMarks();
+        
+        int count = series.getSeriesCount();
+        for (int i = count - colorIndex; i < count; i++)
+        {
+            series.removeSeries(count - colorIndex);
+        }
+        
+        colorIndex = 0;
+    }
+    
     public void clear()
     {
         clear(true);
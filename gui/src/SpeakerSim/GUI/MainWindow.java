@@ -27,6 +27,7 @@ import java.io.*;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.*;
@@ -35,35 +36,22 @@ import javax.swing.tree.*;
 
 public final class MainWindow extends javax.swing.JFrame
 {
+    // simulation threads, -DSpeakerSim.threads=N overrides number of processors
+    private static final ForkJoinPool POOL = new ForkJoinPool(Math.max(1, Integer.getInteger("SpeakerSim.threads", Runtime.getRuntime().availableProcessors())));
+    private static final int PROGRESSIVE = 1000; // points, from which sweep is shown coarse to fine
+    private static final int TOLERANCE_SAMPLES = 1000;
+    
     private File file;
     private final FileSelector fc;
     private boolean listen = true;
     private DefaultMutableTreeNode prevNode = null;
     
-    private double[] systemResponse;
-    private double[] response;
-    private double[] responsePhase;
-    private double[] impedance;
-    private double[] impedancePhase;
-    private double[] filter;
-    private double[] listeningWindow;
-    private double[] power;
-    private double[] directivity;
-    private double[] maxSPL;
-    private double[] maxPower;
-    private double[] excursion;
-    private double[] groupDelay;
-    private double[] baffle;
-    private double[] room;
-    private double[][] responses;
-    private double[][] phases;
-    private double[][] filters;
-    private double[][] excursions;
+    private volatile Curves curves; // last complete simulation
     
     private JPanel enclosurePanel;
     private BafflePanel bafflePanel;
     private DriverPositionPanel driverPositionPanel;
-    private Thread worker;
+    private final SimulationScheduler scheduler = new SimulationScheduler();
     
     final Graph graphResponse;
     final Graph graphPhase;
@@ -77,29 +65,6 @@ public final class MainWindow extends javax.swing.JFrame
     final Graph graphRoom;
     final Graph graphImpedance;
     
-    private void createTables()
-    {
-        int len = Settings.getInstance().freq.length;
-        if (systemResponse == null || systemResponse.length != len)
-        {
-            systemResponse = new double[len];
-            response = new double[len];
-            responsePhase = new double[len];
-            impedance = new double[len];
-            impedancePhase = new double[len];
-            filter = new double[len];
-            listeningWindow = new double[len];
-            power = new double[len];
-            directivity = new double[len];
-            maxSPL = new double[len];
-            maxPower = new double[len];
-            excursion = new double[len];
-            groupDelay = new double[len];
-            baffle = new double[len];
-            room = new double[len];
-        }
-    }
-    
     private void setRanges()
     {
         graphResponse.setXRange(Settings.getInstance().StartFrequency, Settings.getInstance().EndFrequency);
@@ -915,6 +880,22 @@ public final class MainWindow extends javax.swing.JFrame
                     }
                 });
                 popup.add(mi);
+                
+                if (!getSpeakers(node).isEmpty())
+                {
+                    popup.addSeparator();
+                    
+                    mi = new JMenuItem("Tolerance analysis");
+                    mi.addActionListener(new ActionListener()
+                    {
+                        @Override
+                        public void actionPerformed(ActionEvent e)
+                        {
+                            toleranceAnalysis(node);
+                        }
+                    });
+                    popup.add(mi);
+                }
             }
             else
             {
@@ -973,7 +954,18 @@ public final class MainWindow extends javax.swing.JFrame
                             exportFRD();
                         }
                     });
-                    mi.setEnabled(!(worker != null && worker.isAlive()));
+                    mi.setEnabled(!scheduler.isBusy());
+                    popup.add(mi);
+                    
+                    mi = new JMenuItem("Tolerance analysis");
+                    mi.addActionListener(new ActionListener()
+                    {
+                        @Override
+                        public void actionPerformed(ActionEvent e)
+                        {
+                            toleranceAnalysis(node);
+                        }
+                    });
                     popup.add(mi);
                 }
             }
@@ -1606,17 +1598,7 @@ public final class MainWindow extends javax.swing.JFrame
                 
                 try (PrintWriter writer = new PrintWriter(fs.getSelectedFile(), "UTF-8"))
                 {
-                    double[] freq = Settings.getInstance().freq;
-                    for (int i = 0; i < freq.length; i++)
-                    {
-                        double a = response[i];
-                        double p = responsePhase[i];
-                        
-                        if (Double.isFinite(a) && Double.isFinite(p))
-                        {
-                            writer.print(new ResponseEntry(freq[i], a, p).toString());
-                        }
-                    }
+                    curves.writeFRD(writer);
                 }
             }
         }
@@ -1639,17 +1621,7 @@ public final class MainWindow extends javax.swing.JFrame
                 
                 try (PrintWriter writer = new PrintWriter(fs.getSelectedFile(), "UTF-8"))
                 {
-                    double[] freq = Settings.getInstance().freq;
-                    for (int i = 0; i < freq.length; i++)
-                    {
-                        double a = impedance[i];
-                        double p = impedancePhase[i];
-                        
-                        if (Double.isFinite(a) && Double.isFinite(p))
-                        {
-                            writer.print(new ResponseEntry(freq[i], a, p).toString());
-                        }
-                    }
+                    curves.writeZMA(writer);
                 }
             }
         }
@@ -1954,40 +1926,224 @@ public final class MainWindow extends javax.swing.JFrame
     
     private void stopWorker()
     {
-        if (worker != null && worker.isAlive())
+        scheduler.stop();
+    }
+    
+    private void waitWorker()
+    {
+        scheduler.await();
+    }
+    
+    private Graph[] graphs()
+    {
+        return new Graph[] { graphResponse, graphPhase, graphFilters, graphExcursion, graphDirectivity, graphMaxSPL, graphMaxPower, graphGroupDelay, graphBaffle, graphRoom, graphImpedance };
+    }
+    
+    private void showTabs(IItem item, JPanel panel)
+    {
+        // Baffle tab
+        int tab = tabs.indexOfComponent(graphBaffle.getPanel());
+        if (tab < 0 && Settings.getInstance().BaffleSimulation)
         {
-            worker.interrupt();
-            
-            try
+            tabs.addTab("Baffle", graphBaffle.getPanel());
+        }
+        else if (tab >= 0 && !Settings.getInstance().BaffleSimulation)
+        {
+            tabs.remove(tab);
+        }
+        
+        // Room tab
+        tab = tabs.indexOfComponent(graphRoom.getPanel());
+        if (tab < 0 && Settings.getInstance().RoomSimulation)
+        {
+            tabs.addTab("Room", graphRoom.getPanel());
+        }
+        else if (tab >= 0 && !Settings.getInstance().RoomSimulation)
+        {
+            tabs.remove(tab);
+        }
+        
+        // Impedance tab
+        tab = tabs.indexOfComponent(graphImpedance.getPanel());
+        if (tab < 0 && !(item instanceof Project))
+        {
+            tabs.addTab("Impedance", graphImpedance.getPanel());
+        }
+        else if (tab >= 0 && (item instanceof Project))
+        {
+            tabs.remove(tab);
+        }
+        
+        // Enclosure tab
+        if (panel != null)
+        {
+            ((ISpeakerPanel) panel).addTabs(tabs);
+        }
+    }
+    
+    // refine replaces curves of previous pass of same simulation
+    private void showGraph(Graph graph, Curves c, boolean clearAll, boolean refine, IItem item, List<IItem> subitems, List<Speaker> speakers)
+    {
+        double[] freq = c.Frequencies;
+        
+        if (refine)
+        {
+            graph.clearCurrent();
+        }
+        else
+        {
+            graph.clear(clearAll);
+        }
+        
+        if (graph == graphFilters || graph == graphPhase || graph == graphBaffle || graph == graphRoom)
+        {
+            graph.addYMark(0, "");
+        }
+        
+        if (speakers.isEmpty())
+        {
+            // add only impedance
+            if (graph == graphImpedance)
             {
-                worker.join();
+                graph.add("Impedance", freq, c.Impedance);
             }
-            catch (InterruptedException ex)
+            
+            return;
+        }
+        
+        if (graph == graphResponse)
+        {
+            graph.add("System", freq, c.SystemResponse);
+            if (item != Project.getInstance())
             {
+                graph.add(item.toString(), freq, c.Response);
             }
         }
-    }
-    
-    private void waitWorker()
-    {
-        if (worker != null && worker.isAlive())
+        else if (graph == graphFilters)
         {
-            try
+            graph.add(item.toString(), freq, c.Filter);
+        }
+        else if (graph == graphExcursion)
+        {
+            graph.add("Excursion", freq, c.Excursion);
+        }
+        else if (graph == graphPhase && subitems.size() <= 1)
+        {
+            graph.add("Phase", freq, c.ResponsePhase);
+        }
+        else if (graph == graphDirectivity)
+        {
+            graph.add("Listening window", freq, c.ListeningWindow);
+            graph.add("Power response", freq, c.Power);
+            graph.add("Directivity", freq, c.Directivity);
+        }
+        else if (graph == graphMaxSPL)
+        {
+            graph.add("Max SPL", freq, c.MaxSPL);
+        }
+        else if (graph == graphMaxPower)
+        {
+            graph.add("Max power", freq, c.MaxPower);
+        }
+        else if (graph == graphGroupDelay)
+        {
+            graph.add("Group delay", freq, c.GroupDelay);
+        }
+        else if (graph == graphBaffle)
+        {
+            graph.add("Baffle", freq, c.Baffle);
+        }
+        else if (graph == graphRoom)
+        {
+            graph.add("Room", freq, c.Room);
+        }
+        else if (graph == graphImpedance)
+        {
+            graph.add("Impedance", freq, c.Impedance);
+        }
+        
+        if (subitems.size() > 1)
+        {
+            for (int j = 0; j < subitems.size(); j++)
             {
-                worker.join();
+                String subitem = subitems.get(j).toString();
+                
+                if (graph == graphResponse)
+                {
+                    graph.add(subitem, freq, c.Responses[j]);
+                }
+                else if (graph == graphFilters)
+                {
+                    graph.add(subitem, freq, c.Filters[j]);
+                }
+                else if (graph == graphExcursion)
+                {
+                    graph.add(subitem, freq, c.Excursions[j]);
+                }
+                else if (graph == graphPhase)
+                {
+                    graph.add(subitem, freq, c.Phases[j]);
+                }
             }
-            catch (InterruptedException ex)
+        }
+        
+        if (graph == graphExcursion)
+        {
+            for (Speaker s : speakers)
             {
+                graph.addYMark(s.Driver.Xmax * 1000, s.Driver.Name);
             }
         }
     }
     
-    private Complex totalResponse(IItem item, double f)
+    // selected graph first, others after it is painted
+    private void showCurves(final SimulationScheduler.Job job, final Curves c, final Component selected, final boolean refine, final boolean last,
+                            final DefaultMutableTreeNode node, final IItem item, final List<IItem> subitems, final List<Speaker> speakers, final JPanel panel)
     {
-        Complex r = item.response(f);
-        Complex baffleResponse = Settings.getInstance().BaffleSimulation ? item.responseWithBaffle(f).divide(r) : new Complex(1);
-        Complex roomResponse = Settings.getInstance().RoomSimulation ? item.responseWithRoom(f).divide(r) : new Complex(1);
-        return r.multiply(baffleResponse).multiply(roomResponse);
+        job.publish(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final boolean clearAll = node != prevNode;
+                prevNode = node;
+                
+                if (!refine)
+                {
+                    showTabs(item, panel);
+                }
+                
+                for (Graph graph : graphs())
+                {
+                    if (graph.getPanel() == selected)
+                    {
+                        showGraph(graph, c, clearAll, refine, item, subitems, speakers);
+                    }
+                }
+                
+                job.publish(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        for (Graph graph : graphs())
+                        {
+                            if (graph.getPanel() != selected)
+                            {
+                                showGraph(graph, c, clearAll, refine, item, subitems, speakers);
+                            }
+                        }
+                        
+                        if (last)
+                        {
+                            // hide message
+                            messageLabel.setVisible(false);
+                            setCursor(null);
+                        }
+                    }
+                });
+            }
+        });
     }
     
     private void showNode(final DefaultMutableTreeNode node)
@@ -1996,32 +2152,11 @@ public final class MainWindow extends javax.swing.JFrame
         messageLabel.setVisible(true);
         setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
 
-        // stop worker, if running
-        stopWorker();
-        
-        // calculate center of all speakers and delay
         final List<Speaker> speakers = getSpeakers(node);
-        Project.getInstance().CenterPosition = new Position(0, 0, 0);
-        double min_distance = Double.MAX_VALUE;
-
-        for (Speaker speaker : speakers)
-        {
-            Project.getInstance().CenterPosition = Project.getInstance().CenterPosition.add(speaker.Position);
-            
-            double distance = speaker.Position.distance(Project.getInstance().ListeningPosition);
-            if (distance < min_distance)
-            {
-                min_distance = distance;
-            }
-        }
-        Project.getInstance().CenterPosition = Project.getInstance().CenterPosition.divide(speakers.size());
-        final double delay = min_distance / Environment.getInstance().SpeedOfSound;
-        
-        // refresh simulation
-        Project.getInstance().refresh();
 
         // get item
         final IItem item = (IItem) node.getUserObject();
+        final List<IItem> subitems = item.getChildren();
         
         // update properties panel
         showPanels(item);
@@ -2047,285 +2182,141 @@ public final class MainWindow extends javax.swing.JFrame
         propertiesPanel.repaint();
         
         final Component parent = this;
+        final JPanel panel = enclosurePanel;
+        final Component selected = tabs.getSelectedComponent();
         
-        worker = new Thread()
+        // calculate center of all speakers and delay
+        final double delay = Curves.center(Project.getInstance(), speakers);
+        
+        // refresh simulation on event thread, job reads only immutable plan
+        Project.getInstance().refresh();
+        final EvaluationPlan plan = Project.getInstance().getPlan();
+        final double[] freq = Settings.getInstance().freq;
+        
+        // system, item and subitems in single pass
+        final IItem[] items = Curves.items(Project.getInstance(), item);
+        
+        // quick edits are coalesced, only last one is simulated
+        scheduler.schedule(new SimulationScheduler.Job()
         {
             @Override
-            public void run()
+            protected void run() throws Exception
             {
-                final Thread thread = Thread.currentThread();
+                if (speakers.isEmpty())
+                {
+                    Curves c = Curves.impedance(plan, freq, item);
+                    
+                    curves = c;
+                    showCurves(this, c, selected, false, true, node, item, subitems, speakers, panel);
+                    return;
+                }
                 
-                try
+                // large sweeps are shown coarse first and refined with points in between
+                ProgressiveEvaluation evaluation = new ProgressiveEvaluation(plan, freq, Double.MAX_VALUE, items);
+                int[] strides = freq.length >= PROGRESSIVE ? new int[] { 8, 2, 1 } : new int[] { 1 };
+                
+                for (int k = 0; k < strides.length; k++)
                 {
-                    final List<IItem> subitems = item.getChildren();
-                    double[] freq = Settings.getInstance().freq;
+                    int[] points = ProgressiveEvaluation.points(freq.length, strides[k]);
+                    EvaluationPlan.Result[] results = evaluation.evaluate(POOL, points);
+                    
+                    if (isCancelled()) return;
+                    
+                    Curves c = Curves.simulate(POOL, results, ProgressiveEvaluation.select(freq, points), item, delay);
                     
-                    if (!speakers.isEmpty())
+                    boolean last = k == strides.length - 1;
+                    
+                    if (last)
                     {
-                        responses = new double[subitems.size()][freq.length];
-                        phases = new double[subitems.size()][freq.length];
-                        filters = new double[subitems.size()][freq.length];
-                        excursions = new double[subitems.size()][freq.length];
-
-                        for (int i = 0; i < freq.length; i++)
-                        {
-                            if (thread.isInterrupted()) return;
-
-                            double f = freq[i];
-
-                            Complex r = Project.getInstance().response(f);
-                            Complex baffleResponse = Settings.getInstance().BaffleSimulation ? Project.getInstance().responseWithBaffle(f).divide(r) : new Complex(1);
-                            Complex roomResponse = Settings.getInstance().RoomSimulation ? Project.getInstance().responseWithRoom(f).divide(r) : new Complex(1);
-                            r = r.multiply(baffleResponse).multiply(roomResponse);
-                            systemResponse[i] = Fnc.toDecibels(r.abs());
-                            
-                            if (item != Project.getInstance())
-                            {
-                                r = item.response(f);
-                                baffleResponse = Settings.getInstance().BaffleSimulation ? item.responseWithBaffle(f).divide(r) : new Complex(1);
-                                roomResponse = Settings.getInstance().RoomSimulation ? item.responseWithRoom(f).divide(r) : new Complex(1);
-                                r = r.multiply(baffleResponse).multiply(roomResponse);
-                                response[i] = Fnc.toDecibels(r.abs());
-                            }
-                            
-                            for (int j = 0; j < subitems.size(); j++)
-                            {
-                                IItem subitem = subitems.get(j);
-                                Complex sr = totalResponse(subitem, f);
-                                responses[j][i] = Fnc.toDecibels(sr.abs());
-                                phases[j][i] = sr.phase();
-                                filters[j][i] = Fnc.toDecibels(subitem.filter(f).abs());
-                                excursions[j][i] = subitem.excursion(f, Double.MAX_VALUE);
-                            }
-
-                            filter[i] = Fnc.toDecibels(item.filter(f).abs());
-                            listeningWindow[i] = Fnc.toDecibels(item.listeningWindowResponse(f).abs());
-                            power[i] = Fnc.toDecibels(item.powerResponse(f).abs());
-                            directivity[i] = listeningWindow[i] - power[i];
-                            responsePhase[i] = r.phase();
-                            Complex z = item.impedance(f);
-                            impedance[i] = z.abs();
-                            impedancePhase[i] = z.phase();
-                            maxPower[i] = item.maxPower(f);
-                            maxSPL[i] = Fnc.toDecibels(item.response1W(f).multiply(baffleResponse).multiply(roomResponse).abs()) + Fnc.powerToDecibels(maxPower[i]);
-                            excursion[i] = item.excursion(f, Double.MAX_VALUE);
-                            baffle[i] = Fnc.toDecibels(baffleResponse.abs());
-                            room[i] = Fnc.toDecibels(roomResponse.abs());
-                        }
+                        curves = c;
                         
                         // simulate enclousure
-                        if (enclosurePanel != null)
+                        if (panel != null)
                         {
-                            ((ISpeakerPanel) enclosurePanel).simulate();
-                        }
-                        
-                        // remove distance delay from phase to get minimum phase
-                        // convert to degress
-                        for (int i = 0; i < freq.length; i++)
-                        {
-                            Complex d = Complex.toComplex(1, 2 * Math.PI * freq[i] * delay);
-                            responsePhase[i] = Math.toDegrees(Complex.toComplex(1, responsePhase[i]).multiply(d).phase());
-                            
-                            for (int j = 0; j < subitems.size(); j++)
-                            {
-                                phases[j][i] = Math.toDegrees(Complex.toComplex(1, phases[j][i]).multiply(d).phase());
-                            }
-                        }
-                        
-                        // calculate group delay
-                        Fnc.calcGroupDelay(freq, responsePhase, groupDelay);
-                        
-                        // smoothing
-                        if (Settings.getInstance().Smoothing > 0)
-                        {
-                            int points = (int)Math.round(Settings.getInstance().pointsPerOctave()) / Settings.getInstance().Smoothing;
-
-                            Fnc.smooth(systemResponse, points);
-                            Fnc.smooth(response, points);
-                            //Fnc.unwrapPhase(responsePhase);
-                            //Fnc.smooth(responsePhase, points);
-                            Fnc.smooth(filter, points);
-                            Fnc.smooth(listeningWindow, points);
-                            Fnc.smooth(power, points);
-                            Fnc.smooth(directivity, points);
-                            Fnc.smooth(maxSPL, points);
-                            Fnc.smooth(maxPower, points);
-                            Fnc.smooth(groupDelay, points);
-                            Fnc.smooth(baffle, points);
-                            Fnc.smooth(room, points);
-                            
-                            for (int j = 0; j < subitems.size(); j++)
-                            {
-                                Fnc.smooth(responses[j], points);
-                                Fnc.smooth(filters[j], points);
-                                Fnc.smooth(excursions[j], points);
-                                //Fnc.unwrapPhase(phases[j]);
-                                //Fnc.smooth(phases[j], points);
-                            }
-                        }
-                    }
-                    else
-                    {
-                        responses = null;
-                        phases = null;
-                        filters = null;
-                        excursions = null;
-                        
-                        for (int i = 0; i < freq.length; i++)
-                        {
-                            if (thread.isInterrupted()) return;
-
-                            Complex z = item.impedance(freq[i]);
-                            impedance[i] = z.abs();
-                            impedancePhase[i] = z.phase();
+                            ((ISpeakerPanel) panel).simulate();
                         }
                     }
                     
-                    boolean clearAll = node != prevNode;
-                    prevNode = node;
+                    showCurves(this, c, selected, k > 0, last, node, item, subitems, speakers, panel);
+                }
+            }
+
+            @Override
+            protected void failed(Throwable e)
+            {
+                UI.throwable(parent, e);
+            }
+        });
+    }
+    
+    private void showBands(final SimulationScheduler.Job job, final ToleranceAnalysis.Bands bands)
+    {
+        job.publish(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                // selecting node again shows normal curves
+                prevNode = null;
+                
+                for (Graph graph : new Graph[] { graphResponse, graphImpedance })
+                {
+                    double[][] x = graph == graphResponse ? bands.Response : bands.Impedance;
+                    graph.clear(true);
                     
-                    SwingUtilities.invokeAndWait(new Runnable()
+                    for (int p = 0; p < x.length; p++)
                     {
-                        @Override
-                        public void run()
-                        {
-                            if (thread.isInterrupted()) return;
-                            
-                            // clear graphs
-                            graphResponse.clear(clearAll);
-                            graphPhase.clear(clearAll);
-                            graphFilters.clear(clearAll);
-                            graphExcursion.clear(clearAll);
-                            graphDirectivity.clear(clearAll);
-                            graphMaxSPL.clear(clearAll);
-                            graphMaxPower.clear(clearAll);
-                            graphGroupDelay.clear(clearAll);
-                            graphBaffle.clear(clearAll);
-                            graphRoom.clear(clearAll);
-                            graphImpedance.clear(clearAll);
-                            
-                            graphFilters.addYMark(0, "");
-                            graphPhase.addYMark(0, "");
-                            graphBaffle.addYMark(0, "");
-                            graphRoom.addYMark(0, "");
-                            
-                            // Baffle tab
-                            int tab = tabs.indexOfComponent(graphBaffle.getPanel());
-                            if (tab < 0 && Settings.getInstance().BaffleSimulation)
-                            {
-                                tabs.addTab("Baffle", graphBaffle.getPanel());
-                            }
-                            else if (tab >= 0 && !Settings.getInstance().BaffleSimulation)
-                            {
-                                tabs.remove(tab);
-                            }
-
-                            // Room tab
-                            tab = tabs.indexOfComponent(graphRoom.getPanel());
-                            if (tab < 0 && Settings.getInstance().RoomSimulation)
-                            {
-                                tabs.addTab("Room", graphRoom.getPanel());
-                            }
-                            else if (tab >= 0 && !Settings.getInstance().RoomSimulation)
-                            {
-                                tabs.remove(tab);
-                            }
-
-                            // Impedance tab
-                            tab = tabs.indexOfComponent(graphImpedance.getPanel());
-                            if (tab < 0 && !(item instanceof Project))
-                            {
-                                tabs.addTab("Impedance", graphImpedance.getPanel());
-                            }
-                            else if (tab >= 0 && (item instanceof Project))
-                            {
-                                tabs.remove(tab);
-                            }
-
-                            // Enclosure tab
-                            if (enclosurePanel != null)
-                            {
-                                ((ISpeakerPanel) enclosurePanel).addTabs(tabs);
-                            }
-                            
-                            if (!speakers.isEmpty())
-                            {
-                                // add new data
-                                graphResponse.add("System", freq, systemResponse);
-                                if (item != Project.getInstance())
-                                {
-                                    graphResponse.add(item.toString(), freq, response);
-                                }
-                                graphFilters.add(item.toString(), freq, filter);
-                                graphExcursion.add("Excursion", freq, excursion);
-
-                                if (subitems.size() <= 1)
-                                {
-                                    graphPhase.add("Phase", freq, responsePhase);
-                                }
-                                else
-                                {
-                                    for (int j = 0; j < subitems.size(); j++)
-                                    {
-                                        String subitem = subitems.get(j).toString();
-
-                                        graphResponse.add(subitem, freq, responses[j]);
-                                        graphFilters.add(subitem, freq, filters[j]);
-                                        graphExcursion.add(subitem, freq, excursions[j]);
-                                        graphPhase.add(subitem, freq, phases[j]);
-                                    }
-                                }
-
-                                graphDirectivity.add("Listening window", freq, listeningWindow);
-                                graphDirectivity.add("Power response", freq, power);
-                                graphDirectivity.add("Directivity", freq, directivity);
-
-                                graphMaxSPL.add("Max SPL", freq, maxSPL);
-                                graphMaxPower.add("Max power", freq, maxPower);
-                                graphGroupDelay.add("Group delay", freq, groupDelay);
-                                graphBaffle.add("Baffle", freq, baffle);
-                                graphRoom.add("Room", freq, room);
-                                graphImpedance.add("Impedance", freq, impedance);
-
-                                for (Speaker s : speakers)
-                                {
-                                    graphExcursion.addYMark(s.Driver.Xmax * 1000, s.Driver.Name);
-                                }
-                            }
-                            else
-                            {
-                                // add only impedance
-                                graphImpedance.add("Impedance", freq, impedance);
-                            }
-                            
-                            // hide message
-                            messageLabel.setVisible(false);
-                            setCursor(null);
-                        }
-                    });
+                        graph.add((int) ToleranceAnalysis.PERCENTILES[p] + " %", bands.Frequencies, x[p]);
+                    }
                 }
-                catch (final InterruptedException e)
+                
+                if (bands.Samples == TOLERANCE_SAMPLES)
                 {
-                    // ignore
+                    // hide message
+                    messageLabel.setVisible(false);
+                    setCursor(null);
                 }
-                catch (final Throwable e)
+            }
+        });
+    }
+    
+    // percentile bands of components and drivers spread, shown while samples accumulate
+    private void toleranceAnalysis(final DefaultMutableTreeNode node)
+    {
+        // show message
+        messageLabel.setVisible(true);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        
+        final IItem item = (IItem) node.getUserObject();
+        final Component parent = this;
+        
+        scheduler.schedule(new SimulationScheduler.Job()
+        {
+            @Override
+            protected void run() throws Exception
+            {
+                final SimulationScheduler.Job job = this;
+                
+                ToleranceAnalysis analysis = new ToleranceAnalysis(Project.getInstance(), item);
+                analysis.addDefaults();
+                analysis.run(POOL.getParallelism(), TOLERANCE_SAMPLES, new ToleranceAnalysis.Listener()
                 {
-                    if (!thread.isInterrupted())
+                    @Override
+                    public void update(ToleranceAnalysis.Bands bands)
                     {
-                        SwingUtilities.invokeLater(new Runnable()
-                        {
-                            @Override
-                            public void run()
-                            {
-                                UI.throwable(parent, e);
-                            }
-                        });
+                        showBands(job, bands);
                     }
-                }
+                });
             }
-        };
-
-        worker.start();
+            
+            @Override
+            protected void failed(Throwable e)
+            {
+                messageLabel.setVisible(false);
+                setCursor(null);
+                UI.throwable(parent, e);
+            }
+        });
     }
     
     public void refresh()
@@ -2335,6 +2326,8 @@ public final class MainWindow extends javax.swing.JFrame
         DefaultMutableTreeNode node = (DefaultMutableTreeNode)tree.getLastSelectedPathComponent();
         if (node != null)
         {
+            // panels edit selected item
+            ((IItem) node.getUserObject()).invalidate();
             showNode(node);
         }
     }
@@ -2351,7 +2344,6 @@ public final class MainWindow extends javax.swing.JFrame
     
     private void load()
     {
-        createTables();
         setRanges();
         
         DefaultMutableTreeNode rootNode = new DefaultMutableTreeNode(Project.getInstance());
@@ -2765,7 +2757,6 @@ public final class MainWindow extends javax.swing.JFrame
     {//GEN-HEADEREND:event_menuSettingsActionPerformed
         if (new SettingsWindow(this, Project.getInstance().Settings).showDialog())
         {
-            createTables();
             setRanges();
             refresh();
         }
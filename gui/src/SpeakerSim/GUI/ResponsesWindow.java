@@ -220,10 +220,10 @@ public class ResponsesWindow extends JDialog
             @Override
             public void actionPerformed(ActionEvent evt)
             {
-                ResponseData rd = importFRD();
-                if (rd != null)
+                // each measurement (e.g. polar) gets its own angle
+                for (Map.Entry<String, ResponseData> entry : importFRDs().entrySet())
                 {
-                    rd = edit(rd, model.getSize() > 0, false);
+                    ResponseData rd = edit(entry.getValue(), model.getSize() > 0, false, entry.getKey());
                     if (rd != null)
                     {
                         model.addElement(rd);
@@ -313,8 +313,44 @@ public class ResponsesWindow extends JDialog
         
         return null;
     }
+    
+    // several files by file name, parsed in parallel
+    public static Map<String, ResponseData> importFRDs()
+    {
+        Map<String, ResponseData> responses = new LinkedHashMap<String, ResponseData>();
+        FileSelector fc = new FileSelector(".frd");
+        fc.setFileFilter(new FileNameExtensionFilter("Frequency Response Data", "frd", "txt", "csv"));
+        fc.setMultiSelectionEnabled(true);
+
+        if (fc.showOpenDialog(null) == FileSelector.APPROVE_OPTION)
+        {
+            try
+            {
+                File[] files = fc.getSelectedFiles();
+                ResponseEntry[][] data = ResponseData.ImportData(files, true, Runtime.getRuntime().availableProcessors());
+                
+                for (int i = 0; i < files.length; i++)
+                {
+                    ResponseData rd = new ResponseData(null);
+                    rd.data = data[i];
+                    responses.put(files[i].getName(), rd);
+                }
+            }
+            catch (IOException | InterruptedException ex)
+            {
+                UI.throwable(null, ex);
+            }
+        }
+        
+        return responses;
+    }
    
     public static ResponseData editDialog(Component parent, ResponseData frd, boolean showAngles)
+    {
+        return editDialog(parent, frd, showAngles, "FRD info");
+    }
+   
+    public static ResponseData editDialog(Component parent, ResponseData frd, boolean showAngles, String title)
     {
         String[] measures = { "volts", "watts" };
         JComboBox<String> inputMeasure = new JComboBox<String>(measures);
@@ -366,7 +402,7 @@ public class ResponsesWindow extends JDialog
             minimumPhase
         };
         
-        if (UI.dialog(parent, "FRD info", inputs))
+        if (UI.dialog(parent, title, inputs))
         {
             ResponseData rd = new ResponseData(null);
             rd.data = frd.data;
@@ -396,7 +432,12 @@ public class ResponsesWindow extends JDialog
     
     private ResponseData edit(ResponseData frd, boolean showAngles, boolean editing)
     {
-        ResponseData rd = editDialog(this, frd, showAngles);
+        return edit(frd, showAngles, editing, "FRD info");
+    }
+    
+    private ResponseData edit(ResponseData frd, boolean showAngles, boolean editing, String title)
+    {
+        ResponseData rd = editDialog(this, frd, showAngles, title);
         if (rd != null)
         {
             if (model.contains(rd) && !(editing && rd.equals(frd)))
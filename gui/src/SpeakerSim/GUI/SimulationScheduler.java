@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2017 Gregor Pintar <grpintar@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package SpeakerSim.GUI;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.swing.SwingUtilities;
+
+/*
+ * Runs simulations of GUI one at a time on single background thread.
+ * Requests within short delay are coalesced, newer request cancels older job
+ * and results of cancelled job are never published.
+ */
+public final class SimulationScheduler
+{
+    private static final long DELAY = 40; // ms
+    
+    public static abstract class Job
+    {
+        private volatile boolean cancelled;
+        
+        public final boolean isCancelled()
+        {
+            return cancelled || Thread.currentThread().isInterrupted();
+        }
+        
+        // runs on scheduler thread
+        protected abstract void run() throws Exception;
+        
+        // runs on event dispatch thread, if job was not cancelled
+        protected void failed(Throwable e)
+        {
+        }
+        
+        // runs task on event dispatch thread without waiting, unless job gets cancelled before
+        public final void publish(final Runnable task)
+        {
+            SwingUtilities.invokeLater(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    if (!cancelled)
+                    {
+                        task.run();
+                    }
+                }
+            });
+        }
+    }
+    
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+    {
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            Thread thread = new Thread(r, "SpeakerSim simulation");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+    
+    private Job job;
+    private Future<?> future;
+    
+    // cancels previous job and runs this one after short delay
+    public synchronized void schedule(final Job job)
+    {
+        cancel();
+        
+        this.job = job;
+        future = executor.schedule(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                if (job.isCancelled())
+                {
+                    return;
+                }
+                
+                try
+                {
+                    job.run();
+                }
+                catch (InterruptedException e)
+                {
+                    // cancelled
+                }
+                catch (final Throwable e)
+                {
+                    job.publish(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            job.failed(e);
+                        }
+                    });
+                }
+            }
+        }, DELAY, TimeUnit.MILLISECONDS);
+    }
+    
+    public synchronized void cancel()
+    {
+        if (job != null)
+        {
+            job.cancelled = true;
+            future.cancel(true);
+            job = null;
+            future = null;
+        }
+    }
+    
+    public synchronized boolean isBusy()
+    {
+        return future != null && !future.isDone();
+    }
+    
+    // waits until scheduled job is finished, its results may not be published yet
+    public void await()
+    {
+        Future<?> f;
+        
+        synchronized (this)
+        {
+            f = future;
+        }
+        
+        if (f == null)
+        {
+            return;
+        }
+        
+        try
+        {
+            f.get();
+        }
+        catch (CancellationException | ExecutionException e)
+        {
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    // cancels job and waits until scheduler thread is idle
+    public void stop()
+    {
+        cancel();
+        
+        try
+        {
+            // queued after cancelled job, so it runs once that job has returned
+            executor.submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                }
+            }).get();
+        }
+        catch (ExecutionException e)
+        {
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}